@@ -0,0 +1,29 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with the GC profiler, so every result carries its allocation rate per
+ * operation, and writes the results as JSON for comparison with the committed baseline.
+ *
+ * Usage: java -jar target/benchmarks.jar [include regex] [result file]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "se\\.kth\\.rebins\\.sudoku\\.Benchmarks\\..*";
+        String result = args.length > 1 ? args[1] : "results/latest.json";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
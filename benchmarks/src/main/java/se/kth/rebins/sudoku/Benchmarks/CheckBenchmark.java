@@ -0,0 +1,43 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.rebins.sudoku.Model.Hint;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the checks and hints the player triggers while playing, per level and fill ratio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CheckBenchmark {
+
+    @Benchmark
+    public boolean isSolved(GameState state) {
+        return state.facade.isSolved();
+    }
+
+    @Benchmark
+    public boolean isCurrentlySolved(GameState state) {
+        return state.facade.isCurrentlySolved();
+    }
+
+    @Benchmark
+    public int[] getRandomHint(GameState state) {
+        return state.facade.getRandomHint();
+    }
+
+    @Benchmark
+    public Hint getLogicalHint(GameState state) {
+        return state.facade.getLogicalHint();
+    }
+}
@@ -0,0 +1,60 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import se.kth.rebins.sudoku.Model.Facade;
+import se.kth.rebins.sudoku.Model.PuzzleGenerator;
+import se.kth.rebins.sudoku.Model.PuzzlePool;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+
+/**
+ * A game in progress, parameterized by difficulty level and by the share of the empty cells
+ * the player has already filled in correctly.
+ */
+@State(Scope.Thread)
+public class GameState {
+    @Param({"EASY", "MEDIUM", "HARD"})
+    public SudokuUtilities.SudokuLevel level;
+
+    @Param({"0.0", "0.5", "0.9", "1.0"})
+    public double fillRatio;
+
+    public Facade facade;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        facade = newGame(level, fillRatio);
+    }
+
+    /**
+     * Starts a game and fills a share of its empty cells with their solution.
+     * The pool is shut down before returning, so its producer does not run during measurement.
+     *
+     * @param level     The difficulty level.
+     * @param fillRatio The share of the empty cells to fill, from 0 to 1.
+     * @return The game.
+     */
+    public static Facade newGame(SudokuUtilities.SudokuLevel level, double fillRatio) {
+        PuzzlePool pool = new PuzzlePool(new PuzzleGenerator(), 1);
+        Facade facade = new Facade(level, pool);
+        pool.shutdown();
+
+        int empty = 0;
+        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
+            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
+                if (facade.getUserValue(row, col) == 0) {
+                    empty++;
+                }
+            }
+        }
+        int toFill = (int) Math.round(empty * fillRatio);
+        for (int i = 0; i < toFill; i++) {
+            int[] hint = facade.getRandomHint();
+            facade.setUserValue(hint[0], hint[1], hint[2]);
+        }
+        return facade;
+    }
+}
@@ -0,0 +1,113 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.StackPane;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+import se.kth.rebins.sudoku.View.BoardRenderer;
+import se.kth.rebins.sudoku.View.CanvasBoardRenderer;
+import se.kth.rebins.sudoku.View.LabelBoardRenderer;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Compares the Label and Canvas board renderers: scene graph node count, startup time and
+ * redraw time. Rendering must happen on the JavaFX Application Thread, which JMH does not drive,
+ * so this is a plain harness that starts the toolkit and times the work there.
+ *
+ * Every measurement ends with a snapshot of the scene into an image, which runs the CSS and layout
+ * pass and then renders the scene graph, as a pulse does. A CSS and layout pass alone would leave
+ * out the Canvas almost entirely, since its drawing commands are only executed when it is rendered.
+ * Startup is building the renderer and rendering it once. A redraw is showing new values and
+ * rendering, once for a single cell and once for all 81.
+ *
+ * Usage: java -cp target/benchmarks.jar se.kth.rebins.sudoku.Benchmarks.RendererComparison
+ * Without a display, add -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw.
+ */
+public class RendererComparison {
+    private static final int STARTUP_RUNS = 50;
+    private static final int REDRAW_RUNS = 2000;
+    private static final int GRID_SIZE = SudokuUtilities.GRID_SIZE;
+
+    public static void main(String[] args) throws Exception {
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        Platform.startup(() -> started.complete(null));
+        started.get();
+
+        try {
+            System.out.printf("%-8s %6s %14s %16s %16s%n", "renderer", "nodes", "startup (us)",
+                    "1 cell (us)", "81 cells (us)");
+            measure("label", LabelBoardRenderer::new);
+            measure("canvas", CanvasBoardRenderer::new);
+        } finally {
+            Platform.exit();
+        }
+    }
+
+    private static void measure(String name, Supplier<BoardRenderer> factory) throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(run(name, factory));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        System.out.println(result.get());
+    }
+
+    private static String run(String name, Supplier<BoardRenderer> factory) {
+        long[] startups = new long[STARTUP_RUNS];
+        StackPane root = null;
+        Scene scene = null;
+        BoardRenderer renderer = null;
+        WritableImage image = null;
+        for (int run = 0; run < STARTUP_RUNS; run++) {
+            long start = System.nanoTime();
+            renderer = factory.get();
+            root = new StackPane(renderer.getNode());
+            scene = new Scene(root);
+            image = scene.snapshot(null);
+            startups[run] = System.nanoTime() - start;
+        }
+
+        long[] single = new long[REDRAW_RUNS];
+        long[] full = new long[REDRAW_RUNS];
+        for (int run = 0; run < REDRAW_RUNS; run++) {
+            long start = System.nanoTime();
+            renderer.showValue(run % GRID_SIZE, (run / GRID_SIZE) % GRID_SIZE, run % 10);
+            scene.snapshot(image);
+            single[run] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < GRID_SIZE * GRID_SIZE; i++) {
+                renderer.showValue(i / GRID_SIZE, i % GRID_SIZE, (i + run) % 10);
+            }
+            scene.snapshot(image);
+            full[run] = System.nanoTime() - start;
+        }
+        return String.format("%-8s %6d %14.1f %16.2f %16.2f", name, countNodes(root),
+                median(startups), median(single), median(full));
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1000.0;
+    }
+}
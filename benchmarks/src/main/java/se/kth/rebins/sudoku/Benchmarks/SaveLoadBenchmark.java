@@ -0,0 +1,88 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.rebins.sudoku.Model.Board;
+import se.kth.rebins.sudoku.Model.FileLogic;
+import se.kth.rebins.sudoku.Model.SaveArchive;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading a game, to a file through FileLogic and to a slot of a SaveArchive,
+ * per level and fill ratio.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SaveLoadBenchmark {
+    @Param({"EASY", "MEDIUM", "HARD"})
+    public SudokuUtilities.SudokuLevel level;
+
+    @Param({"0.0", "0.5", "0.9", "1.0"})
+    public double fillRatio;
+
+    private final Board board = new Board();
+    private final Board loaded = new Board();
+    private File file;
+    private File archiveFile;
+    private SaveArchive archive;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("benchmark", ".sudoku");
+        GameState.newGame(level, fillRatio).saveGame(file);
+        FileLogic.loadGame(file, board);
+        archiveFile = File.createTempFile("benchmark", ".sda");
+        Files.delete(archiveFile.toPath());
+        archive = new SaveArchive(archiveFile.toPath(), 1);
+        archive.save(0, board, level);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(archiveFile.toPath());
+    }
+
+    @Benchmark
+    public File saveGame() throws IOException {
+        FileLogic.saveGame(board, level, file);
+        return file;
+    }
+
+    @Benchmark
+    public SudokuUtilities.SudokuLevel loadGame() throws IOException {
+        return FileLogic.loadGame(file, loaded);
+    }
+
+    @Benchmark
+    public SaveArchive saveSlot() {
+        archive.save(0, board, level);
+        return archive;
+    }
+
+    @Benchmark
+    public SudokuUtilities.SudokuLevel loadSlot() throws IOException {
+        return archive.load(0, loaded);
+    }
+}
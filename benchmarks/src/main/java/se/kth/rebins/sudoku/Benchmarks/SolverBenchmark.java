@@ -0,0 +1,69 @@
+package se.kth.rebins.sudoku.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.rebins.sudoku.Model.DifficultyRater;
+import se.kth.rebins.sudoku.Model.Rating;
+import se.kth.rebins.sudoku.Model.SudokuSolver;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures solving and rating a fixed set of generated puzzles, per difficulty level.
+ * Each invocation handles the next puzzle of the set, so the result is an average over the set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+    private static final int PUZZLE_COUNT = 64;
+
+    @Param({"EASY", "MEDIUM", "HARD"})
+    public SudokuUtilities.SudokuLevel level;
+
+    private final int[][] puzzles = new int[PUZZLE_COUNT][];
+    private final int[] grid = new int[SudokuUtilities.GRID_SIZE * SudokuUtilities.GRID_SIZE];
+    private final SudokuSolver solver = new SudokuSolver();
+    private final DifficultyRater rater = new DifficultyRater();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < PUZZLE_COUNT; i++) {
+            int[] flat = SudokuUtilities.toFlatArray(SudokuUtilities.generateSudokuMatrix(level));
+            puzzles[i] = new int[grid.length];
+            System.arraycopy(flat, 0, puzzles[i], 0, grid.length);
+        }
+    }
+
+    @Benchmark
+    public boolean solveUnique() {
+        System.arraycopy(nextPuzzle(), 0, grid, 0, grid.length);
+        return solver.solveUnique(grid);
+    }
+
+    @Benchmark
+    public Rating rate() {
+        return rater.rate(nextPuzzle());
+    }
+
+    private int[] nextPuzzle() {
+        int[] puzzle = puzzles[next];
+        next = (next + 1) % PUZZLE_COUNT;
+        return puzzle;
+    }
+}
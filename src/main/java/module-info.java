@@ -2,6 +2,8 @@ module se.kth.rebins.sudoku {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.desktop;
+    requires jdk.httpserver;
+    requires jdk.jfr;
 
 
     opens se.kth.rebins.sudoku to javafx.fxml;
@@ -4,21 +4,58 @@ import se.kth.rebins.sudoku.View.*;
 import se.kth.rebins.sudoku.Model.*;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class Main extends Application {
+    /**
+     * The system property naming the puzzle library file, ~/.sudoku/puzzles.sdl by default.
+     */
+    public static final String LIBRARY_PROPERTY = "sudoku.library";
+
+    private AutosaveLog autosave;
+    private PuzzleLibrary library;
+    private SudokuController controller;
 
     @Override
     public void start(Stage primaryStage) {
 
         SudokuUtilities.SudokuLevel currentDifficulty = SudokuUtilities.SudokuLevel.MEDIUM;
 
-        Facade facade = new Facade(currentDifficulty);
+        Path libraryFile = Paths.get(System.getProperty(LIBRARY_PROPERTY,
+                Paths.get(System.getProperty("user.home"), ".sudoku", "puzzles.sdl").toString()));
+        if (Files.exists(libraryFile)) {
+            try {
+                library = new PuzzleLibrary(libraryFile, new PuzzleGenerator()::generate);
+            } catch (IOException e) {
+                System.err.println("The puzzle library is not used: " + e.getMessage());
+            }
+        }
+        Facade facade = library != null ? new Facade(currentDifficulty, library) : new Facade(currentDifficulty);
+        Path autosaveDirectory = Paths.get(System.getProperty("user.home"), ".sudoku", "autosave");
+        try {
+            AutosaveLog.recover(autosaveDirectory, facade);
+        } catch (IOException e) {
+            System.err.println("Could not recover the autosaved game: " + e.getMessage());
+        }
+        try {
+            autosave = new AutosaveLog(autosaveDirectory, facade);
+        } catch (IOException e) {
+            System.err.println("Autosave is disabled: " + e.getMessage());
+        }
 
         GridView gridView = new GridView(facade);
-        SudokuController controller = new SudokuController(facade,gridView, SudokuLevel.valueOf(String.valueOf(currentDifficulty)));
+        controller = new SudokuController(facade,gridView, SudokuLevel.valueOf(String.valueOf(currentDifficulty)));
         gridView.setController(controller);
+        if (autosave != null) {
+            autosave.setFailureHandler(e -> Platform.runLater(() -> controller.showAutosaveFailure(e)));
+        }
 
         Scene scene = new Scene(gridView.getNumberPane());
 
@@ -31,6 +68,19 @@ public class Main extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() throws IOException {
+        if (controller != null) {
+            controller.close();
+        }
+        if (autosave != null) {
+            autosave.close();
+        }
+        if (library != null) {
+            library.close();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
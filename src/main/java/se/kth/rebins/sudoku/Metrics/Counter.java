@@ -0,0 +1,45 @@
+package se.kth.rebins.sudoku.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events while its registry is enabled. Increments from many threads go to separate
+ * cells of a LongAdder, so counting does not contend.
+ */
+public class Counter {
+    private final MetricsRegistry registry;
+    private final LongAdder count = new LongAdder();
+
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        if (registry.isEnabled()) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Counts a number of events.
+     *
+     * @param events The number of events.
+     */
+    public void add(long events) {
+        if (registry.isEnabled()) {
+            count.add(events);
+        }
+    }
+
+    /**
+     * Returns the number of events counted so far.
+     *
+     * @return The count.
+     */
+    public long get() {
+        return count.sum();
+    }
+}
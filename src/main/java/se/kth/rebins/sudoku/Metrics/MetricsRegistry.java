@@ -0,0 +1,105 @@
+package se.kth.rebins.sudoku.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named timers and counters, looked up once and kept in static fields by the code they measure.
+ * Timers record latency histograms and, while a flight recording is running, a JFR
+ * OperationEvent per operation; counters are LongAdders.
+ *
+ * Collection into the registry is off unless the system property sudoku.metrics is "true" or
+ * setEnabled is called. While it is off and no flight recording asks for the events, a timed
+ * operation costs two flag reads and a counter one, and nothing is allocated.
+ */
+public class MetricsRegistry {
+    /**
+     * The system property that enables collection at startup.
+     */
+    public static final String ENABLED_PROPERTY = "sudoku.metrics";
+
+    private static final MetricsRegistry shared = new MetricsRegistry(Boolean.getBoolean(ENABLED_PROPERTY));
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private volatile boolean enabled;
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param enabled Whether collection starts enabled.
+     */
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the registry used by the Model and View classes.
+     *
+     * @return The shared registry.
+     */
+    public static MetricsRegistry getShared() {
+        return shared;
+    }
+
+    /**
+     * Checks whether timers and counters currently record into the registry.
+     *
+     * @return True if collection is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns collection on or off. What was recorded so far is kept.
+     *
+     * @param enabled Whether to collect.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the timer of a name, creating it on first use.
+     *
+     * @param name The name of the timed operation, such as "generate".
+     * @return The timer, the same instance for every call with that name.
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer(this, key));
+    }
+
+    /**
+     * Returns the counter of a name, creating it on first use.
+     *
+     * @param name The name of the counted event, such as "moves".
+     * @return The counter, the same instance for every call with that name.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter(this));
+    }
+
+    /**
+     * Describes everything recorded so far as a text table, timers first, sorted by name.
+     * Latencies are in microseconds.
+     *
+     * @return The snapshot, one line per timer and counter.
+     */
+    public String snapshot() {
+        StringBuilder text = new StringBuilder(64 * (timers.size() + counters.size() + 3));
+        text.append("Metrics ").append(enabled ? "enabled" : "disabled").append('\n');
+        text.append(String.format("%-16s %10s %10s %10s %10s %10s%n", "timer", "count", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            LatencyHistogram histogram = entry.getValue().getHistogram();
+            text.append(String.format("%-16s %10d %10d %10d %10d %10d%n", entry.getKey(), histogram.getCount(),
+                    histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99),
+                    histogram.getMax()));
+        }
+        text.append(String.format("%-16s %10s%n", "counter", "value"));
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            text.append(String.format("%-16s %10d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return text.toString();
+    }
+}
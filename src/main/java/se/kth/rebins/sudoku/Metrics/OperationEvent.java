@@ -0,0 +1,29 @@
+package se.kth.rebins.sudoku.Metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The flight recorder event committed by a Timer for every operation it measures. The event is
+ * committed when the operation has finished, so its own duration is zero and the latency is in
+ * the elapsed field. The event is enabled by default, so any flight recording receives it,
+ * for example one started with -XX:StartFlightRecording:filename=sudoku.jfr.
+ */
+@Name("se.kth.rebins.sudoku.Operation")
+@Label("Sudoku Operation")
+@Category("Sudoku")
+@Description("A timed operation of the Sudoku model or view")
+@StackTrace(false)
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
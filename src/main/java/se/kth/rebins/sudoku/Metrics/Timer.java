@@ -0,0 +1,78 @@
+package se.kth.rebins.sudoku.Metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Times one kind of operation. The measured code brackets the operation with start and stop:
+ * <pre>
+ *   long start = TIMER.start();
+ *   try {
+ *       ...
+ *   } finally {
+ *       TIMER.stop(start);
+ *   }
+ * </pre>
+ * The latency goes into the histogram of the timer if its registry is enabled, and into an
+ * OperationEvent if a flight recording has that event enabled. When neither wants it, start
+ * does not read the clock and stop returns at once.
+ */
+public class Timer {
+    private static final EventType EVENT_TYPE = EventType.getEventType(OperationEvent.class);
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(MetricsRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to stop, or zero if the operation is not measured.
+     */
+    public long start() {
+        return registry.isEnabled() || EVENT_TYPE.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing an operation and records its latency.
+     *
+     * @param start The value returned by start.
+     */
+    public void stop(long start) {
+        if (start == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (registry.isEnabled()) {
+            histogram.record(elapsed);
+        }
+        if (EVENT_TYPE.isEnabled()) {
+            OperationEvent event = new OperationEvent();
+            event.operation = name;
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the name of the timed operation.
+     *
+     * @return The name given to MetricsRegistry.timer.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the latencies recorded so far.
+     *
+     * @return The histogram, updated live.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,391 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Saves a game continuously as a snapshot plus a write-ahead log of the moves made since.
+ * The directory holds two files:
+ * <pre>
+ *   snapshot.sav  int epoch, followed by one SaveFormat record
+ *   moves.wal     4-byte records: a short holding cell index * 32 + new value,
+ *                 the low byte of the epoch and a check byte
+ * </pre>
+ * The log listens to a Facade. Every cell change is appended as a packed int to an in-memory
+ * buffer under a short lock, and a replaced board is encoded into a pending snapshot, so the
+ * thread making the move never touches the disk. A background writer swaps the buffer out,
+ * writes its records in one batch and forces them to the device. Once the log holds
+ * COMPACT_THRESHOLD records, the writer replays them onto a shadow board, writes that as a new
+ * snapshot with the next epoch and truncates the log.
+ *
+ * The snapshot is replaced atomically through a temporary file. Log records of an older epoch,
+ * left behind by a crash between replacing the snapshot and truncating the log, are ignored on
+ * recovery, as are a torn last record and anything after a record whose check byte is wrong.
+ * The epoch only advances once the new snapshot is in place.
+ *
+ * When a write fails, the failure handler is told once, and moves are no longer logged: they
+ * are kept on the shadow board, and the writer retries writing it as a new snapshot every
+ * RETRY_DELAY_MILLIS until a write succeeds.
+ */
+public final class AutosaveLog implements BoardListener, Closeable {
+    /**
+     * The number of log records after which the log is compacted into a new snapshot.
+     */
+    public static final int COMPACT_THRESHOLD = 4096;
+
+    /**
+     * The time between attempts to write a snapshot after a failed write.
+     */
+    public static final long RETRY_DELAY_MILLIS = 5000;
+
+    private static final String SNAPSHOT = "snapshot.sav";
+    private static final String SNAPSHOT_TEMP = "snapshot.tmp";
+    private static final String LOG = "moves.wal";
+    private static final int LOG_RECORD_SIZE = 4;
+    private static final int BUFFER_CAPACITY = 1024;
+    private static final int VALUE_BITS = 5;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int CHECK_SEED = 0xA5;
+
+    private final Facade facade;
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Thread writer;
+
+    // Guarded by lock, filled by the thread that changes the game.
+    private int[] pending = new int[BUFFER_CAPACITY];
+    private int pendingCount;
+    private final ByteBuffer pendingSnapshot = ByteBuffer.allocate(SaveFormat.MAX_RECORD_SIZE);
+    private boolean snapshotPending;
+    private boolean closed;
+
+    // Owned by the writer thread.
+    private int[] writing = new int[BUFFER_CAPACITY];
+    private final ByteBuffer snapshot = ByteBuffer.allocate(4 + SaveFormat.MAX_RECORD_SIZE);
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BUFFER_CAPACITY * LOG_RECORD_SIZE);
+    private final Board shadow = new Board();
+    private final FileChannel log;
+    private SudokuUtilities.SudokuLevel shadowLevel;
+    private int epoch;
+    private int logRecords;
+    private boolean snapshotDue;
+    private volatile IOException failure;
+    private volatile Consumer<IOException> failureHandler;
+
+    /**
+     * Opens the autosave directory, starts the writer and begins logging the game of a Facade.
+     * The current game is written as the first snapshot, so recover the previous game first.
+     *
+     * @param directory The directory for the snapshot and the log, created if needed.
+     * @param facade    The game to save.
+     * @throws IOException If the directory or the log cannot be opened.
+     */
+    public AutosaveLog(Path directory, Facade facade) throws IOException {
+        this.directory = directory;
+        this.facade = facade;
+        Files.createDirectories(directory);
+        epoch = readEpoch(directory.resolve(SNAPSHOT));
+        log = FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        facade.saveGame(pendingSnapshot, 0);
+        snapshotPending = true;
+
+        writer = new Thread(this::write, "autosave-writer");
+        writer.setDaemon(true);
+        writer.start();
+        facade.addListener(this);
+    }
+
+    /**
+     * Restores the game saved in an autosave directory: the snapshot with the logged moves replayed onto it.
+     *
+     * @param directory The autosave directory.
+     * @param facade    The game to load the saved game into.
+     * @return True if a game was restored, false if the directory holds no snapshot.
+     * @throws IOException If the snapshot cannot be read or is invalid.
+     */
+    public static boolean recover(Path directory, Facade facade) throws IOException {
+        Path snapshotFile = directory.resolve(SNAPSHOT);
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if (!SaveFormat.isRecord(snapshot, 4))
+            throw new IOException("Autosave snapshot is damaged");
+        int epoch = snapshot.getInt(0);
+        Board board = new Board();
+        SudokuUtilities.SudokuLevel level = SaveFormat.decode(snapshot, 4, board);
+
+        Path logFile = directory.resolve(LOG);
+        if (Files.exists(logFile)) {
+            byte[] records = Files.readAllBytes(logFile);
+            for (int at = 0; at + LOG_RECORD_SIZE <= records.length; at += LOG_RECORD_SIZE) {
+                int move = (records[at] & 0xFF) << 8 | records[at + 1] & 0xFF;
+                int index = move >>> VALUE_BITS;
+                int value = move & VALUE_MASK;
+                if (records[at + 2] != (byte) epoch || records[at + 3] != check(index, value, epoch)
+                        || index >= board.getCellCount() || value > board.getGridSize()) {
+                    break;
+                }
+                if (!board.isGiven(index)) {
+                    board.setValue(index, value);
+                }
+            }
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(SaveFormat.recordSize(board.getGridSize()));
+        SaveFormat.encode(board, level, record, 0);
+        facade.loadGame(record, 0);
+        return true;
+    }
+
+    @Override
+    public void cellChanged(int row, int col, int oldValue, int newValue) {
+        lock.lock();
+        try {
+            if (pendingCount == pending.length) {
+                // The writer is far behind; a snapshot of the current game replaces the queued moves.
+                queueSnapshot();
+            } else {
+                pending[pendingCount++] = (row * facade.getGridSize() + col) << VALUE_BITS | newValue;
+            }
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void boardReplaced() {
+        lock.lock();
+        try {
+            queueSnapshot();
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the error of the last write of the writer thread.
+     *
+     * @return The error, or null if the last write succeeded.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Sets the handler told when writing starts to fail, for example to warn the player that the
+     * game is no longer being saved. It is called on the writer thread, once per run of failed
+     * writes.
+     *
+     * @param handler The handler, or null for none.
+     */
+    public void setFailureHandler(Consumer<IOException> handler) {
+        failureHandler = handler;
+    }
+
+    /**
+     * Stops logging, writes what is still queued and closes the log.
+     *
+     * @throws IOException If the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        facade.removeListener(this);
+        lock.lock();
+        try {
+            closed = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    /**
+     * Encodes the current game as the next snapshot, superseding the queued moves.
+     * The caller must hold the lock.
+     */
+    private void queueSnapshot() {
+        facade.saveGame(pendingSnapshot, 0);
+        snapshotPending = true;
+        pendingCount = 0;
+    }
+
+    private void write() {
+        while (true) {
+            boolean takeSnapshot;
+            boolean closing;
+            int count;
+            lock.lock();
+            try {
+                while (!closed && pendingCount == 0 && !snapshotPending) {
+                    if (!snapshotDue) {
+                        ready.awaitUninterruptibly();
+                    } else if (!awaitRetry()) {
+                        break;
+                    }
+                }
+                if (pendingCount == 0 && !snapshotPending && !snapshotDue) {
+                    return;
+                }
+                closing = closed;
+                takeSnapshot = snapshotPending;
+                if (takeSnapshot) {
+                    snapshot.clear().put(4, pendingSnapshot, 0, SaveFormat.MAX_RECORD_SIZE);
+                    snapshotPending = false;
+                }
+                int[] swap = writing;
+                writing = pending;
+                pending = swap;
+                count = pendingCount;
+                pendingCount = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (takeSnapshot) {
+                    shadowLevel = SaveFormat.decode(snapshot, 4, shadow);
+                    snapshotDue = true;
+                }
+                if (snapshotDue) {
+                    applyToShadow(count);
+                    writeSnapshot();
+                } else if (count > 0) {
+                    append(count);
+                    if (logRecords >= COMPACT_THRESHOLD) {
+                        writeSnapshot();
+                    }
+                }
+                failure = null;
+            } catch (IOException e) {
+                // Moves can no longer be logged against the snapshot on disk; the next snapshot saves them.
+                snapshotDue = true;
+                if (failure == null) {
+                    failure = e;
+                    Consumer<IOException> handler = failureHandler;
+                    if (handler != null) {
+                        handler.accept(e);
+                    }
+                } else {
+                    failure = e;
+                }
+                if (closing) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for new work or for the time to retry a failed write. The caller must hold the lock.
+     *
+     * @return True if woken by new work, false if it is time to retry.
+     */
+    private boolean awaitRetry() {
+        try {
+            return ready.await(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the shadow board as a new snapshot with the next epoch and empties the log. The epoch
+     * advances only once the snapshot has replaced the old one, so records logged after a failed
+     * attempt still match the snapshot on disk.
+     */
+    private void writeSnapshot() throws IOException {
+        snapshot.clear();
+        SaveFormat.encode(shadow, shadowLevel, snapshot, 4);
+        int next = epoch + 1;
+        snapshot.putInt(0, next);
+
+        Path temp = directory.resolve(SNAPSHOT_TEMP);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            snapshot.clear().limit(4 + SaveFormat.recordSize(shadow.getGridSize()));
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        epoch = next;
+        snapshotDue = false;
+
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        logRecords = 0;
+    }
+
+    /**
+     * Appends the first count moves of the writing buffer to the log in one write and forces them to the device.
+     */
+    private void append(int count) throws IOException {
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            int index = writing[i] >>> VALUE_BITS;
+            int value = writing[i] & VALUE_MASK;
+            if (!shadow.isGiven(index)) {
+                shadow.setValue(index, value);
+            }
+            batch.putShort((short) writing[i]).put((byte) epoch).put(check(index, value, epoch));
+        }
+        batch.flip();
+        while (batch.hasRemaining()) {
+            log.write(batch);
+        }
+        log.force(false);
+        logRecords += count;
+    }
+
+    /**
+     * Replays the first count moves of the writing buffer onto the shadow board without logging them.
+     */
+    private void applyToShadow(int count) {
+        for (int i = 0; i < count; i++) {
+            int index = writing[i] >>> VALUE_BITS;
+            if (!shadow.isGiven(index)) {
+                shadow.setValue(index, writing[i] & VALUE_MASK);
+            }
+        }
+    }
+
+    private static byte check(int index, int value, int epoch) {
+        return (byte) (index * 31 ^ value * 7 ^ epoch ^ CHECK_SEED);
+    }
+
+    private static int readEpoch(Path snapshotFile) throws IOException {
+        if (!Files.exists(snapshotFile) || Files.size(snapshotFile) < 4) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            channel.read(buffer, 0);
+            return buffer.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * A Sudoku board stored in packed primitive arrays instead of one object per cell.
+ * Cells are addressed by their row-major index, row * N + col on a board of side N.
+ * The user values and the solution take one byte per cell, and which cells are given
+ * is kept in a bitset of longs. Loading a new game of the same size overwrites the arrays
+ * in place; loading a game of another size reallocates them.
+ *
+ * Every write also updates running counts of filled, correct and wrong cells and the digits
+ * present in every row, column and box, so questions about the whole board are answered
+ * without scanning it. The empty cells are kept in a dense index list with a reverse position
+ * table, so a random empty cell can be picked in constant time.
+ */
+public final class Board {
+    private SudokuGeometry geometry;
+    private int gridSize;
+    private int cellCount;
+
+    private byte[] values;
+    private byte[] solution;
+    private long[] givens;
+
+    private byte[] rowCounts;
+    private byte[] colCounts;
+    private byte[] boxCounts;
+    private int[] rowMasks;
+    private int[] colMasks;
+    private int[] boxMasks;
+    private int filledCount;
+    private int correctCount;
+    private int wrongCount;
+
+    private int[] emptyCells;
+    private int[] emptyPositions;
+    private int emptyCount;
+
+    /**
+     * Constructs an empty standard 9x9 board.
+     */
+    public Board() {
+        this(GRID_SIZE);
+    }
+
+    /**
+     * Constructs an empty board.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public Board(int gridSize) {
+        resize(gridSize);
+        clear();
+    }
+
+    /**
+     * Returns the side of the board, which is also the largest digit.
+     *
+     * @return The number of rows and columns.
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Returns the side of a box, which is also the number of boxes along a side of the board.
+     *
+     * @return The box size.
+     */
+    public int getSectionSize() {
+        return geometry.sectionSize;
+    }
+
+    /**
+     * Returns the number of cells on the board.
+     *
+     * @return The number of cells.
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Returns the index of a cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The row-major index of the cell.
+     * @throws IndexOutOfBoundsException if the row or the column is not on the board.
+     */
+    public int index(int row, int col) {
+        return Objects.checkIndex(row, gridSize) * gridSize + Objects.checkIndex(col, gridSize);
+    }
+
+    /**
+     * Checks that a value can be stored in a cell.
+     *
+     * @param value The value, zero for an empty cell.
+     * @throws IllegalArgumentException if the value is not zero or a digit of the board.
+     */
+    public void checkValue(int value) {
+        if (value < 0 || value > gridSize) {
+            throw new IllegalArgumentException("Value " + value + " is invalid");
+        }
+    }
+
+    /**
+     * Loads a new game, given cells are the ones with a non-zero initial value.
+     *
+     * @param matrix A matrix in the layout of SudokuUtilities.convertStringToIntMatrix, of any supported size.
+     * @throws IllegalArgumentException if the size of the matrix is not supported.
+     */
+    public void load(int[][][] matrix) {
+        resize(matrix.length);
+        clear();
+        for (int row = 0; row < gridSize; row++) {
+            for (int col = 0; col < gridSize; col++) {
+                int initialValue = matrix[row][col][0];
+                loadCell(index(row, col), initialValue, matrix[row][col][1], initialValue != 0);
+            }
+        }
+    }
+
+    /**
+     * Changes the size of the board. The board must be cleared before it is used again.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     */
+    /*package private*/
+    void resize(int gridSize) {
+        if (geometry != null && gridSize == this.gridSize) {
+            return;
+        }
+        geometry = SudokuGeometry.forGridSize(gridSize);
+        this.gridSize = gridSize;
+        cellCount = geometry.cellCount;
+        values = new byte[cellCount];
+        solution = new byte[cellCount];
+        givens = new long[(cellCount + 63) / 64];
+        rowCounts = new byte[gridSize * (gridSize + 1)];
+        colCounts = new byte[gridSize * (gridSize + 1)];
+        boxCounts = new byte[gridSize * (gridSize + 1)];
+        rowMasks = new int[gridSize];
+        colMasks = new int[gridSize];
+        boxMasks = new int[gridSize];
+        emptyCells = new int[cellCount];
+        emptyPositions = new int[cellCount];
+    }
+
+    /**
+     * Empties the board, including solution and givens, before it is loaded cell by cell.
+     */
+    /*package private*/
+    void clear() {
+        Arrays.fill(givens, 0);
+        Arrays.fill(values, (byte) 0);
+        Arrays.fill(solution, (byte) 0);
+        resetCounts();
+        for (int i = 0; i < cellCount; i++) {
+            emptyCells[i] = i;
+            emptyPositions[i] = i;
+        }
+        emptyCount = cellCount;
+    }
+
+    /**
+     * Loads one cell of a board that was just cleared.
+     *
+     * @param index    The index of the cell.
+     * @param value    The current value of the cell.
+     * @param solution The correct value of the cell.
+     * @param given    True if the cell is given and cannot be edited.
+     */
+    /*package private*/
+    void loadCell(int index, int value, int solution, boolean given) {
+        this.solution[index] = (byte) solution;
+        if (given) {
+            givens[index >>> 6] |= 1L << index;
+        }
+        setValue(index, value);
+    }
+
+    /**
+     * Makes this board a copy of another board, taking on its size.
+     *
+     * @param other The board to copy.
+     */
+    public void copyFrom(Board other) {
+        resize(other.gridSize);
+        System.arraycopy(other.values, 0, values, 0, cellCount);
+        System.arraycopy(other.solution, 0, solution, 0, cellCount);
+        System.arraycopy(other.givens, 0, givens, 0, givens.length);
+        System.arraycopy(other.rowCounts, 0, rowCounts, 0, rowCounts.length);
+        System.arraycopy(other.colCounts, 0, colCounts, 0, colCounts.length);
+        System.arraycopy(other.boxCounts, 0, boxCounts, 0, boxCounts.length);
+        System.arraycopy(other.rowMasks, 0, rowMasks, 0, gridSize);
+        System.arraycopy(other.colMasks, 0, colMasks, 0, gridSize);
+        System.arraycopy(other.boxMasks, 0, boxMasks, 0, gridSize);
+        filledCount = other.filledCount;
+        correctCount = other.correctCount;
+        wrongCount = other.wrongCount;
+        System.arraycopy(other.emptyCells, 0, emptyCells, 0, cellCount);
+        System.arraycopy(other.emptyPositions, 0, emptyPositions, 0, cellCount);
+        emptyCount = other.emptyCount;
+    }
+
+    /**
+     * Returns the current value of a cell, given or entered by the user.
+     *
+     * @param index The index of the cell.
+     * @return The value, zero for an empty cell.
+     */
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets the current value of a cell, regardless of whether it is given.
+     *
+     * @param index The index of the cell.
+     * @param value The value, zero for an empty cell.
+     * @throws IllegalArgumentException if the value is not zero or a digit of the board.
+     */
+    public void setValue(int index, int value) {
+        checkValue(value);
+        int oldValue = values[index];
+        if (oldValue == value) {
+            return;
+        }
+        if (oldValue != 0) {
+            count(index, oldValue, -1);
+        } else {
+            removeEmpty(index);
+        }
+        values[index] = (byte) value;
+        if (value != 0) {
+            count(index, value, 1);
+        } else {
+            addEmpty(index);
+        }
+    }
+
+    /**
+     * Returns the correct value of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The value of the cell in the solution.
+     */
+    public int getSolution(int index) {
+        return solution[index];
+    }
+
+    /**
+     * Determines if a cell was given from the start and thus cannot be edited.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is given, otherwise false.
+     */
+    public boolean isGiven(int index) {
+        return (givens[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the number of cells holding a value.
+     *
+     * @return The number of non-empty cells.
+     */
+    public int getFilledCount() {
+        return filledCount;
+    }
+
+    /**
+     * Returns the number of cells holding their correct value.
+     *
+     * @return The number of correct cells.
+     */
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    /**
+     * Returns the number of non-empty cells holding a value other than their correct value.
+     *
+     * @return The number of wrong cells.
+     */
+    public int getWrongCount() {
+        return wrongCount;
+    }
+
+    /**
+     * Returns the number of empty cells.
+     *
+     * @return The number of cells with value zero.
+     */
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Returns an empty cell from the empty cell index. The order of the index is unspecified
+     * and changes as cells are filled and cleared.
+     *
+     * @param position A position in the index, from 0 up to but not including getEmptyCount().
+     * @return The index of the empty cell.
+     */
+    public int getEmptyCell(int position) {
+        return emptyCells[position];
+    }
+
+    /**
+     * Returns the digits present in a row as a bitmask, bit (d - 1) representing digit d.
+     *
+     * @param row The row index.
+     * @return The digit mask of the row.
+     */
+    public int getRowMask(int row) {
+        return rowMasks[row];
+    }
+
+    /**
+     * Returns the digits present in a column as a bitmask, bit (d - 1) representing digit d.
+     *
+     * @param col The column index.
+     * @return The digit mask of the column.
+     */
+    public int getColMask(int col) {
+        return colMasks[col];
+    }
+
+    /**
+     * Returns the digits present in a box as a bitmask, bit (d - 1) representing digit d.
+     *
+     * @param box The box index, counted row-major from the top left box.
+     * @return The digit mask of the box.
+     */
+    public int getBoxMask(int box) {
+        return boxMasks[box];
+    }
+
+    /**
+     * Returns the index of the box containing a cell.
+     *
+     * @param index The index of the cell.
+     * @return The box index, counted row-major from the top left box.
+     */
+    public int boxOf(int index) {
+        return geometry.box[index];
+    }
+
+    /*package private*/
+    SudokuGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Takes an immutable copy of the board. The values are always copied; the solution and the
+     * givens are shared with an earlier snapshot of the same game, if one is given.
+     *
+     * @param version     The version of the game.
+     * @param gameVersion The version at which the board was loaded.
+     * @param level       The difficulty level of the game.
+     * @param sameGame    An earlier snapshot of the same board, or null.
+     * @return The snapshot.
+     */
+    /*package private*/
+    BoardSnapshot snapshot(long version, long gameVersion, SudokuUtilities.SudokuLevel level, BoardSnapshot sameGame) {
+        byte[] solutionCopy;
+        long[] givensCopy;
+        if (sameGame != null && sameGame.getGeometry() == geometry) {
+            solutionCopy = sameGame.getSharedSolution();
+            givensCopy = sameGame.getSharedGivens();
+        } else {
+            solutionCopy = Arrays.copyOf(solution, cellCount);
+            givensCopy = givens.clone();
+        }
+        return new BoardSnapshot(version, gameVersion, geometry, level, Arrays.copyOf(values, cellCount),
+                solutionCopy, givensCopy);
+    }
+
+    /**
+     * Determines if the value of a cell also appears elsewhere in its row, column or box.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is non-empty and its value is repeated in one of its units.
+     */
+    public boolean hasConflict(int index) {
+        int value = values[index];
+        if (value == 0) {
+            return false;
+        }
+        return rowCounts[geometry.row[index] * (gridSize + 1) + value] > 1
+                || colCounts[geometry.col[index] * (gridSize + 1) + value] > 1
+                || boxCounts[geometry.box[index] * (gridSize + 1) + value] > 1;
+    }
+
+    /**
+     * Creates a matrix of the board in the layout of SudokuUtilities.convertStringToIntMatrix,
+     * with the current values in [row][col][0] and the solution in [row][col][1].
+     *
+     * @return A 3-dimensional int matrix.
+     */
+    public int[][][] toMatrix() {
+        int[][][] matrix = new int[gridSize][gridSize][2];
+        for (int row = 0; row < gridSize; row++) {
+            for (int col = 0; col < gridSize; col++) {
+                matrix[row][col][0] = values[index(row, col)];
+                matrix[row][col][1] = solution[index(row, col)];
+            }
+        }
+        return matrix;
+    }
+
+    private void addEmpty(int index) {
+        emptyPositions[index] = emptyCount;
+        emptyCells[emptyCount++] = index;
+    }
+
+    /**
+     * Removes a cell from the empty cell index by moving the last entry into its place.
+     */
+    private void removeEmpty(int index) {
+        int position = emptyPositions[index];
+        int last = emptyCells[--emptyCount];
+        emptyCells[position] = last;
+        emptyPositions[last] = position;
+    }
+
+    private void resetCounts() {
+        Arrays.fill(rowCounts, (byte) 0);
+        Arrays.fill(colCounts, (byte) 0);
+        Arrays.fill(boxCounts, (byte) 0);
+        Arrays.fill(rowMasks, 0);
+        Arrays.fill(colMasks, 0);
+        Arrays.fill(boxMasks, 0);
+        filledCount = 0;
+        correctCount = 0;
+        wrongCount = 0;
+    }
+
+    /**
+     * Adds (delta 1) or removes (delta -1) a non-zero value of a cell from the running counts.
+     */
+    private void count(int index, int value, int delta) {
+        int row = geometry.row[index];
+        int col = geometry.col[index];
+        int box = geometry.box[index];
+        int bit = 1 << (value - 1);
+
+        filledCount += delta;
+        if (value == solution[index]) {
+            correctCount += delta;
+        } else {
+            wrongCount += delta;
+        }
+
+        int slot = row * (gridSize + 1) + value;
+        rowCounts[slot] = (byte) (rowCounts[slot] + delta);
+        rowMasks[row] = rowCounts[slot] > 0 ? rowMasks[row] | bit : rowMasks[row] & ~bit;
+        slot = col * (gridSize + 1) + value;
+        colCounts[slot] = (byte) (colCounts[slot] + delta);
+        colMasks[col] = colCounts[slot] > 0 ? colMasks[col] | bit : colMasks[col] & ~bit;
+        slot = box * (gridSize + 1) + value;
+        boxCounts[slot] = (byte) (boxCounts[slot] + delta);
+        boxMasks[box] = boxCounts[slot] > 0 ? boxMasks[box] | bit : boxMasks[box] & ~bit;
+    }
+}
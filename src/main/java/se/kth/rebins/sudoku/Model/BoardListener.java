@@ -0,0 +1,51 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * Receives the changes of a game held by a Facade. Callbacks take primitive arguments only,
+ * so notifying a listener allocates nothing. They are called on the thread that changed the
+ * game, directly after the change.
+ *
+ * All methods have empty default implementations, so a listener only overrides the events it needs.
+ */
+public interface BoardListener {
+
+    /**
+     * Called when the value of a cell has changed.
+     *
+     * @param row      The row index of the cell.
+     * @param col      The column index of the cell.
+     * @param oldValue The previous value, zero for an empty cell.
+     * @param newValue The new value, zero for an empty cell.
+     */
+    default void cellChanged(int row, int col, int oldValue, int newValue) {
+    }
+
+    /**
+     * Called when the pencil marks of a cell have changed, after the cellChanged call of the
+     * move that caused it. A replaced board reports its marks through boardReplaced only.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param marks The new marks, bit (d - 1) representing digit d.
+     */
+    default void marksChanged(int row, int col, int marks) {
+    }
+
+    /**
+     * Called when the whole board has been replaced, by a new game, a reset or a loaded game.
+     */
+    default void boardReplaced() {
+    }
+
+    /**
+     * Called when a move completes the board and every cell holds its correct value.
+     */
+    default void puzzleSolved() {
+    }
+
+    /**
+     * Called when a move completes the board but some cells hold a wrong value.
+     */
+    default void filledIncorrectly() {
+    }
+}
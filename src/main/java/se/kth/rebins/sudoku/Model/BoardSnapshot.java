@@ -0,0 +1,181 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * An immutable copy of a board at one version of a game, published by Facade.getSnapshot.
+ * A snapshot may be read from any thread without locks, so background work such as hint
+ * search or solving analyzes a snapshot instead of the board the player keeps changing.
+ *
+ * The values are packed into a byte array copied from the board. The solution and the givens
+ * only change when the board is replaced, so snapshots of the same game share them.
+ */
+public final class BoardSnapshot {
+    private final long version;
+    private final long gameVersion;
+    private final SudokuGeometry geometry;
+    private final SudokuUtilities.SudokuLevel level;
+    private final byte[] values;
+    private final byte[] solution;
+    private final long[] givens;
+
+    /*package private*/
+    BoardSnapshot(long version, long gameVersion, SudokuGeometry geometry, SudokuUtilities.SudokuLevel level,
+                  byte[] values, byte[] solution, long[] givens) {
+        this.version = version;
+        this.gameVersion = gameVersion;
+        this.geometry = geometry;
+        this.level = level;
+        this.values = values;
+        this.solution = solution;
+        this.givens = givens;
+    }
+
+    /**
+     * Returns the version of the game this snapshot was taken at. Every move and every replaced
+     * board gives the game a new, higher version.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the version at which the board of this snapshot was loaded. Snapshots with the same
+     * game version are taken from the same puzzle.
+     *
+     * @return The version of the last new, loaded or reset game.
+     */
+    public long getGameVersion() {
+        return gameVersion;
+    }
+
+    /**
+     * Returns the side of the board.
+     *
+     * @return The grid size: 4, 9, 16 or 25.
+     */
+    public int getGridSize() {
+        return geometry.gridSize;
+    }
+
+    /**
+     * Returns the side of one box of the board.
+     *
+     * @return The section size.
+     */
+    public int getSectionSize() {
+        return geometry.sectionSize;
+    }
+
+    /**
+     * Returns the number of cells of the board.
+     *
+     * @return The grid size squared.
+     */
+    public int getCellCount() {
+        return geometry.cellCount;
+    }
+
+    /**
+     * Returns the difficulty level of the game.
+     *
+     * @return The level.
+     */
+    public SudokuUtilities.SudokuLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the value of a cell, given or entered by the user.
+     *
+     * @param index The index of the cell, row * gridSize + col.
+     * @return The value, or 0 if the cell is empty.
+     */
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the value of a cell, given or entered by the user.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The value, or 0 if the cell is empty.
+     */
+    public int getValue(int row, int col) {
+        return values[row * geometry.gridSize + col];
+    }
+
+    /**
+     * Returns the correct value of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The value of the cell in the solution.
+     */
+    public int getSolution(int index) {
+        return solution[index];
+    }
+
+    /**
+     * Checks whether a cell is given by the puzzle.
+     *
+     * @param index The index of the cell.
+     * @return True if the cell is given and cannot be edited.
+     */
+    public boolean isGiven(int index) {
+        return (givens[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Copies the values of the board into an array.
+     *
+     * @param grid An array of at least getCellCount() values that receives the board in row-major
+     *             order, zero representing an empty cell.
+     */
+    public void copyValues(int[] grid) {
+        for (int i = 0; i < geometry.cellCount; i++) {
+            grid[i] = values[i];
+        }
+    }
+
+    /**
+     * Returns the values of the board.
+     *
+     * @return A new array of getCellCount() values in row-major order, zero representing an empty cell.
+     */
+    public int[] toArray() {
+        int[] grid = new int[geometry.cellCount];
+        copyValues(grid);
+        return grid;
+    }
+
+    /**
+     * Counts the filled cells whose value differs from the solution.
+     *
+     * @return The number of wrong values.
+     */
+    public int getWrongCount() {
+        int wrong = 0;
+        for (int i = 0; i < geometry.cellCount; i++) {
+            if (values[i] != 0 && values[i] != solution[i]) {
+                wrong++;
+            }
+        }
+        return wrong;
+    }
+
+    /*package private*/
+    SudokuGeometry getGeometry() {
+        return geometry;
+    }
+
+    /*package private*/
+    byte[] getSharedSolution() {
+        return solution;
+    }
+
+    /*package private*/
+    long[] getSharedGivens() {
+        return givens;
+    }
+}
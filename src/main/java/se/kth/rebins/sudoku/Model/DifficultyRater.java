@@ -0,0 +1,152 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static se.kth.rebins.sudoku.Model.SudokuGeometry.*;
+
+/**
+ * Rates how hard a puzzle is for a human by solving it with the HintEngine.
+ * Every placement adds the weight of the hardest technique needed to find it to the score.
+ * When the techniques get stuck, the empty cell with the fewest candidates is filled from
+ * the solution and counted as trial and error, after which logic continues.
+ *
+ * The scores are calibrated for, and the rater only handles, standard 9x9 puzzles.
+ * A rater reuses its engine and solver between calls and is not thread safe. The batch API
+ * grades many puzzles on a fork-join pool with one rater per worker thread.
+ */
+public class DifficultyRater {
+    /**
+     * Puzzles scoring at most this are rated EASY by levelOf. The thresholds were calibrated with
+     * rateAll on generated puzzles: at the EASY clue target nine in ten score at most 50, at the
+     * MEDIUM target nine in ten score at most 72, and half of the HARD puzzles score above that.
+     */
+    public static final int EASY_MAX_SCORE = 50;
+
+    /**
+     * Puzzles scoring at most this, and above EASY_MAX_SCORE, are rated MEDIUM by levelOf.
+     */
+    public static final int MEDIUM_MAX_SCORE = 72;
+
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+    private static final ThreadLocal<DifficultyRater> raters = ThreadLocal.withInitial(DifficultyRater::new);
+
+    private final HintEngine engine = new HintEngine();
+    private final SudokuSolver solver = new SudokuSolver();
+    private final int[] solution = new int[CELL_COUNT];
+
+    /**
+     * Rates a puzzle.
+     *
+     * @param puzzle The puzzle as 81 values in row-major order, zero representing an empty cell.
+     * @return The rating, or null if the puzzle does not have exactly one solution.
+     */
+    public Rating rate(int[] puzzle) {
+        System.arraycopy(puzzle, 0, solution, 0, CELL_COUNT);
+        if (!solver.solveUnique(solution)) {
+            return null;
+        }
+
+        engine.load(puzzle);
+        int score = 0;
+        int guesses = 0;
+        Technique hardest = Technique.NAKED_SINGLE;
+        while (engine.getEmptyCount() > 0) {
+            Hint hint = engine.nextStep();
+            Technique technique;
+            if (hint != null) {
+                technique = hint.getTechnique();
+            } else {
+                int cell = guessCell();
+                engine.placeValue(cell, solution[cell]);
+                technique = Technique.TRIAL_AND_ERROR;
+                guesses++;
+            }
+            score += technique.getWeight();
+            if (technique.compareTo(hardest) > 0) {
+                hardest = technique;
+            }
+        }
+        return new Rating(score, hardest, guesses);
+    }
+
+    /**
+     * Maps a rating onto the difficulty levels of the game, using EASY_MAX_SCORE and MEDIUM_MAX_SCORE.
+     *
+     * @param rating The rating of a puzzle.
+     * @return The level the puzzle belongs to.
+     */
+    public static SudokuUtilities.SudokuLevel levelOf(Rating rating) {
+        if (rating.getScore() <= EASY_MAX_SCORE && rating.getGuesses() == 0) {
+            return SudokuUtilities.SudokuLevel.EASY;
+        }
+        if (rating.getScore() <= MEDIUM_MAX_SCORE && rating.getGuesses() == 0) {
+            return SudokuUtilities.SudokuLevel.MEDIUM;
+        }
+        return SudokuUtilities.SudokuLevel.HARD;
+    }
+
+    /**
+     * Rates many puzzles in parallel.
+     *
+     * @param puzzles The puzzles, each as 81 values in row-major order.
+     * @param pool    The pool to rate them on.
+     * @return The ratings in the same order as the puzzles, null for puzzles without a unique solution.
+     */
+    public static Rating[] rateAll(int[][] puzzles, ForkJoinPool pool) {
+        Rating[] ratings = new Rating[puzzles.length];
+        pool.invoke(new RateTask(puzzles, ratings, 0, puzzles.length));
+        return ratings;
+    }
+
+    /**
+     * Picks the empty cell with the fewest candidates, the cheapest one to guess.
+     *
+     * @return The index of the cell.
+     */
+    private int guessCell() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (engine.getValue(i) == 0) {
+                int count = Integer.bitCount(engine.getCandidates(i));
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static class RateTask extends RecursiveAction {
+        @java.io.Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] puzzles;
+        private final transient Rating[] ratings;
+        private final int from;
+        private final int to;
+
+        RateTask(int[][] puzzles, Rating[] ratings, int from, int to) {
+            this.puzzles = puzzles;
+            this.ratings = ratings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                DifficultyRater rater = raters.get();
+                for (int i = from; i < to; i++) {
+                    ratings[i] = rater.rate(puzzles[i]);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RateTask(puzzles, ratings, from, middle),
+                        new RateTask(puzzles, ratings, middle, to));
+            }
+        }
+    }
+}
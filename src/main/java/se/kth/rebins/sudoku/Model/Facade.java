@@ -1,52 +1,139 @@
 package se.kth.rebins.sudoku.Model;
 
-import javafx.application.Platform;
-import javafx.scene.control.Alert;
+import se.kth.rebins.sudoku.Metrics.Counter;
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
+import java.util.Arrays;
 import java.util.Random;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.io.IOException;
 
 public class Facade {
-    private final Cell[][] board;
+    private static final Timer HINT_TIMER = MetricsRegistry.getShared().timer("hint");
+    private static final Timer CHECK_TIMER = MetricsRegistry.getShared().timer("check");
+    private static final Counter MOVES = MetricsRegistry.getShared().counter("moves");
+    private static final ThreadLocal<HintEngine> hintEngines = ThreadLocal.withInitial(HintEngine::new);
+
+    private final Board board = new Board();
+    private final PuzzleSource source;
+    private final Random random = new Random();
+    private final MoveJournal journal = new MoveJournal();
+    private final PencilMarks marks = new PencilMarks();
+    private HintEngine hintEngine;
     private SudokuUtilities.SudokuLevel currentDifficulty;
+    // Copied on add and remove, which may happen on any thread, so events loop over it without allocating.
+    private volatile BoardListener[] listeners = new BoardListener[0];
+    private Completion completion = Completion.NONE;
+    // Written only by the thread that plays the game, read by any thread.
+    private volatile long version;
+    private long gameVersion;
+    private BoardSnapshot snapshot;
 
     /**
      * Constructs a Facade and initializes a new Sudoku game board with a specified difficulty level.
+     * Puzzles are taken from the shared PuzzlePool.
      *
      * @param level The difficulty level of the Sudoku game as defined in SudokuUtilities.SudokuLevel.
      */
     public Facade(SudokuUtilities.SudokuLevel level) {
-        int[][][] matrix = SudokuUtilities.generateSudokuMatrix(level);
-        board = new Cell[SudokuUtilities.GRID_SIZE][SudokuUtilities.GRID_SIZE];
+        this(level, PuzzlePool.getShared());
+    }
+
+    /**
+     * Constructs a Facade that takes its puzzles from a specified source, such as a PuzzlePool
+     * of pre-generated puzzles or a PuzzleLibrary.
+     *
+     * @param level  The difficulty level of the Sudoku game as defined in SudokuUtilities.SudokuLevel.
+     * @param source The source of new puzzles.
+     */
+    public Facade(SudokuUtilities.SudokuLevel level, PuzzleSource source) {
+        this.source = source;
+        int[][][] matrix = source.take(level);
         currentDifficulty = level;
         initializeBoard(matrix);
+        marks.rebuild(board);
+    }
+
+    /**
+     * Registers a listener for the changes of the game.
+     *
+     * @param listener The listener to add.
+     */
+    public synchronized void addListener(BoardListener listener) {
+        BoardListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
     }
 
+    /**
+     * Removes a listener that was added with addListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public synchronized void removeListener(BoardListener listener) {
+        BoardListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                BoardListener[] updated = new BoardListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                listeners = updated;
+                return;
+            }
+        }
+    }
 
     /**
-     * Starts a new game with a specified difficulty level.
+     * Starts a new game with a specified difficulty level, on a board of the current size.
      *
      * @param level The difficulty level for the new game.
      */
     public void newGame(SudokuUtilities.SudokuLevel level) {
-        int[][][] matrix = SudokuUtilities.generateSudokuMatrix(level);
+        newGame(level, board.getGridSize());
+    }
+
+    /**
+     * Starts a new game with a specified difficulty level and board size.
+     *
+     * @param level    The difficulty level for the new game.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public void newGame(SudokuUtilities.SudokuLevel level, int gridSize) {
+        int[][][] matrix = source.take(level, gridSize);
+        currentDifficulty = level;
         initializeBoard(matrix);
+        fireBoardReplaced();
+    }
+
+    /**
+     * Returns the side of the board, which is also the largest digit.
+     *
+     * @return The number of rows and columns.
+     */
+    public int getGridSize() {
+        return board.getGridSize();
+    }
+
+    /**
+     * Returns the side of a box, which is also the number of boxes along a side of the board.
+     *
+     * @return The box size.
+     */
+    public int getSectionSize() {
+        return board.getSectionSize();
     }
 
     /**
      * Initializes the board with a given Sudoku matrix, setting up each cell's state.
+     * The board arrays are reused, nothing is allocated per cell.
      *
      * @param matrix The matrix used to initialize the game board.
      */
     private void initializeBoard(int[][][] matrix) {
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                int initialValue = matrix[row][col][0];
-                int correctValue = matrix[row][col][1];
-                boolean visible = (initialValue != 0);
-                board[row][col] = new Cell(correctValue, initialValue, visible);
-            }
-        }
+        board.load(matrix);
     }
 
 
@@ -59,7 +146,7 @@ public class Facade {
      * @return The user value of the cell.
      */
     public int getUserValue(int row, int col) {
-        return board[row][col].getUserValue();
+        return board.getValue(board.index(row, col));
     }
 
     /**
@@ -68,11 +155,159 @@ public class Facade {
      * @param row The row index of the cell.
      * @param col The column index of the cell.
      * @param value The value to set.
+     * @throws IndexOutOfBoundsException if the row or the column is not on the board.
+     * @throws IllegalArgumentException if the value is not zero or a digit of the board.
      */
     public void setUserValue(int row, int col, int value) {
-        if (board[row][col].isEditable()) {
-            board[row][col].setUserValue(value);
-            checkIfPuzzleSolved();
+        int index = board.index(row, col);
+        board.checkValue(value);
+        if (!board.isGiven(index)) {
+            int oldValue = board.getValue(index);
+            if (oldValue != value) {
+                journal.record(index, oldValue, value);
+                changeCell(index, oldValue, value);
+                checkIfPuzzleSolved();
+            }
+        }
+    }
+
+    /**
+     * Empties every cell the user has filled in, as a single move that one undo restores.
+     */
+    public void clearPlacedCells() {
+        journal.beginBatch();
+        for (int index = 0; index < board.getCellCount(); index++) {
+            int oldValue = board.getValue(index);
+            if (oldValue != 0 && !board.isGiven(index)) {
+                journal.record(index, oldValue, 0);
+                changeCell(index, oldValue, 0);
+            }
+        }
+        journal.endBatch();
+    }
+
+    /**
+     * Takes back the last move, or the last clearing of all placed cells.
+     *
+     * @return True if a move was undone, false if there was nothing to undo.
+     */
+    public boolean undo() {
+        if (!journal.canUndo()) {
+            return false;
+        }
+        int move;
+        do {
+            move = journal.undo();
+            changeCell(MoveJournal.indexOf(move), MoveJournal.newValueOf(move), MoveJournal.oldValueOf(move));
+        } while (MoveJournal.isLinked(move));
+        checkIfPuzzleSolved();
+        return true;
+    }
+
+    /**
+     * Makes the last undone move again.
+     *
+     * @return True if a move was redone, false if there was nothing to redo.
+     */
+    public boolean redo() {
+        if (!journal.canRedo()) {
+            return false;
+        }
+        do {
+            int move = journal.redo();
+            changeCell(MoveJournal.indexOf(move), MoveJournal.oldValueOf(move), MoveJournal.newValueOf(move));
+        } while (journal.isNextLinked());
+        checkIfPuzzleSolved();
+        return true;
+    }
+
+    /**
+     * Checks whether there is a move to undo.
+     *
+     * @return True if undo would change the board.
+     */
+    public boolean canUndo() {
+        return journal.canUndo();
+    }
+
+    /**
+     * Checks whether there is an undone move to redo.
+     *
+     * @return True if redo would change the board.
+     */
+    public boolean canRedo() {
+        return journal.canRedo();
+    }
+
+    private void changeCell(int index, int oldValue, int newValue) {
+        MOVES.increment();
+        board.setValue(index, newValue);
+        version++;
+        marks.cellChanged(board, index, oldValue, newValue);
+        int row = index / board.getGridSize();
+        int col = index % board.getGridSize();
+        BoardListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            current[i].cellChanged(row, col, oldValue, newValue);
+        }
+        fireMarksChanged();
+    }
+
+    /**
+     * Returns how pencil marks are kept.
+     *
+     * @return The pencil mark mode.
+     */
+    public PencilMarks.Mode getMarksMode() {
+        return marks.getMode();
+    }
+
+    /**
+     * Switches how pencil marks are kept. AUTO fills every empty cell with its candidates and keeps
+     * them up to date; MANUAL starts with no marks and lets the player toggle them; OFF drops all marks.
+     *
+     * @param mode The new mode.
+     */
+    public void setMarksMode(PencilMarks.Mode mode) {
+        marks.setMode(mode, board);
+        fireMarksChanged();
+    }
+
+    /**
+     * Returns the pencil marks of a cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The marks as a bitmask, bit (d - 1) representing digit d; zero for a filled cell.
+     */
+    public int getMarks(int row, int col) {
+        return marks.get(board.index(row, col));
+    }
+
+    /**
+     * Adds or removes a pencil mark of an empty cell. Marks are only entered by hand in MANUAL mode.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param digit The digit to mark or unmark.
+     * @return True if the mark was changed, false if the mode is not MANUAL or the cell is filled.
+     * @throws IllegalArgumentException if the digit is not on the board.
+     */
+    public boolean toggleMark(int row, int col, int digit) {
+        boolean toggled = marks.toggle(board, board.index(row, col), digit);
+        fireMarksChanged();
+        return toggled;
+    }
+
+    private void fireMarksChanged() {
+        BoardListener[] current = listeners;
+        for (int i = 0; i < marks.getChangedCount(); i++) {
+            int index = marks.getChangedCell(i);
+            int row = index / board.getGridSize();
+            int col = index % board.getGridSize();
+            for (int j = 0; j < current.length; j++) {
+                current[j].marksChanged(row, col, marks.get(index));
+            }
         }
     }
 
@@ -84,7 +319,18 @@ public class Facade {
      * @return True if the cell is visible, false otherwise.
      */
     public boolean isCellVisible(int row, int col) {
-        return board[row][col].isVisible();
+        return board.isGiven(board.index(row, col));
+    }
+
+    /**
+     * Checks if the value of a cell is repeated in its row, column or box.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return True if the cell is non-empty and conflicts with another cell, false otherwise.
+     */
+    public boolean hasConflict(int row, int col) {
+        return board.hasConflict(board.index(row, col));
     }
 
     /**
@@ -93,52 +339,153 @@ public class Facade {
      * @return True if the puzzle is currently solved, false otherwise.
      */
     public boolean isCurrentlySolved() {
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                if (board[row][col].getUserValue() != 0 && !board[row][col].isCorrect()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.getWrongCount() == 0;
     }
 
     /**
-     * Triggers actions based on whether the puzzle is solved or incorrectly filled.
+     * Notifies the listeners when the board becomes complete, either solved or filled incorrectly.
+     * A state that was already reported is not reported again until the board leaves it.
      */
     private void checkIfPuzzleSolved() {
+        long start = CHECK_TIMER.start();
+        Completion current;
         if (isSolved()) {
-            Platform.runLater(() -> {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Puzzle Solved");
-                alert.setHeaderText(null);
-                alert.setContentText("Congratulations! You've correctly solved the puzzle.");
-                alert.showAndWait();
-            });
+            current = Completion.SOLVED;
         } else if (isCompletelyFilled() && !isCurrentlySolved()) {
-            Platform.runLater(() -> {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Incorrect Solution");
-                alert.setHeaderText(null);
-                alert.setContentText("The puzzle is not solved correctly. Try again!");
-                alert.showAndWait();
-            });
+            current = Completion.FILLED_INCORRECTLY;
+        } else {
+            current = Completion.NONE;
+        }
+        CHECK_TIMER.stop(start);
+        if (current == completion) {
+            return;
+        }
+        completion = current;
+        BoardListener[] notified = listeners;
+        if (current == Completion.SOLVED) {
+            for (int i = 0; i < notified.length; i++) {
+                notified[i].puzzleSolved();
+            }
+        } else if (current == Completion.FILLED_INCORRECTLY) {
+            for (int i = 0; i < notified.length; i++) {
+                notified[i].filledIncorrectly();
+            }
+        }
+    }
+
+    private void fireBoardReplaced() {
+        version++;
+        gameVersion = version;
+        completion = Completion.NONE;
+        journal.clear();
+        marks.rebuild(board);
+        BoardListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            current[i].boardReplaced();
         }
     }
 
     /**
      * Provides a hint by randomly selecting an editable and empty cell, revealing its correct value.
+     * The cell is picked from the board's empty cell index in constant time.
      *
-     * @return An array containing the row and column indices and the correct value of the hinted cell.
+     * @return An array containing the row and column indices and the correct value of the hinted cell,
+     * or null if there is no empty cell left.
      */
     public int[] getRandomHint() {
-        Random random = new Random();
-        int row, col;
-        do {
-            row = random.nextInt(SudokuUtilities.GRID_SIZE);
-            col = random.nextInt(SudokuUtilities.GRID_SIZE);
-        } while (!(board[row][col].isEditable() && board[row][col].getUserValue() == 0));
-        return new int[]{row, col, board[row][col].getCorrectValue()};
+        int emptyCount = board.getEmptyCount();
+        if (emptyCount == 0) {
+            return null;
+        }
+        int index = board.getEmptyCell(random.nextInt(emptyCount));
+        return new int[]{index / board.getGridSize(), index % board.getGridSize(),
+                board.getSolution(index)};
+    }
+
+    /**
+     * Provides a hint by finding the easiest logical deduction from the current board.
+     * The HintEngine is created on first use, so games that never ask for a hint do not carry it.
+     *
+     * @return The next value that can be deduced and the technique needed to deduce it,
+     * or null if the board contains wrong values, is complete, or needs techniques
+     * beyond the ones known to the HintEngine.
+     */
+    public Hint getLogicalHint() {
+        if (board.getWrongCount() > 0) {
+            return null;
+        }
+        long start = HINT_TIMER.start();
+        try {
+            if (hintEngine == null) {
+                hintEngine = new HintEngine();
+            }
+            hintEngine.load(board);
+            return hintEngine.nextStep();
+        } finally {
+            HINT_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Finds the easiest logical deduction from a snapshot of the board, like getLogicalHint.
+     * It may be called from any thread; each thread keeps its own HintEngine.
+     *
+     * @param snapshot The board to search, as taken by getSnapshot.
+     * @return The next value that can be deduced and the technique needed to deduce it,
+     * or null if the board contains wrong values, is complete, or needs techniques
+     * beyond the ones known to the HintEngine.
+     */
+    public static Hint getLogicalHint(BoardSnapshot snapshot) {
+        if (snapshot.getWrongCount() > 0) {
+            return null;
+        }
+        long start = HINT_TIMER.start();
+        try {
+            HintEngine engine = hintEngines.get();
+            engine.load(snapshot.toArray());
+            return engine.nextStep();
+        } finally {
+            HINT_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Returns the version of the game. It grows by one with every changed cell and every new,
+     * loaded or reset board, and may be read from any thread.
+     *
+     * @return The current version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Publishes the board as an immutable snapshot that other threads may read without locks.
+     * The snapshot is taken on the first call after the game changed and returned again until
+     * the next change, so calling this after every move costs one copy of the values at most.
+     * Like every method that reads the board, it must be called on the thread that plays the game.
+     *
+     * @return A snapshot of the current version of the game.
+     */
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if (current == null || current.getVersion() != version) {
+            BoardSnapshot sameGame = current != null && current.getGameVersion() == gameVersion ? current : null;
+            current = board.snapshot(version, gameVersion, currentDifficulty, sameGame);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Checks whether a snapshot still shows the current game, so that a result computed from
+     * it may be shown. It may be called from any thread.
+     *
+     * @param snapshot A snapshot taken by getSnapshot.
+     * @return True if the game has not changed since the snapshot was taken.
+     */
+    public boolean isCurrent(BoardSnapshot snapshot) {
+        return snapshot.getVersion() == version;
     }
 
     /**
@@ -148,37 +495,91 @@ public class Facade {
      * @throws IOException If an error occurs during file writing.
      */
     public void saveGame(File file) throws IOException {
-        int[][][] boardData = new int[SudokuUtilities.GRID_SIZE][SudokuUtilities.GRID_SIZE][2];
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                boardData[row][col][0] = board[row][col].getUserValue();
-                boardData[row][col][1] = board[row][col].getCorrectValue();
-            }
-        }
-        FileLogic.saveGame(boardData, file);
+        FileLogic.saveGame(board, currentDifficulty, file);
     }
 
     /**
-     * Loads a game state from a file.
+     * Loads a game state from a file. The current game is kept if loading fails.
      *
      * @param file The file from which to load the game.
      * @throws IOException If an error occurs during file reading.
      */
     public void loadGame(File file) throws IOException {
-        int[][][] loadedBoard = FileLogic.loadGame(file);
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                board[row][col].setUserValue(loadedBoard[row][col][0]);
-            }
+        Board loaded = new Board();
+        SudokuUtilities.SudokuLevel level = FileLogic.loadGame(file, loaded);
+        board.copyFrom(loaded);
+        if (level != null) {
+            currentDifficulty = level;
         }
+        fireBoardReplaced();
+    }
+
+    /**
+     * Saves the current game state to a slot of a save archive.
+     *
+     * @param archive The archive to save to.
+     * @param slot The slot index.
+     * @throws IllegalArgumentException if the board is too large for the slots of the archive.
+     */
+    public void saveGame(SaveArchive archive, int slot) {
+        archive.save(slot, board, currentDifficulty);
+    }
+
+    /**
+     * Loads a game state from a slot of a save archive. The current game is kept if loading fails.
+     *
+     * @param archive The archive to load from.
+     * @param slot The slot index.
+     * @throws IOException If the slot is empty or invalid.
+     */
+    public void loadGame(SaveArchive archive, int slot) throws IOException {
+        Board loaded = new Board();
+        currentDifficulty = archive.load(slot, loaded);
+        board.copyFrom(loaded);
+        fireBoardReplaced();
+    }
+
+    /**
+     * Saves the current game state as one SaveFormat record in a buffer, taking
+     * SaveFormat.recordSize(getGridSize()) bytes.
+     *
+     * @param buffer The buffer to write to.
+     * @param offset The absolute position of the record in the buffer.
+     */
+    public void saveGame(ByteBuffer buffer, int offset) {
+        SaveFormat.encode(board, currentDifficulty, buffer, offset);
+    }
+
+    /**
+     * Loads a game state from a SaveFormat record in a buffer. The current game is kept if loading fails.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The absolute position of the record in the buffer.
+     * @throws IOException If the record is invalid.
+     */
+    public void loadGame(ByteBuffer buffer, int offset) throws IOException {
+        Board loaded = new Board();
+        currentDifficulty = SaveFormat.decode(buffer, offset, loaded);
+        board.copyFrom(loaded);
+        fireBoardReplaced();
     }
 
     /**
-     * Resets the game to the initial state based on the current difficulty.
+     * Returns the difficulty level of the current game.
+     *
+     * @return The difficulty level.
+     */
+    public SudokuUtilities.SudokuLevel getDifficulty() {
+        return currentDifficulty;
+    }
+
+    /**
+     * Resets the game to the initial state based on the current difficulty and board size.
      */
     public void resetGame() {
-        int[][][] newMatrix = SudokuUtilities.generateSudokuMatrix(currentDifficulty);
+        int[][][] newMatrix = source.take(currentDifficulty, board.getGridSize());
         initializeBoard(newMatrix);
+        fireBoardReplaced();
     }
 
     /**
@@ -187,14 +588,7 @@ public class Facade {
      * @return True if all cells are filled, false if any cell is empty.
      */
     private boolean isCompletelyFilled() {
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                if (board[row][col].getUserValue() == 0) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.getFilledCount() == board.getCellCount();
     }
 
     /**
@@ -205,7 +599,7 @@ public class Facade {
      * @return True if the cell is editable, false otherwise.
      */
     public boolean isCellEditable(int row, int col) {
-        return board[row][col].isEditable();
+        return !board.isGiven(board.index(row, col));
     }
 
     /**
@@ -214,13 +608,13 @@ public class Facade {
      * @return True if the solution is correct, false otherwise.
      */
     public boolean isSolved() {
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                if (!board[row][col].isCorrect()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.getCorrectCount() == board.getCellCount();
+    }
+
+    /**
+     * The last completion state reported to the listeners.
+     */
+    private enum Completion {
+        NONE, SOLVED, FILLED_INCORRECTLY
     }
 }
\ No newline at end of file
@@ -1,52 +1,88 @@
 package se.kth.rebins.sudoku.Model;
 
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
 
 public class FileLogic {
+    private static final Timer SAVE_TIMER = MetricsRegistry.getShared().timer("save.file");
+    private static final Timer LOAD_TIMER = MetricsRegistry.getShared().timer("load.file");
 
     /**
-     * Saves the current state of the Sudoku board to a specified file.
+     * Saves the current state of the Sudoku board to a specified file, as one SaveFormat record.
      *
      * @param board The current state of the Sudoku board.
+     * @param level The difficulty level of the game.
      * @param file The file to which the game state will be saved.
      * @throws IOException If an error occurs during file writing.
      */
-    public static void saveGame(int[][][] board, File file) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            for (int row = 0; row < board.length; row++) {
-                for (int col = 0; col < board[row].length; col++) {
-                    writer.write(board[row][col][0] + "," + board[row][col][1]);
-                    if (col < board[row].length - 1) {
-                        writer.write(";");
-                    }
-                }
-                writer.newLine();
-            }
+    public static void saveGame(Board board, SudokuUtilities.SudokuLevel level, File file) throws IOException {
+        long start = SAVE_TIMER.start();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(SaveFormat.recordSize(board.getGridSize()));
+            SaveFormat.encode(board, level, buffer, 0);
+            Files.write(file.toPath(), buffer.array());
+        } finally {
+            SAVE_TIMER.stop(start);
         }
     }
 
     /**
-     * Loads a Sudoku game state from a specified file.
+     * Loads a Sudoku game state from a specified file into a board.
+     * Both the binary SaveFormat and the older text format are accepted, and the board takes on
+     * the size of the saved game. The text format only exists for 9x9 boards and has one line per
+     * row with "value,solution" pairs separated by ';'. It does not record which cells were given,
+     * so cells holding their correct value are treated as given.
      *
      * @param file The file from which the game state is to be loaded.
-     * @return A 3D integer array representing the loaded Sudoku board state.
-     * @throws IOException If an error occurs during file reading.
+     * @param board The board to load the game into.
+     * @return The difficulty level of the game, or null for the text format, which does not record it.
+     * @throws IOException If an error occurs during file reading or the file is not a saved game.
      */
-    public static int[][][] loadGame(File file) throws IOException {
-        List<String> lines = Files.readAllLines(Paths.get(file.getAbsolutePath()));
-        int[][][] board = new int[9][9][2];  // Assumes a 9x9 Sudoku board
+    public static SudokuUtilities.SudokuLevel loadGame(File file, Board board) throws IOException {
+        long start = LOAD_TIMER.start();
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (SaveFormat.isRecord(buffer, 0)) {
+                return SaveFormat.decode(buffer, 0, board);
+            }
+            loadTextGame(bytes, board);
+            return null;
+        } finally {
+            LOAD_TIMER.stop(start);
+        }
+    }
 
-        for (int row = 0; row < lines.size(); row++) {
-            String[] values = lines.get(row).split(";");
-            for (int col = 0; col < values.length; col++) {
-                String[] pair = values[col].split(",");
-                board[row][col][0] = Integer.parseInt(pair[0]); // User value
-                board[row][col][1] = Integer.parseInt(pair[1]); // Correct value
+    /**
+     * Parses the older text format directly from its bytes, reading the digits of all
+     * 81 value and solution pairs in order.
+     */
+    private static void loadTextGame(byte[] bytes, Board board) throws IOException {
+        int cellCount = SudokuUtilities.GRID_SIZE * SudokuUtilities.GRID_SIZE;
+        int[] numbers = new int[2 * cellCount];
+        int count = 0;
+        for (byte b : bytes) {
+            if (b >= '0' && b <= '9') {
+                if (count == numbers.length)
+                    throw new IOException("Saved game has too many values");
+                numbers[count++] = b - '0';
+            } else if (b != ',' && b != ';' && b != '\n' && b != '\r') {
+                throw new IOException("Saved game has invalid character " + (char) b);
             }
         }
-        return board;
+        if (count != numbers.length)
+            throw new IOException("Saved game has " + count + " values, expected " + numbers.length);
+
+        board.resize(SudokuUtilities.GRID_SIZE);
+        board.clear();
+        for (int i = 0; i < cellCount; i++) {
+            int value = numbers[2 * i];
+            int solution = numbers[2 * i + 1];
+            board.loadCell(i, value, solution, value != 0 && value == solution);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A set of PuzzleFingerprints kept outside the Java heap, so an index of millions of puzzles
+ * adds nothing to the heap the garbage collector scans. It is an open-addressing hash table with
+ * linear probing in a direct ByteBuffer of 16-byte slots, each holding the two halves of one
+ * fingerprint; an all-zero slot is empty. The slot of a fingerprint is taken from its upper half,
+ * which is already well mixed.
+ *
+ * The table doubles, copying into a new buffer, when it becomes three quarters full, up to
+ * MAX_CAPACITY slots. Methods are synchronized, so the index can be shared by the worker threads
+ * of a PuzzleImporter.
+ */
+public class FingerprintIndex {
+    /**
+     * The highest number of slots, 1 GiB of memory; at most three quarters of them are used.
+     */
+    public static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+
+    /**
+     * Constructs an empty index sized for a number of fingerprints.
+     *
+     * @param expectedCount The number of fingerprints expected; the index grows beyond it if needed.
+     */
+    public FingerprintIndex(int expectedCount) {
+        capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && (long) capacity * 3 < (long) expectedCount * 4) {
+            capacity <<= 1;
+        }
+        slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    /**
+     * Adds a fingerprint unless it is already present.
+     *
+     * @param fingerprint The fingerprint.
+     * @return True if it was added, false if it was already in the index.
+     * @throws IllegalStateException if the index is full.
+     */
+    public boolean add(PuzzleFingerprint fingerprint) {
+        return add(fingerprint.getHigh(), fingerprint.getLow());
+    }
+
+    /**
+     * Adds a fingerprint, given by its halves, unless it is already present.
+     *
+     * @param high The upper 64 bits.
+     * @param low  The lower 64 bits.
+     * @return True if it was added, false if it was already in the index.
+     * @throws IllegalStateException if the index is full.
+     */
+    public synchronized boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int slot = find(slots, capacity, high, low);
+        if (slots.getLong(slot * SLOT_SIZE) != 0 || slots.getLong(slot * SLOT_SIZE + 8) != 0) {
+            return false;
+        }
+        if ((long) (size + 1) * 4 > (long) capacity * 3) {
+            grow();
+            slot = find(slots, capacity, high, low);
+        }
+        slots.putLong(slot * SLOT_SIZE, high);
+        slots.putLong(slot * SLOT_SIZE + 8, low);
+        size++;
+        return true;
+    }
+
+    /**
+     * Checks whether a fingerprint is in the index.
+     *
+     * @param fingerprint The fingerprint.
+     * @return True if it has been added.
+     */
+    public synchronized boolean contains(PuzzleFingerprint fingerprint) {
+        long high = fingerprint.getHigh();
+        long low = fingerprint.getLow();
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        int slot = find(slots, capacity, high, low);
+        return slots.getLong(slot * SLOT_SIZE) != 0 || slots.getLong(slot * SLOT_SIZE + 8) != 0;
+    }
+
+    /**
+     * Returns the number of fingerprints in the index.
+     *
+     * @return The size.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes of memory outside the heap held by the index.
+     *
+     * @return The size of the slot buffer.
+     */
+    public synchronized long getMemoryBytes() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    /**
+     * Returns the slot holding a fingerprint, or the empty slot where it belongs.
+     */
+    private static int find(ByteBuffer slots, int capacity, long high, long low) {
+        int mask = capacity - 1;
+        int slot = (int) (high ^ high >>> 32) & mask;
+        while (true) {
+            long slotHigh = slots.getLong(slot * SLOT_SIZE);
+            long slotLow = slots.getLong(slot * SLOT_SIZE + 8);
+            if (slotHigh == high && slotLow == low || slotHigh == 0 && slotLow == 0) {
+                return slot;
+            }
+            slot = slot + 1 & mask;
+        }
+    }
+
+    private void grow() {
+        if (capacity == MAX_CAPACITY)
+            throw new IllegalStateException("Fingerprint index is full");
+        int newCapacity = capacity << 1;
+        ByteBuffer newSlots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        for (int slot = 0; slot < capacity; slot++) {
+            long high = slots.getLong(slot * SLOT_SIZE);
+            long low = slots.getLong(slot * SLOT_SIZE + 8);
+            if (high != 0 || low != 0) {
+                int target = find(newSlots, newCapacity, high, low);
+                newSlots.putLong(target * SLOT_SIZE, high);
+                newSlots.putLong(target * SLOT_SIZE + 8, low);
+            }
+        }
+        slots = newSlots;
+        capacity = newCapacity;
+    }
+}
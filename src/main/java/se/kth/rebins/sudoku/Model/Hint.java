@@ -0,0 +1,62 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * A value that can be placed by logic, together with the hardest technique needed to find it.
+ */
+public class Hint {
+    private final Technique technique;
+    private final int row;
+    private final int col;
+    private final int value;
+
+    /**
+     * Constructs a new Hint.
+     *
+     * @param technique The hardest technique needed to deduce the value.
+     * @param row       The row index of the cell.
+     * @param col       The column index of the cell.
+     * @param value     The value of the cell.
+     */
+    public Hint(Technique technique, int row, int col, int value) {
+        this.technique = technique;
+        this.row = row;
+        this.col = col;
+        this.value = value;
+    }
+
+    /**
+     * Returns the hardest technique needed to deduce the value.
+     *
+     * @return The technique.
+     */
+    public Technique getTechnique() {
+        return technique;
+    }
+
+    /**
+     * Returns the row index of the cell.
+     *
+     * @return The row index.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Returns the column index of the cell.
+     *
+     * @return The column index.
+     */
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Returns the value of the cell.
+     *
+     * @return The value.
+     */
+    public int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,440 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * Finds the next value that can be placed by logic, the way a human would solve the puzzle.
+ * Techniques are tried from easiest to hardest, see Technique. Singles place a value directly,
+ * the other techniques only remove candidates, after which the search for a single starts over.
+ *
+ * The engine keeps a candidate bitmask per cell, bit (d - 1) representing digit d. The masks are
+ * seeded from the unit masks a Board already maintains and are then updated incrementally:
+ * placing a value clears it from the peers of the cell, and every technique only clears bits.
+ *
+ * The engine takes on the size of the board it is loaded with. Loading a board of another size
+ * than the last one reallocates the buffers; otherwise an engine reuses its internal buffers
+ * between calls. It is not thread safe.
+ */
+public class HintEngine {
+    private int gridSize;
+    private int cellCount;
+    private int allDigits;
+    private int[] rowOf;
+    private int[] colOf;
+    private int[] boxOf;
+    private int[][] units;
+    private int[][] peers;
+
+    private int[] values;
+    private int[] candidates;
+    private int[] positions;
+    private int emptyCount;
+
+    /**
+     * Constructs an engine for the standard 9x9 board.
+     */
+    public HintEngine() {
+        this(SudokuUtilities.GRID_SIZE);
+    }
+
+    /**
+     * Constructs an engine for boards of a size.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public HintEngine(int gridSize) {
+        resize(SudokuGeometry.forGridSize(gridSize));
+    }
+
+    /**
+     * Loads the current values of a board.
+     *
+     * @param board The board to continue from.
+     */
+    public void load(Board board) {
+        if (board.getGridSize() != gridSize) {
+            resize(SudokuGeometry.forGridSize(board.getGridSize()));
+        }
+        emptyCount = 0;
+        for (int i = 0; i < cellCount; i++) {
+            values[i] = board.getValue(i);
+            if (values[i] == 0) {
+                candidates[i] = ~(board.getRowMask(rowOf[i]) | board.getColMask(colOf[i])
+                        | board.getBoxMask(boxOf[i])) & allDigits;
+                emptyCount++;
+            } else {
+                candidates[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Loads a board given as values.
+     *
+     * @param grid The board as N*N values in row-major order, zero representing an empty cell.
+     * @throws IllegalArgumentException if the length does not belong to a supported board size.
+     */
+    public void load(int[] grid) {
+        if (grid.length != cellCount) {
+            resize(SudokuGeometry.forCellCount(grid.length));
+        }
+        emptyCount = 0;
+        for (int i = 0; i < cellCount; i++) {
+            values[i] = 0;
+            candidates[i] = allDigits;
+            emptyCount++;
+        }
+        for (int i = 0; i < cellCount; i++) {
+            if (grid[i] != 0) {
+                place(i, grid[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the next value that can be deduced and places it in the engine, so that
+     * repeated calls walk through a logical solution of the puzzle.
+     *
+     * @return The placed value and the hardest technique needed to find it, or null if the
+     * board is complete, contradictory or cannot be advanced with the known techniques.
+     */
+    public Hint nextStep() {
+        Technique hardest = Technique.NAKED_SINGLE;
+        while (emptyCount > 0) {
+            Technique technique = Technique.NAKED_SINGLE;
+            int cell = findNakedSingle();
+            if (cell == -2) {
+                return null;
+            }
+            if (cell < 0) {
+                technique = Technique.HIDDEN_SINGLE;
+                cell = findHiddenSingle();
+            }
+
+            if (cell >= 0) {
+                int value = Integer.numberOfTrailingZeros(positions[0]) + 1;
+                place(cell, value);
+                if (technique.compareTo(hardest) > 0) {
+                    hardest = technique;
+                }
+                return new Hint(hardest, rowOf[cell], colOf[cell], value);
+            }
+
+            technique = eliminate();
+            if (technique == null) {
+                return null;
+            }
+            if (technique.compareTo(hardest) > 0) {
+                hardest = technique;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of empty cells left in the engine.
+     *
+     * @return The number of empty cells.
+     */
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Returns the current value of a cell in the engine.
+     *
+     * @param index The index of the cell.
+     * @return The value, zero for an empty cell.
+     */
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the candidates of a cell in the engine.
+     *
+     * @param index The index of the cell.
+     * @return The candidate bitmask, bit (d - 1) representing digit d, zero for a filled cell.
+     */
+    public int getCandidates(int index) {
+        return candidates[index];
+    }
+
+    /**
+     * Places a value that was not deduced by the engine, for example a guess checked against the solution.
+     *
+     * @param index The index of an empty cell.
+     * @param value The value to place.
+     */
+    public void placeValue(int index, int value) {
+        place(index, value);
+    }
+
+    /**
+     * Finds a cell with a single candidate and leaves the candidate in positions[0].
+     *
+     * @return The cell, -1 if there is none, or -2 if an empty cell has no candidates left.
+     */
+    private int findNakedSingle() {
+        for (int i = 0; i < cellCount; i++) {
+            if (values[i] != 0) {
+                continue;
+            }
+            int mask = candidates[i];
+            if (mask == 0) {
+                return -2;
+            }
+            if ((mask & (mask - 1)) == 0) {
+                positions[0] = mask;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a digit with a single possible cell in some unit and leaves it in positions[0].
+     *
+     * @return The cell, or -1 if there is none.
+     */
+    private int findHiddenSingle() {
+        for (int[] unit : units) {
+            int once = 0;
+            int twice = 0;
+            for (int i : unit) {
+                twice |= once & candidates[i];
+                once |= candidates[i];
+            }
+            int hidden = once & ~twice;
+            if (hidden != 0) {
+                int bit = hidden & -hidden;
+                for (int i : unit) {
+                    if ((candidates[i] & bit) != 0) {
+                        positions[0] = bit;
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Applies the easiest elimination technique that removes at least one candidate.
+     *
+     * @return The technique that was applied, or null if none made progress.
+     */
+    private Technique eliminate() {
+        if (pointing()) {
+            return Technique.POINTING;
+        }
+        if (claiming()) {
+            return Technique.CLAIMING;
+        }
+        if (nakedPairs()) {
+            return Technique.NAKED_PAIR;
+        }
+        if (hiddenPairs()) {
+            return Technique.HIDDEN_PAIR;
+        }
+        if (xWing()) {
+            return Technique.X_WING;
+        }
+        return null;
+    }
+
+    /**
+     * A digit confined to one row or column within a box is removed from the rest of that line.
+     */
+    private boolean pointing() {
+        boolean changed = false;
+        for (int box = 0; box < gridSize; box++) {
+            int[] cells = units[2 * gridSize + box];
+            for (int bit = 1; bit <= allDigits; bit <<= 1) {
+                int rows = 0;
+                int cols = 0;
+                for (int i : cells) {
+                    if ((candidates[i] & bit) != 0) {
+                        rows |= 1 << rowOf[i];
+                        cols |= 1 << colOf[i];
+                    }
+                }
+                if (Integer.bitCount(rows) == 1) {
+                    changed |= removeOutsideBox(units[Integer.numberOfTrailingZeros(rows)], box, bit);
+                }
+                if (Integer.bitCount(cols) == 1) {
+                    changed |= removeOutsideBox(units[gridSize + Integer.numberOfTrailingZeros(cols)], box, bit);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * A digit confined to one box within a row or column is removed from the rest of that box.
+     */
+    private boolean claiming() {
+        boolean changed = false;
+        for (int line = 0; line < 2 * gridSize; line++) {
+            int[] cells = units[line];
+            for (int bit = 1; bit <= allDigits; bit <<= 1) {
+                int boxes = 0;
+                for (int i : cells) {
+                    if ((candidates[i] & bit) != 0) {
+                        boxes |= 1 << boxOf[i];
+                    }
+                }
+                if (Integer.bitCount(boxes) == 1) {
+                    for (int i : units[2 * gridSize + Integer.numberOfTrailingZeros(boxes)]) {
+                        boolean onLine = line < gridSize ? rowOf[i] == line : colOf[i] == line - gridSize;
+                        if (!onLine && (candidates[i] & bit) != 0) {
+                            candidates[i] &= ~bit;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Two cells of a unit with the same two candidates remove them from the rest of the unit.
+     */
+    private boolean nakedPairs() {
+        boolean changed = false;
+        for (int[] unit : units) {
+            for (int a = 0; a < gridSize; a++) {
+                int pair = candidates[unit[a]];
+                if (Integer.bitCount(pair) != 2) {
+                    continue;
+                }
+                for (int b = a + 1; b < gridSize; b++) {
+                    if (candidates[unit[b]] != pair) {
+                        continue;
+                    }
+                    for (int c = 0; c < gridSize; c++) {
+                        int i = unit[c];
+                        if (c != a && c != b && (candidates[i] & pair) != 0) {
+                            candidates[i] &= ~pair;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Two digits with the same two possible cells in a unit remove all other candidates of those cells.
+     */
+    private boolean hiddenPairs() {
+        boolean changed = false;
+        for (int[] unit : units) {
+            for (int digit = 0; digit < gridSize; digit++) {
+                positions[digit] = 0;
+                for (int c = 0; c < gridSize; c++) {
+                    if ((candidates[unit[c]] & (1 << digit)) != 0) {
+                        positions[digit] |= 1 << c;
+                    }
+                }
+            }
+            for (int d1 = 0; d1 < gridSize; d1++) {
+                if (Integer.bitCount(positions[d1]) != 2) {
+                    continue;
+                }
+                for (int d2 = d1 + 1; d2 < gridSize; d2++) {
+                    if (positions[d2] != positions[d1]) {
+                        continue;
+                    }
+                    int pair = (1 << d1) | (1 << d2);
+                    for (int cells = positions[d1]; cells != 0; cells &= cells - 1) {
+                        int i = unit[Integer.numberOfTrailingZeros(cells)];
+                        if ((candidates[i] & ~pair) != 0) {
+                            candidates[i] &= pair;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * A digit confined to the same two columns in two rows is removed from the rest of those
+     * columns, and the same with rows and columns swapped.
+     */
+    private boolean xWing() {
+        boolean changed = false;
+        for (int bit = 1; bit <= allDigits; bit <<= 1) {
+            for (int base = 0; base <= gridSize; base += gridSize) {
+                int cross = gridSize - base;
+                for (int line = 0; line < gridSize; line++) {
+                    positions[line] = 0;
+                    int[] cells = units[base + line];
+                    for (int c = 0; c < gridSize; c++) {
+                        if ((candidates[cells[c]] & bit) != 0) {
+                            positions[line] |= 1 << c;
+                        }
+                    }
+                }
+                for (int l1 = 0; l1 < gridSize; l1++) {
+                    if (Integer.bitCount(positions[l1]) != 2) {
+                        continue;
+                    }
+                    for (int l2 = l1 + 1; l2 < gridSize; l2++) {
+                        if (positions[l2] != positions[l1]) {
+                            continue;
+                        }
+                        for (int lines = positions[l1]; lines != 0; lines &= lines - 1) {
+                            int[] cells = units[cross + Integer.numberOfTrailingZeros(lines)];
+                            for (int c = 0; c < gridSize; c++) {
+                                if (c != l1 && c != l2 && (candidates[cells[c]] & bit) != 0) {
+                                    candidates[cells[c]] &= ~bit;
+                                    changed = true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeOutsideBox(int[] line, int box, int bit) {
+        boolean changed = false;
+        for (int i : line) {
+            if (boxOf[i] != box && (candidates[i] & bit) != 0) {
+                candidates[i] &= ~bit;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void resize(SudokuGeometry geometry) {
+        gridSize = geometry.gridSize;
+        cellCount = geometry.cellCount;
+        allDigits = geometry.allDigits;
+        rowOf = geometry.row;
+        colOf = geometry.col;
+        boxOf = geometry.box;
+        units = geometry.units;
+        peers = geometry.peers;
+        values = new int[cellCount];
+        candidates = new int[cellCount];
+        positions = new int[gridSize];
+    }
+
+    private void place(int index, int value) {
+        int bit = 1 << (value - 1);
+        values[index] = value;
+        candidates[index] = 0;
+        emptyCount--;
+        for (int peer : peers[index]) {
+            candidates[peer] &= ~bit;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * One stage of the PuzzleImporter pipeline, such as solving, rating, deduplicating or storing.
+ * Stages are called concurrently from several worker threads and must be thread safe.
+ */
+@FunctionalInterface
+public interface ImportStage {
+
+    /**
+     * Processes a puzzle.
+     *
+     * @param puzzle The puzzle to process.
+     * @return True to pass the puzzle on to the next stage, false to drop it.
+     */
+    boolean process(ImportedPuzzle puzzle);
+}
@@ -0,0 +1,89 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * The counters of a PuzzleImporter run, either while it is in progress or after it has finished.
+ */
+public class ImportStats {
+    private final long linesRead;
+    private final long rejected;
+    private final long dropped;
+    private final long accepted;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a new ImportStats.
+     *
+     * @param linesRead    The number of non-blank lines read.
+     * @param rejected     The number of lines that were not valid puzzles.
+     * @param dropped      The number of puzzles dropped by a pipeline stage.
+     * @param accepted     The number of puzzles that passed all stages.
+     * @param elapsedNanos The time since the import started, in nanoseconds.
+     */
+    public ImportStats(long linesRead, long rejected, long dropped, long accepted, long elapsedNanos) {
+        this.linesRead = linesRead;
+        this.rejected = rejected;
+        this.dropped = dropped;
+        this.accepted = accepted;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of non-blank lines read.
+     *
+     * @return The number of lines.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * Returns the number of lines that were not valid puzzles.
+     *
+     * @return The number of rejected lines.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of puzzles dropped by a pipeline stage, for example as unsolvable or duplicate.
+     *
+     * @return The number of dropped puzzles.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of puzzles that passed all stages.
+     *
+     * @return The number of accepted puzzles.
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the time since the import started.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the pipeline, counting every puzzle that left it, accepted or dropped.
+     *
+     * @return Puzzles per second.
+     */
+    public double getPuzzlesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (accepted + dropped) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines, %d rejected, %d dropped, %d accepted in %.2f s (%.0f puzzles/s)",
+                linesRead, rejected, dropped, accepted, elapsedNanos / 1e9, getPuzzlesPerSecond());
+    }
+}
@@ -0,0 +1,58 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * A puzzle read by the PuzzleImporter, passed through the stages of the import pipeline.
+ */
+public class ImportedPuzzle {
+    private final long lineNumber;
+    private final int[][][] matrix;
+    private Rating rating;
+
+    /**
+     * Constructs a new ImportedPuzzle.
+     *
+     * @param lineNumber The line of the input the puzzle was read from, starting at 1.
+     * @param matrix     The puzzle in the layout of SudokuUtilities.convertStringToIntMatrix,
+     *                   with the solution still zero until a solve stage fills it in.
+     */
+    public ImportedPuzzle(long lineNumber, int[][][] matrix) {
+        this.lineNumber = lineNumber;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Returns the line of the input the puzzle was read from.
+     *
+     * @return The line number, starting at 1.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the puzzle and, once solved, its solution.
+     *
+     * @return A 3-dimensional int matrix in the layout of SudokuUtilities.convertStringToIntMatrix.
+     */
+    public int[][][] getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Returns the rating set by a rate stage.
+     *
+     * @return The rating, or null if the puzzle has not been rated.
+     */
+    public Rating getRating() {
+        return rating;
+    }
+
+    /**
+     * Sets the rating of the puzzle.
+     *
+     * @param rating The rating.
+     */
+    public void setRating(Rating rating) {
+        this.rating = rating;
+    }
+}
@@ -0,0 +1,169 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.Arrays;
+
+/**
+ * The undo and redo history of a game. Every move is packed into one int and kept in a
+ * growable int array, so recording, undoing and redoing a move allocate nothing once the
+ * array has grown to the length of the game:
+ * <pre>
+ *   bits  0-9   cell index
+ *   bits 10-14  old value
+ *   bits 15-19  new value
+ *   bit  20     linked, the move belongs to the same batch as the move before it
+ * </pre>
+ * The widths cover the 625 cells and the digits of the largest, 25x25, board.
+ * Moves before the cursor have been done, moves from the cursor up to the size have been undone
+ * and can be redone. Recording a move discards the undone ones.
+ */
+public class MoveJournal {
+    private static final int INDEX_MASK = 0x3FF;
+    private static final int VALUE_MASK = 0x1F;
+    private static final int OLD_SHIFT = 10;
+    private static final int NEW_SHIFT = 15;
+    private static final int LINKED = 1 << 20;
+    private static final int INITIAL_CAPACITY = 128;
+
+    private int[] moves = new int[INITIAL_CAPACITY];
+    private int size;
+    private int cursor;
+    private boolean inBatch;
+    private boolean batchEmpty;
+
+    /**
+     * Records a move.
+     *
+     * @param index    The index of the cell.
+     * @param oldValue The value before the move.
+     * @param newValue The value after the move.
+     */
+    public void record(int index, int oldValue, int newValue) {
+        int move = index | oldValue << OLD_SHIFT | newValue << NEW_SHIFT;
+        if (inBatch && !batchEmpty) {
+            move |= LINKED;
+        }
+        batchEmpty = false;
+        if (cursor == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[cursor++] = move;
+        size = cursor;
+    }
+
+    /**
+     * Starts a batch. The moves recorded until endBatch are undone and redone as one.
+     */
+    public void beginBatch() {
+        inBatch = true;
+        batchEmpty = true;
+    }
+
+    /**
+     * Ends the batch started by beginBatch.
+     */
+    public void endBatch() {
+        inBatch = false;
+    }
+
+    /**
+     * Checks whether there is a move to undo.
+     *
+     * @return True if undo would change the board.
+     */
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    /**
+     * Checks whether there is an undone move to redo.
+     *
+     * @return True if redo would change the board.
+     */
+    public boolean canRedo() {
+        return cursor < size;
+    }
+
+    /**
+     * Steps back over one move of the last batch. Callers undo a whole batch by calling this
+     * until isLinked returns false for the returned move.
+     *
+     * @return The packed move to revert.
+     * @throws IllegalStateException if there is nothing to undo.
+     */
+    public int undo() {
+        if (cursor == 0)
+            throw new IllegalStateException("Nothing to undo");
+        return moves[--cursor];
+    }
+
+    /**
+     * Steps forward over one undone move. Callers redo a whole batch by calling this for as long
+     * as isNextLinked returns true.
+     *
+     * @return The packed move to apply again.
+     * @throws IllegalStateException if there is nothing to redo.
+     */
+    public int redo() {
+        if (cursor == size)
+            throw new IllegalStateException("Nothing to redo");
+        return moves[cursor++];
+    }
+
+    /**
+     * Checks whether the next move to redo belongs to the batch of the move redone last.
+     *
+     * @return True if the next redo continues the current batch.
+     */
+    public boolean isNextLinked() {
+        return cursor < size && isLinked(moves[cursor]);
+    }
+
+    /**
+     * Forgets all moves, for example when a new game starts.
+     */
+    public void clear() {
+        size = 0;
+        cursor = 0;
+        inBatch = false;
+    }
+
+    /**
+     * Returns the cell index of a packed move.
+     *
+     * @param move The packed move.
+     * @return The index of the cell.
+     */
+    public static int indexOf(int move) {
+        return move & INDEX_MASK;
+    }
+
+    /**
+     * Returns the value before a packed move.
+     *
+     * @param move The packed move.
+     * @return The old value.
+     */
+    public static int oldValueOf(int move) {
+        return move >>> OLD_SHIFT & VALUE_MASK;
+    }
+
+    /**
+     * Returns the value after a packed move.
+     *
+     * @param move The packed move.
+     * @return The new value.
+     */
+    public static int newValueOf(int move) {
+        return move >>> NEW_SHIFT & VALUE_MASK;
+    }
+
+    /**
+     * Checks whether a packed move belongs to the same batch as the move before it.
+     *
+     * @param move The packed move.
+     * @return True if the move continues a batch.
+     */
+    public static boolean isLinked(int move) {
+        return (move & LINKED) != 0;
+    }
+}
@@ -0,0 +1,198 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * The pencil marks of a board: one candidate mask per cell, bit (d - 1) representing digit d.
+ * The marks are kept next to the Board by the Facade and updated on every cell change in time
+ * proportional to the peers of the cell, never by scanning the board.
+ *
+ * In AUTO mode the marks of every empty cell are exactly the digits not yet present in its row,
+ * column and box. Placing a digit clears its bit from the peers; emptying a cell puts the old digit
+ * back only into the peers whose units no longer contain it, which the digit masks of the Board
+ * answer in constant time. In MANUAL mode the marks are entered by the player, and placing a
+ * digit still clears it from the marks of the peers. In OFF mode no marks are kept.
+ *
+ * Every update records the cells whose marks changed, so the caller can notify its listeners
+ * without comparing the whole board.
+ */
+public class PencilMarks {
+
+    /**
+     * How the marks are maintained.
+     */
+    public enum Mode {
+        /** No marks are kept. */
+        OFF,
+        /** The marks are the candidates of every empty cell, computed from the board. */
+        AUTO,
+        /** The marks are entered by the player. */
+        MANUAL
+    }
+
+    private Mode mode = Mode.OFF;
+    private int[] marks = new int[0];
+    private int[] changed = new int[0];
+    private boolean[] isChanged = new boolean[0];
+    private int changedCount;
+
+    /**
+     * Returns how the marks are maintained.
+     *
+     * @return The current mode.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the marks of a cell.
+     *
+     * @param index The index of the cell.
+     * @return The mark mask, zero for a filled cell or a cell without marks.
+     */
+    public int get(int index) {
+        return marks[index];
+    }
+
+    /**
+     * Returns the number of cells whose marks changed in the last update.
+     *
+     * @return The number of changed cells.
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns a cell whose marks changed in the last update.
+     *
+     * @param position The position in the changed list, from 0 to getChangedCount() - 1.
+     * @return The index of the cell.
+     */
+    public int getChangedCell(int position) {
+        return changed[position];
+    }
+
+    /**
+     * Switches the mode and rebuilds the marks of the board: the candidates in AUTO mode, none otherwise.
+     * Manual marks are lost when the mode changes.
+     *
+     * @param mode  The new mode.
+     * @param board The board the marks belong to.
+     */
+    void setMode(Mode mode, Board board) {
+        this.mode = mode;
+        rebuild(board);
+    }
+
+    /**
+     * Rebuilds the marks for a board that has been replaced, possibly by one of another size.
+     * The cells whose marks differ from before are recorded as changed.
+     *
+     * @param board The board the marks belong to.
+     */
+    void rebuild(Board board) {
+        int cellCount = board.getCellCount();
+        if (marks.length != cellCount) {
+            marks = new int[cellCount];
+            changed = new int[cellCount];
+            isChanged = new boolean[cellCount];
+            changedCount = 0;
+        }
+        resetChanged();
+        for (int index = 0; index < cellCount; index++) {
+            int updated = mode == Mode.AUTO ? candidatesOf(board, index) : 0;
+            if (marks[index] != updated) {
+                marks[index] = updated;
+                markChanged(index);
+            }
+        }
+    }
+
+    /**
+     * Updates the marks after the value of a cell has been written to the board.
+     *
+     * @param board    The board, already holding the new value.
+     * @param index    The index of the cell.
+     * @param oldValue The previous value, zero for an empty cell.
+     * @param newValue The new value, zero for an empty cell.
+     */
+    void cellChanged(Board board, int index, int oldValue, int newValue) {
+        resetChanged();
+        if (mode == Mode.OFF) {
+            return;
+        }
+        int[] peers = board.getGeometry().peers[index];
+        if (oldValue != 0 && mode == Mode.AUTO) {
+            int bit = 1 << (oldValue - 1);
+            for (int peer : peers) {
+                if ((marks[peer] & bit) == 0 && board.getValue(peer) == 0
+                        && (usedDigits(board, peer) & bit) == 0) {
+                    marks[peer] |= bit;
+                    markChanged(peer);
+                }
+            }
+        }
+        if (newValue != 0) {
+            int bit = 1 << (newValue - 1);
+            for (int peer : peers) {
+                if ((marks[peer] & bit) != 0) {
+                    marks[peer] &= ~bit;
+                    markChanged(peer);
+                }
+            }
+        }
+        int updated = mode == Mode.AUTO ? candidatesOf(board, index) : 0;
+        if (marks[index] != updated) {
+            marks[index] = updated;
+            markChanged(index);
+        }
+    }
+
+    /**
+     * Adds or removes a manual mark of an empty cell.
+     *
+     * @param board The board the marks belong to.
+     * @param index The index of the cell.
+     * @param digit The digit to mark or unmark.
+     * @return True if the mark was changed, false if the mode is not MANUAL or the cell is filled.
+     * @throws IllegalArgumentException if the digit is not on the board.
+     */
+    boolean toggle(Board board, int index, int digit) {
+        if (digit < 1 || digit > board.getGridSize())
+            throw new IllegalArgumentException("Digit " + digit + " is not on the board");
+        resetChanged();
+        if (mode != Mode.MANUAL || board.getValue(index) != 0) {
+            return false;
+        }
+        marks[index] ^= 1 << (digit - 1);
+        markChanged(index);
+        return true;
+    }
+
+    private static int candidatesOf(Board board, int index) {
+        if (board.getValue(index) != 0) {
+            return 0;
+        }
+        return ~usedDigits(board, index) & board.getGeometry().allDigits;
+    }
+
+    private static int usedDigits(Board board, int index) {
+        SudokuGeometry geometry = board.getGeometry();
+        return board.getRowMask(geometry.row[index]) | board.getColMask(geometry.col[index])
+                | board.getBoxMask(geometry.box[index]);
+    }
+
+    private void resetChanged() {
+        for (int i = 0; i < changedCount; i++) {
+            isChanged[changed[i]] = false;
+        }
+        changedCount = 0;
+    }
+
+    private void markChanged(int index) {
+        if (!isChanged[index]) {
+            isChanged[index] = true;
+            changed[changedCount++] = index;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.Arrays;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+
+/**
+ * Maps a standard 9x9 board to its canonical form: the lexicographically smallest board, read in
+ * row-major order, among all boards the SymmetryTransformer group can turn it into. Two boards
+ * have the same canonical form exactly when one is a symmetry of the other, so the canonical form
+ * of the givens identifies a puzzle regardless of how it was shuffled.
+ *
+ * For a fixed arrangement of rows and columns, the smallest relabelling numbers the digits in the
+ * order they first appear, so only the 2 * 1296 * 1296 arrangements need searching. The search
+ * builds the result one row at a time: it starts from every column order of the board and of its
+ * transpose, extends each partial arrangement by every row the band structure allows, and keeps
+ * only the extensions whose new row is the smallest seen at that depth. Most arrangements are
+ * discarded at the first rows, so a puzzle costs a few thousand row evaluations instead of millions.
+ *
+ * Boards with very few givens tie on many arrangements at every depth. The search keeps at most
+ * MAX_FRONTIER partial arrangements and rejects boards that need more.
+ *
+ * A canonicalizer reuses its buffers between calls and is not thread safe.
+ */
+public class PuzzleCanonicalizer {
+    /**
+     * The highest number of partial arrangements kept at one depth of the search.
+     */
+    public static final int MAX_FRONTIER = 1 << 20;
+
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    private static final int LABELS = GRID_SIZE + 1;
+    private static final int[][] PERMUTATIONS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+
+    /** Every order of the columns that keeps stacks together: 6 stack orders times 6^3 orders within the stacks. */
+    private static final int[][] LINE_ORDERS = lineOrders();
+
+    // A state packs the transposition, the column order and the source rows used so far into one
+    // int, and keeps its digit relabelling in LABELS bytes, slot 0 holding the number of labels used.
+    private static final int TRANSPOSE_BIT = 1;
+    private static final int ORDER_SHIFT = 1;
+    private static final int ORDER_MASK = (1 << 11) - 1;
+    private static final int ROWS_SHIFT = 12;
+    private static final int ROWS_MASK = (1 << GRID_SIZE) - 1;
+    private static final int BAND_SHIFT = 21;
+
+    private final int[][] sources = new int[2][CELL_COUNT];
+    private int[] states = new int[1024];
+    private byte[] labels = new byte[1024 * LABELS];
+    private int stateCount;
+    private int[] nextStates = new int[1024];
+    private byte[] nextLabels = new byte[1024 * LABELS];
+    private int nextCount;
+    private final int[] bestRow = new int[GRID_SIZE];
+    private final int[] canonical = new int[CELL_COUNT];
+    private final int[] candidateRow = new int[GRID_SIZE];
+    private final byte[] candidateLabels = new byte[LABELS];
+
+    /**
+     * Computes the canonical form of a board.
+     *
+     * @param grid   The board as 81 values in row-major order, zero representing an empty cell.
+     * @param result An array of 81 values that receives the canonical form; may be grid itself.
+     *               It is only written once the search has succeeded.
+     * @throws IllegalArgumentException if an array does not hold 81 values, a value is outside 0-9,
+     *                                  or the board has too few givens to search within MAX_FRONTIER.
+     */
+    public void canonicalize(int[] grid, int[] result) {
+        if (grid.length != CELL_COUNT || result.length != CELL_COUNT)
+            throw new IllegalArgumentException("Board must hold " + CELL_COUNT + " values");
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (grid[i] < 0 || grid[i] > GRID_SIZE)
+                throw new IllegalArgumentException("Value " + grid[i] + " at cell " + i + " is invalid");
+            sources[0][i] = grid[i];
+            sources[1][(i % GRID_SIZE) * GRID_SIZE + i / GRID_SIZE] = grid[i];
+        }
+
+        stateCount = 0;
+        ensureCapacity(2 * LINE_ORDERS.length);
+        for (int transpose = 0; transpose < 2; transpose++) {
+            for (int order = 0; order < LINE_ORDERS.length; order++) {
+                Arrays.fill(labels, stateCount * LABELS, (stateCount + 1) * LABELS, (byte) 0);
+                states[stateCount++] = transpose | order << ORDER_SHIFT;
+            }
+        }
+
+        for (int depth = 0; depth < GRID_SIZE; depth++) {
+            extend(depth);
+            System.arraycopy(bestRow, 0, canonical, depth * GRID_SIZE, GRID_SIZE);
+        }
+        System.arraycopy(canonical, 0, result, 0, CELL_COUNT);
+    }
+
+    /**
+     * Computes the canonical form of a board into a new array.
+     *
+     * @param grid The board as 81 values in row-major order, zero representing an empty cell.
+     * @return The canonical form.
+     * @throws IllegalArgumentException if the board is invalid, see canonicalize(int[], int[]).
+     */
+    public int[] canonicalize(int[] grid) {
+        int[] result = new int[CELL_COUNT];
+        canonicalize(grid, result);
+        return result;
+    }
+
+    /**
+     * Replaces the states by their extensions with the smallest next row.
+     */
+    private void extend(int depth) {
+        nextCount = 0;
+        boolean haveBest = false;
+        for (int state = 0; state < stateCount; state++) {
+            int packed = states[state];
+            int[] source = sources[packed & TRANSPOSE_BIT];
+            int[] order = LINE_ORDERS[packed >>> ORDER_SHIFT & ORDER_MASK];
+            int usedRows = packed >>> ROWS_SHIFT & ROWS_MASK;
+            int firstBand;
+            int lastBand;
+            if (depth % SECTION_SIZE == 0) {
+                firstBand = 0;
+                lastBand = SECTIONS_PER_ROW - 1;
+            } else {
+                firstBand = packed >>> BAND_SHIFT;
+                lastBand = firstBand;
+            }
+
+            for (int band = firstBand; band <= lastBand; band++) {
+                if (depth % SECTION_SIZE == 0 && (usedRows >>> band * SECTION_SIZE & 7) != 0) {
+                    continue;
+                }
+                for (int row = band * SECTION_SIZE; row < (band + 1) * SECTION_SIZE; row++) {
+                    if ((usedRows & 1 << row) != 0) {
+                        continue;
+                    }
+                    int comparison = evaluate(source, row, order, state, haveBest);
+                    if (comparison > 0) {
+                        continue;
+                    }
+                    if (comparison < 0 || !haveBest) {
+                        System.arraycopy(candidateRow, 0, bestRow, 0, GRID_SIZE);
+                        haveBest = true;
+                        nextCount = 0;
+                    }
+                    addNext((packed & (TRANSPOSE_BIT | ORDER_MASK << ORDER_SHIFT))
+                            | (usedRows | 1 << row) << ROWS_SHIFT | band << BAND_SHIFT);
+                }
+            }
+        }
+
+        int[] swapStates = states;
+        states = nextStates;
+        nextStates = swapStates;
+        byte[] swapLabels = labels;
+        labels = nextLabels;
+        nextLabels = swapLabels;
+        stateCount = nextCount;
+    }
+
+    /**
+     * Relabels one source row under the column order and labels of a state into candidateRow and
+     * candidateLabels, and compares it with bestRow.
+     *
+     * @return Negative, zero or positive as the row is smaller than, equal to or greater than bestRow.
+     * When it is greater, the row is only evaluated up to the first difference.
+     */
+    private int evaluate(int[] source, int row, int[] order, int state, boolean haveBest) {
+        System.arraycopy(labels, state * LABELS, candidateLabels, 0, LABELS);
+        int comparison = haveBest ? 0 : -1;
+        int base = row * GRID_SIZE;
+        for (int col = 0; col < GRID_SIZE; col++) {
+            int value = source[base + order[col]];
+            int label = 0;
+            if (value != 0) {
+                label = candidateLabels[value];
+                if (label == 0) {
+                    label = ++candidateLabels[0];
+                    candidateLabels[value] = (byte) label;
+                }
+            }
+            candidateRow[col] = label;
+            if (comparison == 0 && label != bestRow[col]) {
+                comparison = label < bestRow[col] ? -1 : 1;
+                if (comparison > 0) {
+                    return comparison;
+                }
+            }
+        }
+        return comparison;
+    }
+
+    private void addNext(int packed) {
+        if (nextCount == nextStates.length) {
+            if (nextCount >= MAX_FRONTIER)
+                throw new IllegalArgumentException("Board has too few givens to canonicalize");
+            nextStates = Arrays.copyOf(nextStates, 2 * nextCount);
+            nextLabels = Arrays.copyOf(nextLabels, 2 * nextCount * LABELS);
+        }
+        nextStates[nextCount] = packed;
+        System.arraycopy(candidateLabels, 0, nextLabels, nextCount * LABELS, LABELS);
+        nextCount++;
+    }
+
+    private void ensureCapacity(int count) {
+        if (states.length < count) {
+            states = new int[count];
+            labels = new byte[count * LABELS];
+        }
+    }
+
+    private static int[][] lineOrders() {
+        int[][] orders = new int[PERMUTATIONS.length * PERMUTATIONS.length * PERMUTATIONS.length
+                * PERMUTATIONS.length][GRID_SIZE];
+        int count = 0;
+        for (int[] blocks : PERMUTATIONS) {
+            for (int[] first : PERMUTATIONS) {
+                for (int[] second : PERMUTATIONS) {
+                    for (int[] third : PERMUTATIONS) {
+                        int[][] within = {first, second, third};
+                        for (int position = 0; position < GRID_SIZE; position++) {
+                            int block = position / SECTION_SIZE;
+                            orders[count][position] = blocks[block] * SECTION_SIZE
+                                    + within[block][position % SECTION_SIZE];
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+        return orders;
+    }
+}
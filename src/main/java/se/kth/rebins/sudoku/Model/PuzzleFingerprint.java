@@ -0,0 +1,106 @@
+package se.kth.rebins.sudoku.Model;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * A 128-bit hash of a standard 9x9 board, meant for canonical forms computed by PuzzleCanonicalizer,
+ * so that all symmetries of a puzzle share one fingerprint. The 81 values are packed four bits
+ * each into six words, which are mixed into two independent 64-bit halves. With 128 bits, a
+ * collision between two different puzzles is not expected even among billions of puzzles.
+ */
+public final class PuzzleFingerprint {
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    private static final int VALUES_PER_WORD = Long.SIZE / 4;
+    private static final long SEED_HIGH = 0x243F6A8885A308D3L;
+    private static final long SEED_LOW = 0x13198A2E03707344L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final long high;
+    private final long low;
+
+    /**
+     * Constructs a fingerprint from its two halves, for example as read back from storage.
+     *
+     * @param high The upper 64 bits.
+     * @param low  The lower 64 bits.
+     */
+    public PuzzleFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Computes the fingerprint of a board.
+     *
+     * @param values 81 values in row-major order, from 0 to 9.
+     * @return The fingerprint.
+     * @throws IllegalArgumentException if the array does not hold 81 values.
+     */
+    public static PuzzleFingerprint of(int[] values) {
+        if (values.length != CELL_COUNT)
+            throw new IllegalArgumentException("Board must hold " + CELL_COUNT + " values");
+        long h1 = SEED_HIGH;
+        long h2 = SEED_LOW;
+        for (int start = 0; start < CELL_COUNT; start += VALUES_PER_WORD) {
+            long word = 0;
+            for (int i = start; i < Math.min(start + VALUES_PER_WORD, CELL_COUNT); i++) {
+                word = word << 4 | values[i] & 0xF;
+            }
+            h1 = Long.rotateLeft(h1 ^ mix(word), 27) * 5 + 0x52DCE729;
+            h2 = Long.rotateLeft(h2 ^ mix(word ^ GOLDEN), 31) * 5 + 0x38495AB5;
+            h1 += h2;
+            h2 += h1;
+        }
+        h1 = mix(h1 ^ CELL_COUNT);
+        h2 = mix(h2 ^ CELL_COUNT);
+        return new PuzzleFingerprint(h1 + h2, h2 + 2 * h1);
+    }
+
+    /**
+     * Returns the upper half of the fingerprint.
+     *
+     * @return The upper 64 bits.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns the lower half of the fingerprint.
+     *
+     * @return The lower 64 bits.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PuzzleFingerprint fingerprint && fingerprint.high == high && fingerprint.low == low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high);
+    }
+
+    /**
+     * Returns the fingerprint as 32 hexadecimal digits.
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, which spreads every input bit over the whole word.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,366 @@
+package se.kth.rebins.sudoku.Model;
+
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+
+/**
+ * Generates random Sudoku puzzles with a unique solution.
+ * A random complete grid is produced by SudokuSolver, after which clues are removed
+ * one by one for as long as the puzzle stays uniquely solvable and the target clue
+ * count for the level has not been reached.
+ *
+ * Removing a clue can only add solutions, so a clue whose removal breaks uniqueness
+ * can never be removed later either. The generator uses this to check all remaining
+ * removal candidates in parallel on a fork-join pool, drop the ones that fail for good,
+ * and then commit the survivors.
+ *
+ * Every generated 9x9 puzzle is graded by the DifficultyRater, and generation is retried a few
+ * times until the rating matches the requested level.
+ *
+ * Other board sizes, 4x4, 16x16 and 25x25, are generated in a single attempt, since the rater is
+ * only calibrated for 9x9 boards. A 4x4 board aims for the 9x9 clue target scaled by the number of
+ * cells. Minimal puzzles need a growing share of the cells on larger boards, so their targets are
+ * set per box size instead, and HARD removes clues until the puzzle is minimal. Their complete
+ * grid is not searched for: a pattern grid, in which row r is the first row shifted by
+ * (r % box size) * box size + r / box size, is shuffled by relabelling digits and permuting rows
+ * within bands, bands, columns within stacks and stacks, which keeps it valid and takes linear time
+ * where a randomised search on an empty 25x25 board can take very long. Their uniqueness checks
+ * give up after LARGE_BOARD_MAX_GUESSES guesses and then keep the clue, so a sparse board that
+ * would need a long search to prove unique is never produced.
+ *
+ * A generator is thread safe and may be shared.
+ */
+public class PuzzleGenerator {
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long LARGE_BOARD_MAX_GUESSES = 64;
+
+    // The clue targets of boards above 9x9 in percent of their cells, by box size and level.
+    // Clue removal stops at minimal puzzles of about 37% of a 16x16 and 43% of a 25x25 board,
+    // which the scaled 9x9 targets of MEDIUM and HARD lie below, so HARD aims for no clues at all.
+    private static final int[][] LARGE_BOARD_CLUE_PERCENTS = {
+            null, null, null, null,
+            {50, 43, 0},
+            {55, 48, 0}
+    };
+    private static final Timer GENERATE_TIMER = MetricsRegistry.getShared().timer("generate");
+
+    // One solver and scratch grid per box size and thread, created on first use.
+    private static final ThreadLocal<SudokuSolver[]> solvers =
+            ThreadLocal.withInitial(() -> new SudokuSolver[MAX_SECTION_SIZE + 1]);
+    private static final ThreadLocal<int[][]> scratchGrids =
+            ThreadLocal.withInitial(() -> new int[MAX_SECTION_SIZE + 1][]);
+    private static final ThreadLocal<DifficultyRater> raters = ThreadLocal.withInitial(DifficultyRater::new);
+
+    private final Random random;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a generator using the common fork-join pool.
+     */
+    public PuzzleGenerator() {
+        this(new Random(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a generator.
+     *
+     * @param random The source of randomness for grids and clue removal order.
+     * @param pool   The pool on which removal candidates are checked.
+     */
+    public PuzzleGenerator(Random random, ForkJoinPool pool) {
+        this.random = random;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the number of clues a generated puzzle of the given level aims for.
+     *
+     * @param level The difficulty level.
+     * @return The target number of initial values.
+     */
+    public static int targetClues(SudokuUtilities.SudokuLevel level) {
+        switch (level) {
+            case EASY:
+                return 36;
+            case HARD:
+                return 24;
+            case MEDIUM:
+            default:
+                return 30;
+        }
+    }
+
+    /**
+     * Returns the number of clues a generated puzzle of a level and board size aims for: the 9x9
+     * target scaled by the number of cells up to 9x9, and a share of the cells set per box size
+     * above, where HARD removes clues for as long as the puzzle stays unique.
+     *
+     * @param level    The difficulty level.
+     * @param gridSize The side of the board.
+     * @return The target number of initial values.
+     */
+    public static int targetClues(SudokuUtilities.SudokuLevel level, int gridSize) {
+        int cellCount = gridSize * gridSize;
+        if (gridSize <= GRID_SIZE) {
+            return Math.round(targetClues(level) * (float) cellCount / CELL_COUNT);
+        }
+        int sectionSize = SudokuGeometry.forGridSize(gridSize).sectionSize;
+        return cellCount * LARGE_BOARD_CLUE_PERCENTS[sectionSize][level.ordinal()] / 100;
+    }
+
+    /**
+     * Generates a standard 9x9 puzzle for a difficulty level. If no attempt is rated as the
+     * requested level within a few tries, the attempt whose rating came closest is returned.
+     *
+     * @param level The difficulty level of the puzzle.
+     * @return A 3-dimensional int matrix in the layout of SudokuUtilities.convertStringToIntMatrix.
+     */
+    public int[][][] generate(SudokuUtilities.SudokuLevel level) {
+        long start = GENERATE_TIMER.start();
+        try {
+            return generateRated(level);
+        } finally {
+            GENERATE_TIMER.stop(start);
+        }
+    }
+
+    private int[][][] generateRated(SudokuUtilities.SudokuLevel level) {
+        DifficultyRater rater = raters.get();
+        int[] puzzle = null;
+        int[] solution = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && bestDistance > 0; attempt++) {
+            int[] attemptSolution = new int[CELL_COUNT];
+            int[] attemptPuzzle = generatePuzzle(targetClues(level), attemptSolution);
+            int distance = Math.abs(DifficultyRater.levelOf(rater.rate(attemptPuzzle)).ordinal() - level.ordinal());
+            if (distance < bestDistance) {
+                puzzle = attemptPuzzle;
+                solution = attemptSolution;
+                bestDistance = distance;
+            }
+        }
+
+        return toMatrix(puzzle, solution, GRID_SIZE);
+    }
+
+    /**
+     * Generates a puzzle for a difficulty level and board size. Standard 9x9 puzzles are rated as
+     * by generate(level); other sizes are generated once for the scaled clue target and not rated.
+     *
+     * @param level    The difficulty level of the puzzle.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return A 3-dimensional int matrix of gridSize rows and columns.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public int[][][] generate(SudokuUtilities.SudokuLevel level, int gridSize) {
+        if (gridSize == GRID_SIZE) {
+            return generate(level);
+        }
+        int[] solution = new int[SudokuGeometry.forGridSize(gridSize).cellCount];
+        long start = GENERATE_TIMER.start();
+        try {
+            int[] puzzle = generatePuzzle(targetClues(level, gridSize), solution);
+            return toMatrix(puzzle, solution, gridSize);
+        } finally {
+            GENERATE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Generates a puzzle with a unique solution and as close to a number of clues as possible.
+     * The board size follows from the length of the solution array.
+     *
+     * @param targetClues The number of initial values to stop at.
+     * @param solution    An array of N*N values, 81 for a standard board, that receives the solution of the puzzle.
+     * @return The puzzle as N*N values in row-major order, zero representing an empty cell.
+     * @throws IllegalArgumentException if the length of solution does not belong to a supported board size.
+     */
+    public int[] generatePuzzle(int targetClues, int[] solution) {
+        SudokuGeometry geometry = SudokuGeometry.forCellCount(solution.length);
+        int cellCount = geometry.cellCount;
+        Random random = new Random(this.random.nextLong());
+        if (geometry.gridSize <= GRID_SIZE) {
+            solverFor(geometry).solveRandomly(solution, random);
+        } else {
+            fillPatternGrid(solution, geometry.sectionSize, random);
+        }
+
+        int[] puzzle = solution.clone();
+        int[] candidates = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            candidates[i] = i;
+        }
+        for (int i = cellCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = temp;
+        }
+
+        int clues = cellCount;
+        int remaining = cellCount;
+        boolean[] removable = new boolean[cellCount];
+        SudokuSolver solver = solverFor(geometry);
+
+        while (remaining > 0 && clues > targetClues) {
+            pool.invoke(new RemovalCheck(geometry, puzzle, candidates, removable, 0, remaining));
+
+            // Survivors of the parallel check are removed one by one. The first one needs no
+            // recheck, the others do since the puzzle has changed. A failed recheck drops the
+            // cell for good and hands the rest to the next parallel round.
+            int kept = 0;
+            boolean changed = false;
+            boolean stalled = false;
+            for (int i = 0; i < remaining; i++) {
+                if (!removable[i]) {
+                    continue;
+                }
+                int cell = candidates[i];
+                if (!stalled && clues > targetClues) {
+                    puzzle[cell] = 0;
+                    if (!changed || isUnique(solver, puzzle, geometry)) {
+                        changed = true;
+                        clues--;
+                        continue;
+                    }
+                    puzzle[cell] = solution[cell];
+                    stalled = true;
+                    continue;
+                }
+                candidates[kept++] = cell;
+            }
+            remaining = kept;
+        }
+        return puzzle;
+    }
+
+    /**
+     * Fills a grid with a random shuffle of the pattern grid of a box size.
+     */
+    private static void fillPatternGrid(int[] grid, int sectionSize, Random random) {
+        int gridSize = sectionSize * sectionSize;
+        int[] digits = shuffledLines(gridSize, 1, random);
+        int[] rows = shuffledLines(gridSize, sectionSize, random);
+        int[] cols = shuffledLines(gridSize, sectionSize, random);
+        for (int row = 0; row < gridSize; row++) {
+            int r = rows[row];
+            int shift = (r % sectionSize) * sectionSize + r / sectionSize;
+            for (int col = 0; col < gridSize; col++) {
+                grid[row * gridSize + col] = digits[(shift + cols[col]) % gridSize] + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns a random order of 0 to gridSize - 1 that keeps groups of groupSize consecutive
+     * values together, shuffling the groups and the values within every group.
+     */
+    private static int[] shuffledLines(int gridSize, int groupSize, Random random) {
+        int groupCount = gridSize / groupSize;
+        int[] groups = shuffled(groupCount, random);
+        int[] order = new int[gridSize];
+        for (int group = 0; group < groupCount; group++) {
+            int[] within = shuffled(groupSize, random);
+            for (int line = 0; line < groupSize; line++) {
+                order[group * groupSize + line] = groups[group] * groupSize + within[line];
+            }
+        }
+        return order;
+    }
+
+    private static int[] shuffled(int length, Random random) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = values[i];
+            values[i] = values[j];
+            values[j] = temp;
+        }
+        return values;
+    }
+
+    private static int[][][] toMatrix(int[] puzzle, int[] solution, int gridSize) {
+        int[][][] matrix = new int[gridSize][gridSize][2];
+        for (int i = 0; i < puzzle.length; i++) {
+            matrix[i / gridSize][i % gridSize][0] = puzzle[i];
+            matrix[i / gridSize][i % gridSize][1] = solution[i];
+        }
+        return matrix;
+    }
+
+    /**
+     * Checks uniqueness exhaustively on boards up to 9x9 and within the guess budget on larger boards.
+     */
+    private static boolean isUnique(SudokuSolver solver, int[] grid, SudokuGeometry geometry) {
+        long maxGuesses = geometry.gridSize <= GRID_SIZE ? Long.MAX_VALUE : LARGE_BOARD_MAX_GUESSES;
+        return solver.countSolutions(grid, 2, maxGuesses) == 1;
+    }
+
+    private static SudokuSolver solverFor(SudokuGeometry geometry) {
+        SudokuSolver[] bySize = solvers.get();
+        if (bySize[geometry.sectionSize] == null) {
+            bySize[geometry.sectionSize] = new SudokuSolver(geometry.gridSize);
+        }
+        return bySize[geometry.sectionSize];
+    }
+
+    private static int[] scratchGrid(SudokuGeometry geometry) {
+        int[][] bySize = scratchGrids.get();
+        if (bySize[geometry.sectionSize] == null) {
+            bySize[geometry.sectionSize] = new int[geometry.cellCount];
+        }
+        return bySize[geometry.sectionSize];
+    }
+
+    /**
+     * Checks for a range of candidate cells whether removing just that cell keeps the puzzle unique.
+     */
+    private static class RemovalCheck extends RecursiveAction {
+        @java.io.Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient SudokuGeometry geometry;
+        private final int[] puzzle;
+        private final int[] candidates;
+        private final boolean[] removable;
+        private final int from;
+        private final int to;
+
+        RemovalCheck(SudokuGeometry geometry, int[] puzzle, int[] candidates, boolean[] removable, int from, int to) {
+            this.geometry = geometry;
+            this.puzzle = puzzle;
+            this.candidates = candidates;
+            this.removable = removable;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                SudokuSolver solver = solverFor(geometry);
+                int[] grid = scratchGrid(geometry);
+                for (int i = from; i < to; i++) {
+                    System.arraycopy(puzzle, 0, grid, 0, puzzle.length);
+                    grid[candidates[i]] = 0;
+                    removable[i] = isUnique(solver, grid, geometry);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RemovalCheck(geometry, puzzle, candidates, removable, from, middle),
+                        new RemovalCheck(geometry, puzzle, candidates, removable, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static se.kth.rebins.sudoku.Model.SudokuGeometry.*;
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+
+/**
+ * Imports puzzle collections of any size, one puzzle per line.
+ *
+ * The file is read through a FileChannel in fixed-size chunks, so memory use does not depend on
+ * the size of the file. A line holds 81 cells, '1'-'9' for a given and '0' or '.' for an empty
+ * cell, optionally followed by a separator and further fields such as a rating, which are ignored.
+ * Blank lines and lines starting with '#' are skipped. Lines that are malformed or contain
+ * conflicting givens are rejected and counted.
+ *
+ * Valid puzzles are parsed into the layout of SudokuUtilities.convertStringToIntMatrix and put on
+ * a bounded queue, from which worker threads pass them through the ImportStages in order. When the
+ * stages fall behind, the queue fills up and the reading thread blocks until there is room again,
+ * so a slow stage throttles the reader instead of filling the heap.
+ *
+ * An importer may run one import at a time.
+ */
+public class PuzzleImporter {
+    /**
+     * The number of bytes read from the file at a time.
+     */
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Lines longer than this are rejected without being parsed.
+     */
+    public static final int MAX_LINE_LENGTH = 1024;
+
+    private static final ImportedPuzzle END = new ImportedPuzzle(0, null);
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final ThreadLocal<SudokuSolver> solvers = ThreadLocal.withInitial(SudokuSolver::new);
+    private static final ThreadLocal<DifficultyRater> raters = ThreadLocal.withInitial(DifficultyRater::new);
+    private static final ThreadLocal<PuzzleCanonicalizer> canonicalizers =
+            ThreadLocal.withInitial(PuzzleCanonicalizer::new);
+
+    private final List<ImportStage> stages;
+    private final int workerCount;
+    private final int queueCapacity;
+    private Consumer<ImportStats> progressListener;
+
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private final int[] rowUsed = new int[GRID_SIZE];
+    private final int[] colUsed = new int[GRID_SIZE];
+    private final int[] boxUsed = new int[GRID_SIZE];
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private long linesRead;
+    private long rejected;
+    private long startNanos;
+    private volatile Throwable failure;
+
+    /**
+     * Constructs a new PuzzleImporter with one worker per available processor.
+     *
+     * @param stages The stages every puzzle passes through, in order.
+     */
+    public PuzzleImporter(List<ImportStage> stages) {
+        this(stages, Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    /**
+     * Constructs a new PuzzleImporter.
+     *
+     * @param stages        The stages every puzzle passes through, in order.
+     * @param workerCount   The number of threads running the stages.
+     * @param queueCapacity The number of parsed puzzles that may wait for a worker.
+     */
+    public PuzzleImporter(List<ImportStage> stages, int workerCount, int queueCapacity) {
+        if (workerCount < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("Worker count and queue capacity must be positive");
+        this.stages = List.copyOf(stages);
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets a listener that is called with the counters about once a second during an import,
+     * on the reading thread.
+     *
+     * @param progressListener The listener, or null for none.
+     */
+    public void setProgressListener(Consumer<ImportStats> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Imports all puzzles of a file and waits until every stage has processed them.
+     *
+     * @param path The file to import.
+     * @return The final counters of the import.
+     * @throws IOException          If the file cannot be read, or a stage failed with an exception.
+     * @throws InterruptedException If the thread was interrupted while waiting for the workers.
+     */
+    public ImportStats importFile(Path path) throws IOException, InterruptedException {
+        BlockingQueue<ImportedPuzzle> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Thread[] workers = new Thread[workerCount];
+        linesRead = 0;
+        rejected = 0;
+        dropped.reset();
+        accepted.reset();
+        failure = null;
+        startNanos = System.nanoTime();
+
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(() -> work(queue), "puzzle-import-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        try {
+            read(path, queue);
+        } finally {
+            for (int i = 0; i < workerCount; i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        if (failure != null)
+            throw new IOException("Import stage failed", failure);
+        return getStats();
+    }
+
+    /**
+     * Returns the counters of the current or last import.
+     *
+     * @return A snapshot of the counters.
+     */
+    public ImportStats getStats() {
+        return new ImportStats(linesRead, rejected, dropped.sum(), accepted.sum(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns a stage that solves each puzzle into the solution layer of its matrix and drops
+     * puzzles that do not have exactly one solution.
+     *
+     * @return The solve stage.
+     */
+    public static ImportStage solveStage() {
+        return puzzle -> {
+            int[][][] matrix = puzzle.getMatrix();
+            int[] grid = new int[CELL_COUNT];
+            for (int i = 0; i < CELL_COUNT; i++) {
+                grid[i] = matrix[ROW[i]][COL[i]][0];
+            }
+            if (!solvers.get().solveUnique(grid)) {
+                return false;
+            }
+            for (int i = 0; i < CELL_COUNT; i++) {
+                matrix[ROW[i]][COL[i]][1] = grid[i];
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Returns a stage that rates each puzzle with DifficultyRater and drops puzzles that cannot be rated.
+     *
+     * @return The rate stage.
+     */
+    public static ImportStage rateStage() {
+        return puzzle -> {
+            int[][][] matrix = puzzle.getMatrix();
+            int[] grid = new int[CELL_COUNT];
+            for (int i = 0; i < CELL_COUNT; i++) {
+                grid[i] = matrix[ROW[i]][COL[i]][0];
+            }
+            Rating rating = raters.get().rate(grid);
+            puzzle.setRating(rating);
+            return rating != null;
+        };
+    }
+
+    /**
+     * Returns a stage that drops puzzles whose givens are identical to an earlier puzzle of the import.
+     * The stage remembers every puzzle it has passed, so a new stage should be used for each import.
+     *
+     * @return The dedupe stage.
+     */
+    public static ImportStage dedupeStage() {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        return puzzle -> {
+            int[][][] matrix = puzzle.getMatrix();
+            char[] key = new char[CELL_COUNT];
+            for (int i = 0; i < CELL_COUNT; i++) {
+                key[i] = (char) ('0' + matrix[ROW[i]][COL[i]][0]);
+            }
+            return seen.add(new String(key));
+        };
+    }
+
+    /**
+     * Returns a stage that drops puzzles that are a symmetry of an earlier puzzle of the import:
+     * the same puzzle with its bands, stacks, rows or columns swapped, transposed or relabelled.
+     * Each puzzle is reduced to the PuzzleFingerprint of its canonical form, which is added to an
+     * off-heap index, so the heap used does not grow with the number of puzzles. Boards too sparse
+     * for the PuzzleCanonicalizer are fingerprinted as they are and only match exact copies.
+     *
+     * @param index The index of the puzzles seen, normally new and empty for each import.
+     * @return The canonical dedupe stage.
+     */
+    public static ImportStage canonicalDedupeStage(FingerprintIndex index) {
+        return puzzle -> {
+            int[][][] matrix = puzzle.getMatrix();
+            int[] grid = new int[CELL_COUNT];
+            for (int i = 0; i < CELL_COUNT; i++) {
+                grid[i] = matrix[ROW[i]][COL[i]][0];
+            }
+            try {
+                canonicalizers.get().canonicalize(grid, grid);
+            } catch (IllegalArgumentException e) {
+                // Too few givens; canonicalize leaves grid as read when it fails.
+            }
+            return index.add(PuzzleFingerprint.of(grid));
+        };
+    }
+
+    private void read(Path path, BlockingQueue<ImportedPuzzle> queue) throws IOException, InterruptedException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        long lineNumber = 0;
+        int length = 0;
+        boolean overlong = false;
+        long nextProgress = startNanos + PROGRESS_INTERVAL_NANOS;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1 && failure == null) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b != '\n') {
+                        if (length < MAX_LINE_LENGTH) {
+                            line[length++] = b;
+                        } else {
+                            overlong = true;
+                        }
+                        continue;
+                    }
+                    endLine(++lineNumber, length, overlong, queue);
+                    length = 0;
+                    overlong = false;
+                }
+                buffer.clear();
+
+                if (progressListener != null && System.nanoTime() >= nextProgress) {
+                    progressListener.accept(getStats());
+                    nextProgress = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+                }
+            }
+        }
+        if (length > 0 || overlong) {
+            endLine(++lineNumber, length, overlong, queue);
+        }
+    }
+
+    private void endLine(long lineNumber, int length, boolean overlong, BlockingQueue<ImportedPuzzle> queue)
+            throws InterruptedException {
+        if (isSkipped(length)) {
+            return;
+        }
+        linesRead++;
+        int[][][] matrix = overlong ? null : parse(length);
+        if (matrix == null) {
+            rejected++;
+            return;
+        }
+        queue.put(new ImportedPuzzle(lineNumber, matrix));
+    }
+
+    /**
+     * Checks whether the line in the buffer is blank or a comment.
+     */
+    private boolean isSkipped(int length) {
+        for (int i = 0; i < length; i++) {
+            if (!isWhitespace(line[i])) {
+                return line[i] == '#';
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the line in the buffer.
+     *
+     * @return The puzzle, or null if the line is malformed or has conflicting givens.
+     */
+    private int[][][] parse(int length) {
+        if (length < CELL_COUNT)
+            return null;
+        if (length > CELL_COUNT && !isSeparator(line[CELL_COUNT]))
+            return null;
+
+        for (int i = 0; i < GRID_SIZE; i++) {
+            rowUsed[i] = 0;
+            colUsed[i] = 0;
+            boxUsed[i] = 0;
+        }
+        int[][][] matrix = new int[GRID_SIZE][GRID_SIZE][2];
+        for (int i = 0; i < CELL_COUNT; i++) {
+            byte b = line[i];
+            if (b == '0' || b == '.')
+                continue;
+            if (b < '1' || b > '9')
+                return null;
+            int bit = 1 << (b - '1');
+            if (((rowUsed[ROW[i]] | colUsed[COL[i]] | boxUsed[BOX[i]]) & bit) != 0)
+                return null;
+            rowUsed[ROW[i]] |= bit;
+            colUsed[COL[i]] |= bit;
+            boxUsed[BOX[i]] |= bit;
+            matrix[ROW[i]][COL[i]][0] = b - '0';
+        }
+        return matrix;
+    }
+
+    private void work(BlockingQueue<ImportedPuzzle> queue) {
+        try {
+            ImportedPuzzle puzzle;
+            while ((puzzle = queue.take()) != END) {
+                if (failure != null) {
+                    continue;
+                }
+                if (process(puzzle)) {
+                    accepted.increment();
+                } else {
+                    dropped.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            drainUntilEnd(queue);
+        }
+    }
+
+    private boolean process(ImportedPuzzle puzzle) {
+        for (ImportStage stage : stages) {
+            if (!stage.process(puzzle)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps taking from the queue after a failure, so that the reader is not left blocked on a full queue.
+     */
+    private static void drainUntilEnd(BlockingQueue<ImportedPuzzle> queue) {
+        try {
+            while (queue.take() != END) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isSeparator(byte b) {
+        return isWhitespace(b) || b == ',' || b == ';' || b == ':' || b == '|';
+    }
+}
@@ -0,0 +1,259 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * A read-only file of rated 9x9 puzzles, written by PuzzleLibraryWriter and memory-mapped, so
+ * opening a library of any size reads only its header and taking a puzzle touches one record.
+ * <pre>
+ *   0   int   magic "SDKL"
+ *   4   int   version
+ *   8   int   record size, RECORD_SIZE
+ *   12  int   bucket count, one per level and hardest technique
+ *   16  long  record count
+ *   64  ...   per bucket: long first record, long record count
+ *   HEADER_SIZE  the records, grouped by level, then by hardest technique
+ * </pre>
+ * A record packs the solution into 41 bytes of nibbles and the givens into an 11-byte bitset,
+ * followed by the rating: a short score, a byte of guesses and a byte with the technique ordinal.
+ *
+ * The records of a level are contiguous, so taking a puzzle is a random index into that range
+ * and one decode, in constant time. Every puzzle taken is also passed through a random element
+ * of the symmetry group, so even a small library rarely repeats a board. The file is mapped in
+ * chunks of at most CHUNK_RECORDS records, so libraries larger than 2 GB are supported.
+ * Levels without puzzles, and other board sizes, are served by a fallback source.
+ *
+ * A library may be used from several threads at once.
+ */
+public class PuzzleLibrary implements PuzzleSource, Closeable {
+    /**
+     * The size in bytes of the header, a multiple of RECORD_SIZE.
+     */
+    public static final int HEADER_SIZE = 512;
+
+    /**
+     * The size in bytes of one puzzle record.
+     */
+    public static final int RECORD_SIZE = 64;
+
+    /**
+     * The number of records per mapped chunk of the file, 1 GiB.
+     */
+    public static final int CHUNK_RECORDS = 1 << 24;
+
+    static final int MAGIC = 0x53444B4C;
+    static final int VERSION = 1;
+    static final int TECHNIQUE_COUNT = Technique.values().length;
+    static final int BUCKET_COUNT = SudokuUtilities.SudokuLevel.values().length * TECHNIQUE_COUNT;
+    static final int BUCKET_TABLE = 64;
+
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+    private static final int SOLUTION_BYTES = (CELL_COUNT + 1) / 2;
+    private static final int GIVENS_OFFSET = SOLUTION_BYTES;
+    private static final int RATING_OFFSET = GIVENS_OFFSET + (CELL_COUNT + 7) / 8;
+    private static final ThreadLocal<SymmetryTransformer> transformers =
+            ThreadLocal.withInitial(() -> new SymmetryTransformer(new Random()));
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long[] bucketStarts = new long[BUCKET_COUNT];
+    private final long[] bucketCounts = new long[BUCKET_COUNT];
+    private final long recordCount;
+    private final PuzzleSource fallback;
+
+    /**
+     * Opens a library.
+     *
+     * @param path     The library file.
+     * @param fallback The source of puzzles for levels the library has none of, and for other board sizes.
+     * @throws IOException If the file cannot be read or is not a puzzle library.
+     */
+    public PuzzleLibrary(Path path, PuzzleSource fallback) throws IOException {
+        this.fallback = fallback;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("Not a puzzle library: " + path);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE
+                    || header.getInt(12) != BUCKET_COUNT)
+                throw new IOException("Not a puzzle library: " + path);
+            recordCount = header.getLong(16);
+            if (recordCount < 0 || channel.size() < HEADER_SIZE + recordCount * RECORD_SIZE)
+                throw new IOException("Puzzle library is truncated: " + path);
+            long next = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                bucketStarts[bucket] = header.getLong(BUCKET_TABLE + 16 * bucket);
+                bucketCounts[bucket] = header.getLong(BUCKET_TABLE + 16 * bucket + 8);
+                if (bucketStarts[bucket] != next || bucketCounts[bucket] < 0)
+                    throw new IOException("Puzzle library index is invalid: " + path);
+                next += bucketCounts[bucket];
+            }
+            if (next != recordCount)
+                throw new IOException("Puzzle library index is invalid: " + path);
+
+            chunks = new MappedByteBuffer[(int) ((recordCount + CHUNK_RECORDS - 1) / CHUNK_RECORDS)];
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long first = (long) chunk * CHUNK_RECORDS;
+                long records = Math.min(CHUNK_RECORDS, recordCount - first);
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE,
+                        records * RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of puzzles in the library.
+     *
+     * @return The record count.
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of puzzles of a level.
+     *
+     * @param level The difficulty level.
+     * @return The record count of the level.
+     */
+    public long count(SudokuUtilities.SudokuLevel level) {
+        int first = bucketOf(level, Technique.values()[0]);
+        int last = bucketOf(level, Technique.values()[TECHNIQUE_COUNT - 1]);
+        return bucketStarts[last] + bucketCounts[last] - bucketStarts[first];
+    }
+
+    /**
+     * Returns the number of puzzles of a level whose hardest technique is a given one.
+     *
+     * @param level   The difficulty level.
+     * @param hardest The hardest technique needed to solve the puzzles.
+     * @return The record count of the bucket.
+     */
+    public long count(SudokuUtilities.SudokuLevel level, Technique hardest) {
+        return bucketCounts[bucketOf(level, hardest)];
+    }
+
+    /**
+     * Takes a random puzzle of a level, in a random symmetry. Other board sizes, and levels the
+     * library has no puzzles of, are taken from the fallback source.
+     *
+     * @param level    The difficulty level of the puzzle.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return A 3-dimensional int matrix of gridSize rows and columns.
+     */
+    @Override
+    public int[][][] take(SudokuUtilities.SudokuLevel level, int gridSize) {
+        long count = gridSize == GRID_SIZE ? count(level) : 0;
+        if (count == 0) {
+            return fallback.take(level, gridSize);
+        }
+        long first = bucketStarts[bucketOf(level, Technique.values()[0])];
+        return take(first + ThreadLocalRandom.current().nextLong(count));
+    }
+
+    /**
+     * Takes a random puzzle of a level whose hardest technique is a given one, in a random symmetry.
+     *
+     * @param level   The difficulty level.
+     * @param hardest The hardest technique needed to solve the puzzle.
+     * @return A 3-dimensional int matrix, or null if the library has no such puzzle.
+     */
+    public int[][][] take(SudokuUtilities.SudokuLevel level, Technique hardest) {
+        int bucket = bucketOf(level, hardest);
+        if (bucketCounts[bucket] == 0) {
+            return null;
+        }
+        return take(bucketStarts[bucket] + ThreadLocalRandom.current().nextLong(bucketCounts[bucket]));
+    }
+
+    /**
+     * Reads a puzzle as it is stored.
+     *
+     * @param record The record index, from 0 to size() - 1.
+     * @param flat   An array of 2*81 values that receives the givens, zero for an empty cell,
+     *               followed by the solution, as by SudokuUtilities.toFlatArray.
+     * @throws IndexOutOfBoundsException if the record does not exist.
+     */
+    public void read(long record, int[] flat) {
+        if (record < 0 || record >= recordCount)
+            throw new IndexOutOfBoundsException("Record " + record + " is invalid");
+        decode(chunks[(int) (record / CHUNK_RECORDS)], (int) (record % CHUNK_RECORDS) * RECORD_SIZE, flat);
+    }
+
+    /**
+     * Reads the rating stored with a puzzle.
+     *
+     * @param record The record index, from 0 to size() - 1.
+     * @return The rating.
+     * @throws IndexOutOfBoundsException if the record does not exist.
+     */
+    public Rating getRating(long record) {
+        if (record < 0 || record >= recordCount)
+            throw new IndexOutOfBoundsException("Record " + record + " is invalid");
+        ByteBuffer chunk = chunks[(int) (record / CHUNK_RECORDS)];
+        int offset = (int) (record % CHUNK_RECORDS) * RECORD_SIZE + RATING_OFFSET;
+        return new Rating(chunk.getShort(offset) & 0xFFFF, Technique.values()[chunk.get(offset + 3)],
+                chunk.get(offset + 2) & 0xFF);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int[][][] take(long record) {
+        int[] flat = new int[2 * CELL_COUNT];
+        read(record, flat);
+        transformers.get().transform(flat);
+        return SudokuUtilities.fromFlatArray(flat);
+    }
+
+    static int bucketOf(SudokuUtilities.SudokuLevel level, Technique hardest) {
+        return level.ordinal() * TECHNIQUE_COUNT + hardest.ordinal();
+    }
+
+    /**
+     * Packs a puzzle and its rating into RECORD_SIZE bytes of a buffer.
+     */
+    static void encode(int[] puzzle, int[] solution, Rating rating, ByteBuffer buffer, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+        for (int i = 0; i < CELL_COUNT; i++) {
+            int at = offset + i / 2;
+            int nibble = (i & 1) == 0 ? solution[i] << 4 : solution[i];
+            buffer.put(at, (byte) (buffer.get(at) | nibble));
+            if (puzzle[i] != 0) {
+                int given = offset + GIVENS_OFFSET + i / 8;
+                buffer.put(given, (byte) (buffer.get(given) | 1 << (i % 8)));
+            }
+        }
+        buffer.putShort(offset + RATING_OFFSET, (short) Math.min(rating.getScore(), 0xFFFF));
+        buffer.put(offset + RATING_OFFSET + 2, (byte) Math.min(rating.getGuesses(), 0xFF));
+        buffer.put(offset + RATING_OFFSET + 3, (byte) rating.getHardestTechnique().ordinal());
+    }
+
+    private static void decode(ByteBuffer buffer, int offset, int[] flat) {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            int packed = buffer.get(offset + i / 2);
+            int value = (i & 1) == 0 ? packed >>> 4 & 0xF : packed & 0xF;
+            boolean given = (buffer.get(offset + GIVENS_OFFSET + i / 8) & 1 << (i % 8)) != 0;
+            flat[i] = given ? value : 0;
+            flat[CELL_COUNT + i] = value;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static se.kth.rebins.sudoku.Model.PuzzleLibrary.*;
+
+/**
+ * Writes a PuzzleLibrary from rated puzzles arriving in any order. Each record is appended to a
+ * temporary file of its bucket through a small buffer, so memory use does not depend on the number
+ * of puzzles. finish writes the header and concatenates the bucket files behind it, in level and
+ * technique order, into a temporary library that then replaces the target file atomically.
+ *
+ * add may be called from several threads at once, for example from an ImportStage.
+ */
+public class PuzzleLibraryWriter implements Closeable {
+    private static final int BUFFER_RECORDS = 1024;
+
+    private final Path path;
+    private final Path directory;
+    private final FileChannel[] buckets = new FileChannel[BUCKET_COUNT];
+    private final ByteBuffer[] buffers = new ByteBuffer[BUCKET_COUNT];
+    private final long[] counts = new long[BUCKET_COUNT];
+    private boolean finished;
+
+    /**
+     * Starts a library. Nothing is written to the target file until finish.
+     *
+     * @param path The library file to write, replaced if it exists.
+     * @throws IOException If the temporary directory cannot be created.
+     */
+    public PuzzleLibraryWriter(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        directory = Files.createTempDirectory(this.path.getParent(), "library");
+    }
+
+    /**
+     * Adds a rated puzzle to the bucket of its level and hardest technique.
+     *
+     * @param puzzle   The givens as 81 values in row-major order, zero representing an empty cell.
+     * @param solution The solution as 81 values.
+     * @param rating   The rating of the puzzle, which also decides its level.
+     * @throws IOException If a bucket file cannot be written.
+     */
+    public synchronized void add(int[] puzzle, int[] solution, Rating rating) throws IOException {
+        if (finished)
+            throw new IllegalStateException("Library is already finished");
+        int bucket = bucketOf(DifficultyRater.levelOf(rating), rating.getHardestTechnique());
+        ByteBuffer buffer = buffers[bucket];
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+            buffers[bucket] = buffer;
+            buckets[bucket] = FileChannel.open(directory.resolve(bucket + ".bin"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        encode(puzzle, solution, rating, buffer, buffer.position());
+        buffer.position(buffer.position() + RECORD_SIZE);
+        counts[bucket]++;
+        if (!buffer.hasRemaining()) {
+            flush(bucket);
+        }
+    }
+
+    /**
+     * Returns the number of puzzles added so far.
+     *
+     * @return The record count.
+     */
+    public synchronized long size() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Writes the library file and removes the temporary files.
+     *
+     * @throws IOException If the library cannot be written.
+     */
+    public synchronized void finish() throws IOException {
+        if (finished)
+            throw new IllegalStateException("Library is already finished");
+        finished = true;
+        Path temp = directory.resolve("library.tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, RECORD_SIZE);
+            header.putInt(12, BUCKET_COUNT);
+            long first = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                header.putLong(BUCKET_TABLE + 16 * bucket, first);
+                header.putLong(BUCKET_TABLE + 16 * bucket + 8, counts[bucket]);
+                first += counts[bucket];
+            }
+            header.putLong(16, first);
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                if (buckets[bucket] == null) {
+                    continue;
+                }
+                flush(bucket);
+                buckets[bucket].close();
+                try (FileChannel in = FileChannel.open(directory.resolve(bucket + ".bin"), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long done = 0; done < size; ) {
+                        done += in.transferTo(done, size - done, out);
+                    }
+                }
+            }
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        close();
+    }
+
+    /**
+     * Removes the temporary files. A library that was not finished is discarded.
+     *
+     * @throws IOException If a temporary file cannot be removed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        finished = true;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            if (buckets[bucket] != null) {
+                buckets[bucket].close();
+                Files.deleteIfExists(directory.resolve(bucket + ".bin"));
+            }
+        }
+        Files.deleteIfExists(directory.resolve("library.tmp"));
+        Files.deleteIfExists(directory);
+    }
+
+    private void flush(int bucket) throws IOException {
+        ByteBuffer buffer = buffers[bucket];
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            buckets[bucket].write(buffer);
+        }
+        buffer.clear();
+    }
+}
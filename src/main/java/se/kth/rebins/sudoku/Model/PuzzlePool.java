@@ -0,0 +1,256 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of ready puzzles per difficulty level and board size, kept topped up by a
+ * background producer. Taking a puzzle is a constant time poll of a queue, so callers on the JavaFX
+ * Application Thread only pay for generation when the pool for the requested level has run dry.
+ *
+ * Standard 9x9 puzzles are always pooled. A pool may also keep a few puzzles of every other board
+ * size, since a 25x25 puzzle takes over a second to generate; sizes that are not pooled are
+ * generated on the calling thread.
+ *
+ * The producer is a daemon thread that sleeps on a semaphore counting the free slots of all queues.
+ * Every taken puzzle releases one permit, which wakes the producer to refill the queue that is
+ * emptiest relative to its capacity, 9x9 queues first among equals.
+ * A generation that fails is reported on standard error and retried after a pause, so one bad
+ * run does not leave the pool empty for the rest of the session.
+ */
+public class PuzzlePool implements PuzzleSource {
+    /**
+     * The number of puzzles kept ready per level by the shared pool.
+     */
+    public static final int DEFAULT_CAPACITY = 3;
+
+    /**
+     * The number of puzzles of every other board size kept ready per level by the shared pool.
+     */
+    public static final int DEFAULT_OTHER_SIZE_CAPACITY = 1;
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private static PuzzlePool shared;
+
+    // The queues in the order the producer prefers among equally empty ones.
+    private final List<Slot> slots = new ArrayList<>();
+    private final PuzzleGenerator generator;
+    private final Semaphore freeSlots;
+    private final Thread producer;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructs a pool of standard 9x9 puzzles and starts its producer thread.
+     *
+     * @param generator The generator used to fill the pool and to serve misses.
+     * @param capacity  The number of puzzles to keep ready per level.
+     */
+    public PuzzlePool(PuzzleGenerator generator, int capacity) {
+        this(generator, capacity, 0);
+    }
+
+    /**
+     * Constructs a pool of puzzles of all board sizes and starts its producer thread.
+     *
+     * @param generator         The generator used to fill the pool and to serve misses.
+     * @param capacity          The number of 9x9 puzzles to keep ready per level.
+     * @param otherSizeCapacity The number of puzzles of every other board size to keep ready per
+     *                          level, or 0 to generate them on the calling thread.
+     */
+    public PuzzlePool(PuzzleGenerator generator, int capacity, int otherSizeCapacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity " + capacity + " is invalid");
+        if (otherSizeCapacity < 0)
+            throw new IllegalArgumentException("Capacity " + otherSizeCapacity + " is invalid");
+
+        this.generator = generator;
+        addSlots(SudokuUtilities.GRID_SIZE, capacity);
+        if (otherSizeCapacity > 0) {
+            for (int sectionSize = SudokuUtilities.MIN_SECTION_SIZE;
+                 sectionSize <= SudokuUtilities.MAX_SECTION_SIZE; sectionSize++) {
+                if (sectionSize != SudokuUtilities.SECTION_SIZE) {
+                    addSlots(sectionSize * sectionSize, otherSizeCapacity);
+                }
+            }
+        }
+        int permits = 0;
+        for (Slot slot : slots) {
+            permits += slot.capacity;
+        }
+        freeSlots = new Semaphore(permits);
+
+        producer = new Thread(this::produce, "puzzle-pool");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+
+    /**
+     * Returns the pool shared by all Facades that are not given a pool of their own.
+     *
+     * @return The shared pool, created on first use.
+     */
+    public static synchronized PuzzlePool getShared() {
+        if (shared == null) {
+            shared = new PuzzlePool(new PuzzleGenerator(), DEFAULT_CAPACITY, DEFAULT_OTHER_SIZE_CAPACITY);
+        }
+        return shared;
+    }
+
+    /**
+     * Takes a ready puzzle of a level, or generates one on the calling thread if none is ready.
+     *
+     * @param level The difficulty level of the puzzle.
+     * @return A 3-dimensional int matrix in the layout of SudokuUtilities.convertStringToIntMatrix.
+     */
+    @Override
+    public int[][][] take(SudokuUtilities.SudokuLevel level) {
+        return take(level, SudokuUtilities.GRID_SIZE);
+    }
+
+    /**
+     * Takes a ready puzzle of a level and board size, or generates one on the calling thread if
+     * none is ready. Sizes this pool does not keep are always generated and not counted as hits
+     * or misses.
+     *
+     * @param level    The difficulty level of the puzzle.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return A 3-dimensional int matrix of gridSize rows and columns.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    @Override
+    public int[][][] take(SudokuUtilities.SudokuLevel level, int gridSize) {
+        Slot slot = slotFor(level, gridSize);
+        if (slot == null) {
+            return generator.generate(level, gridSize);
+        }
+        int[][][] matrix = slot.queue.poll();
+        if (matrix != null) {
+            hits.incrementAndGet();
+            freeSlots.release();
+            return matrix;
+        }
+        misses.incrementAndGet();
+        return generator.generate(level, gridSize);
+    }
+
+    /**
+     * Returns the number of 9x9 puzzles currently ready for a level.
+     *
+     * @param level The difficulty level.
+     * @return The number of pooled puzzles.
+     */
+    public int available(SudokuUtilities.SudokuLevel level) {
+        return available(level, SudokuUtilities.GRID_SIZE);
+    }
+
+    /**
+     * Returns the number of puzzles currently ready for a level and board size.
+     *
+     * @param level    The difficulty level.
+     * @param gridSize The side of the board.
+     * @return The number of pooled puzzles, 0 for a size this pool does not keep.
+     */
+    public int available(SudokuUtilities.SudokuLevel level, int gridSize) {
+        Slot slot = slotFor(level, gridSize);
+        return slot == null ? 0 : slot.queue.size();
+    }
+
+    /**
+     * Returns how many calls to take were served from the pool.
+     *
+     * @return The hit count.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many calls to take had to generate a puzzle synchronously.
+     *
+     * @return The miss count.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns how many background generations failed and were retried.
+     *
+     * @return The failure count.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Stops the producer thread. Puzzles already in the pool can still be taken.
+     */
+    public void shutdown() {
+        producer.interrupt();
+    }
+
+    private void produce() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                freeSlots.acquire();
+                Slot emptiest = null;
+                for (Slot slot : slots) {
+                    if (emptiest == null
+                            || slot.queue.size() * emptiest.capacity < emptiest.queue.size() * slot.capacity) {
+                        emptiest = slot;
+                    }
+                }
+                try {
+                    emptiest.queue.offer(generator.generate(emptiest.level, emptiest.gridSize));
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println("Could not generate a " + emptiest.gridSize + "x" + emptiest.gridSize + " "
+                            + emptiest.level + " puzzle for the pool: " + e);
+                    freeSlots.release();
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addSlots(int gridSize, int capacity) {
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            slots.add(new Slot(level, gridSize, capacity));
+        }
+    }
+
+    private Slot slotFor(SudokuUtilities.SudokuLevel level, int gridSize) {
+        for (Slot slot : slots) {
+            if (slot.level == level && slot.gridSize == gridSize) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The queue of ready puzzles of one level and board size.
+     */
+    private static class Slot {
+        final SudokuUtilities.SudokuLevel level;
+        final int gridSize;
+        final int capacity;
+        final ArrayBlockingQueue<int[][][]> queue;
+
+        Slot(SudokuUtilities.SudokuLevel level, int gridSize, int capacity) {
+            this.level = level;
+            this.gridSize = gridSize;
+            this.capacity = capacity;
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
\ No newline at end of file
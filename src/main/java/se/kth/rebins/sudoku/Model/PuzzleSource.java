@@ -0,0 +1,30 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * Supplies new puzzles to a Facade: a PuzzlePool of generated puzzles, a PuzzleLibrary read
+ * from disk, or simply a PuzzleGenerator as generator::generate.
+ */
+@FunctionalInterface
+public interface PuzzleSource {
+
+    /**
+     * Returns a puzzle of a level and board size.
+     *
+     * @param level    The difficulty level of the puzzle.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return A 3-dimensional int matrix of gridSize rows and columns, in the layout of
+     * SudokuUtilities.convertStringToIntMatrix.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    int[][][] take(SudokuUtilities.SudokuLevel level, int gridSize);
+
+    /**
+     * Returns a standard 9x9 puzzle of a level.
+     *
+     * @param level The difficulty level of the puzzle.
+     * @return A 3-dimensional int matrix in the layout of SudokuUtilities.convertStringToIntMatrix.
+     */
+    default int[][][] take(SudokuUtilities.SudokuLevel level) {
+        return take(level, SudokuUtilities.GRID_SIZE);
+    }
+}
@@ -0,0 +1,55 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * The difficulty of a puzzle as measured by the DifficultyRater.
+ */
+public class Rating {
+    private final int score;
+    private final Technique hardestTechnique;
+    private final int guesses;
+
+    /**
+     * Constructs a new Rating.
+     *
+     * @param score            The sum of the technique weights of all placements.
+     * @param hardestTechnique The hardest technique needed to solve the puzzle.
+     * @param guesses          The number of placements that needed trial and error.
+     */
+    public Rating(int score, Technique hardestTechnique, int guesses) {
+        this.score = score;
+        this.hardestTechnique = hardestTechnique;
+        this.guesses = guesses;
+    }
+
+    /**
+     * Returns the difficulty score, the sum of the technique weights of all placements.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the hardest technique needed to solve the puzzle.
+     *
+     * @return The hardest technique.
+     */
+    public Technique getHardestTechnique() {
+        return hardestTechnique;
+    }
+
+    /**
+     * Returns the number of placements that could not be deduced with the known techniques.
+     *
+     * @return The number of guesses.
+     */
+    public int getGuesses() {
+        return guesses;
+    }
+
+    @Override
+    public String toString() {
+        return score + " (" + hardestTechnique.getDisplayName() + ")";
+    }
+}
@@ -0,0 +1,182 @@
+package se.kth.rebins.sudoku.Model;
+
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file with a fixed number of save slots, each holding one SaveFormat record.
+ * The whole file is memory-mapped, so saving or loading a slot is a positional write or read
+ * in the mapped buffer at HEADER_SIZE + slot * slot size, with no parsing and no other slots touched.
+ * <pre>
+ *   0  int  magic "SDKA"
+ *   4  int  archive version
+ *   8  int  slot count
+ *  12  int  slot size, SaveFormat.MAX_RECORD_SIZE (version 1 has no such field and 128-byte slots)
+ *  16  ...  reserved up to HEADER_SIZE
+ * </pre>
+ * An empty slot is all zeros. Archives of version 1 are still opened, but their slots only
+ * fit 9x9 games. An archive is not thread safe.
+ */
+public class SaveArchive implements Closeable {
+    /**
+     * The size in bytes of the archive header.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC = 0x53444B41;
+    private static final int VERSION = 2;
+    private static final int STANDARD_VERSION = 1;
+    private static final Timer SAVE_TIMER = MetricsRegistry.getShared().timer("save.slot");
+    private static final Timer LOAD_TIMER = MetricsRegistry.getShared().timer("load.slot");
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int slotSize;
+
+    /**
+     * Opens an archive, creating it with a number of empty slots if the file does not exist.
+     *
+     * @param path      The archive file.
+     * @param slotCount The number of slots of a new archive. An existing archive keeps its own count.
+     * @throws IOException If the file cannot be opened or is not an archive.
+     */
+    public SaveArchive(Path path, int slotCount) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                this.slotCount = slotCount;
+                slotSize = SaveFormat.MAX_RECORD_SIZE;
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(slotCount, slotSize));
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, slotCount);
+                buffer.putInt(12, slotSize);
+            } else {
+                if (channel.size() < HEADER_SIZE)
+                    throw new IOException("Not a save archive: " + path);
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                int version = header.getInt(4);
+                if (header.getInt(0) != MAGIC || (version != VERSION && version != STANDARD_VERSION))
+                    throw new IOException("Not a save archive: " + path);
+                this.slotCount = header.getInt(8);
+                slotSize = version == STANDARD_VERSION ? SaveFormat.RECORD_SIZE : header.getInt(12);
+                if (slotSize < SaveFormat.RECORD_SIZE)
+                    throw new IOException("Not a save archive: " + path);
+                if (this.slotCount < 0 || channel.size() < fileSize(this.slotCount, slotSize))
+                    throw new IOException("Save archive is truncated: " + path);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(this.slotCount, slotSize));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of slots in the archive.
+     *
+     * @return The slot count.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the size of a slot, which limits the size of the boards the archive can hold.
+     *
+     * @return The slot size in bytes.
+     */
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Checks whether a slot holds a saved game.
+     *
+     * @param slot The slot index.
+     * @return True if the slot is in use.
+     */
+    public boolean isUsed(int slot) {
+        return SaveFormat.isRecord(buffer, offset(slot));
+    }
+
+    /**
+     * Saves a game into a slot, replacing what was there.
+     *
+     * @param slot  The slot index.
+     * @param board The board to save.
+     * @param level The difficulty level of the game.
+     * @throws IllegalArgumentException if the board does not fit in a slot of this archive.
+     */
+    public void save(int slot, Board board, SudokuUtilities.SudokuLevel level) {
+        if (SaveFormat.recordSize(board.getGridSize()) > slotSize)
+            throw new IllegalArgumentException("A " + board.getGridSize() + "x" + board.getGridSize()
+                    + " game does not fit in a slot of this archive");
+        long start = SAVE_TIMER.start();
+        SaveFormat.encode(board, level, buffer, offset(slot));
+        SAVE_TIMER.stop(start);
+    }
+
+    /**
+     * Loads the game saved in a slot.
+     *
+     * @param slot  The slot index.
+     * @param board The board to load the game into.
+     * @return The difficulty level of the game.
+     * @throws IOException If the slot is empty or its record is invalid.
+     */
+    public SudokuUtilities.SudokuLevel load(int slot, Board board) throws IOException {
+        if (!isUsed(slot))
+            throw new IOException("Slot " + slot + " is empty");
+        long start = LOAD_TIMER.start();
+        try {
+            return SaveFormat.decode(buffer, offset(slot), board);
+        } finally {
+            LOAD_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Empties a slot.
+     *
+     * @param slot The slot index.
+     */
+    public void clear(int slot) {
+        int offset = offset(slot);
+        for (int i = 0; i < slotSize; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+    }
+
+    /**
+     * Forces all changes to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int offset(int slot) {
+        if (slot < 0 || slot >= slotCount)
+            throw new IndexOutOfBoundsException("Slot " + slot + " is invalid");
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private static long fileSize(int slotCount, int slotSize) {
+        return HEADER_SIZE + (long) slotCount * slotSize;
+    }
+}
@@ -0,0 +1,195 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * The versioned binary format of a saved game. A game takes one fixed-size record, whose size
+ * depends on the size of the board:
+ * <pre>
+ *   0  int    magic "SDKU"
+ *   4  byte   format version
+ *   5  byte   difficulty level, the ordinal of SudokuUtilities.SudokuLevel
+ *   6  byte   grid size, the side of the board (zero in version 1, which only stores 9x9 boards)
+ *   7  byte   reserved, zero
+ *   8  int    CRC32 of bytes 12 up to the record size
+ *  12  ...    current values, one cell per nibble, high nibble first, on boards up to 9x9,
+ *             otherwise one cell per byte
+ *      ...    solution, packed the same way
+ *      ...    given cells as a bitset, cell i in bit (i % 8) of byte i / 8
+ *      ...    reserved, zero, up to the next multiple of 64 bytes
+ * </pre>
+ * A 9x9 game has its values at 12, its solution at 53 and its givens at 94, and takes
+ * RECORD_SIZE bytes, the same layout as version 1, which is still read.
+ * Records are read and written at absolute positions of a ByteBuffer, so the same code serves
+ * single save files and the slots of a memory-mapped SaveArchive.
+ */
+public class SaveFormat {
+    /**
+     * The size in bytes of one saved 9x9 game.
+     */
+    public static final int RECORD_SIZE = 128;
+
+    /**
+     * The size in bytes of one saved game of the largest supported board.
+     */
+    public static final int MAX_RECORD_SIZE = recordSize(SudokuUtilities.MAX_GRID_SIZE);
+
+    /**
+     * The magic number at the start of every record, "SDKU" in ASCII.
+     */
+    public static final int MAGIC = 0x53444B55;
+
+    /**
+     * The current format version.
+     */
+    public static final byte VERSION = 2;
+
+    private static final byte STANDARD_VERSION = 1;
+    private static final int CHECKED_OFFSET = 12;
+    private static final int VALUES_OFFSET = CHECKED_OFFSET;
+    private static final int NIBBLE_MAX_GRID_SIZE = 9;
+
+    /**
+     * Returns the size of the record of a board size.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return The record size in bytes, a multiple of 64.
+     */
+    public static int recordSize(int gridSize) {
+        int cellCount = gridSize * gridSize;
+        int size = VALUES_OFFSET + 2 * valueBytes(gridSize) + (cellCount + 7) / 8;
+        return (size + 63) & ~63;
+    }
+
+    /**
+     * Writes a game as one record of recordSize(board.getGridSize()) bytes.
+     *
+     * @param board  The board to save.
+     * @param level  The difficulty level of the game.
+     * @param buffer The buffer to write to.
+     * @param offset The absolute position of the record in the buffer.
+     */
+    public static void encode(Board board, SudokuUtilities.SudokuLevel level, ByteBuffer buffer, int offset) {
+        int gridSize = board.getGridSize();
+        int cellCount = board.getCellCount();
+        int recordSize = recordSize(gridSize);
+        int solutionOffset = VALUES_OFFSET + valueBytes(gridSize);
+        int givensOffset = solutionOffset + valueBytes(gridSize);
+        boolean nibbles = gridSize <= NIBBLE_MAX_GRID_SIZE;
+        for (int i = 0; i < recordSize; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+        buffer.putInt(offset, MAGIC);
+        buffer.put(offset + 4, VERSION);
+        buffer.put(offset + 5, (byte) level.ordinal());
+        buffer.put(offset + 6, (byte) gridSize);
+
+        for (int i = 0; i < cellCount; i++) {
+            if (nibbles) {
+                int shift = (i & 1) == 0 ? 4 : 0;
+                int valuesAt = offset + VALUES_OFFSET + i / 2;
+                int solutionAt = offset + solutionOffset + i / 2;
+                buffer.put(valuesAt, (byte) (buffer.get(valuesAt) | board.getValue(i) << shift));
+                buffer.put(solutionAt, (byte) (buffer.get(solutionAt) | board.getSolution(i) << shift));
+            } else {
+                buffer.put(offset + VALUES_OFFSET + i, (byte) board.getValue(i));
+                buffer.put(offset + solutionOffset + i, (byte) board.getSolution(i));
+            }
+            if (board.isGiven(i)) {
+                int givensAt = offset + givensOffset + i / 8;
+                buffer.put(givensAt, (byte) (buffer.get(givensAt) | 1 << (i % 8)));
+            }
+        }
+        buffer.putInt(offset + 8, checksum(buffer, offset, recordSize));
+    }
+
+    /**
+     * Reads a game from one record. The board takes on the size of the saved game.
+     *
+     * @param buffer The buffer to read from.
+     * @param offset The absolute position of the record in the buffer.
+     * @param board  The board to load the game into.
+     * @return The difficulty level of the game.
+     * @throws IOException If the record has the wrong magic number, version or size, or a checksum mismatch.
+     */
+    public static SudokuUtilities.SudokuLevel decode(ByteBuffer buffer, int offset, Board board) throws IOException {
+        if (buffer.getInt(offset) != MAGIC)
+            throw new IOException("Not a saved Sudoku game");
+        int gridSize = gridSizeOf(buffer, offset);
+        if (gridSize < 0)
+            throw new IOException("Unsupported save format version " + buffer.get(offset + 4));
+        if (!SudokuUtilities.isSupportedGridSize(gridSize))
+            throw new IOException("Saved game has unsupported grid size " + gridSize);
+        int recordSize = recordSize(gridSize);
+        if (buffer.limit() < offset + recordSize)
+            throw new IOException("Saved game is truncated");
+        if (buffer.getInt(offset + 8) != checksum(buffer, offset, recordSize))
+            throw new IOException("Saved game is corrupt");
+        int level = buffer.get(offset + 5);
+        if (level < 0 || level >= SudokuUtilities.SudokuLevel.values().length)
+            throw new IOException("Saved game has invalid level " + level);
+
+        int cellCount = gridSize * gridSize;
+        int solutionOffset = VALUES_OFFSET + valueBytes(gridSize);
+        int givensOffset = solutionOffset + valueBytes(gridSize);
+        boolean nibbles = gridSize <= NIBBLE_MAX_GRID_SIZE;
+        board.resize(gridSize);
+        board.clear();
+        for (int i = 0; i < cellCount; i++) {
+            int value;
+            int solution;
+            if (nibbles) {
+                int shift = (i & 1) == 0 ? 4 : 0;
+                value = buffer.get(offset + VALUES_OFFSET + i / 2) >> shift & 0xF;
+                solution = buffer.get(offset + solutionOffset + i / 2) >> shift & 0xF;
+            } else {
+                value = buffer.get(offset + VALUES_OFFSET + i) & 0xFF;
+                solution = buffer.get(offset + solutionOffset + i) & 0xFF;
+            }
+            boolean given = (buffer.get(offset + givensOffset + i / 8) & 1 << (i % 8)) != 0;
+            if (value > gridSize || solution > gridSize)
+                throw new IOException("Saved game has invalid values");
+            board.loadCell(i, value, solution, given);
+        }
+        return SudokuUtilities.SudokuLevel.values()[level];
+    }
+
+    /**
+     * Checks whether a buffer holds a record of this format at a position, without validating it.
+     *
+     * @param buffer The buffer to inspect.
+     * @param offset The absolute position in the buffer.
+     * @return True if the record starts with the magic number.
+     */
+    public static boolean isRecord(ByteBuffer buffer, int offset) {
+        return buffer.limit() >= offset + CHECKED_OFFSET && buffer.getInt(offset) == MAGIC;
+    }
+
+    /**
+     * Returns the size of the board saved in a record, without validating the record.
+     *
+     * @param buffer The buffer to inspect.
+     * @param offset The absolute position of the record in the buffer.
+     * @return The side of the board, or -1 if the record has an unknown version.
+     */
+    public static int gridSizeOf(ByteBuffer buffer, int offset) {
+        byte version = buffer.get(offset + 4);
+        if (version == STANDARD_VERSION) {
+            return SudokuUtilities.GRID_SIZE;
+        }
+        return version == VERSION ? buffer.get(offset + 6) & 0xFF : -1;
+    }
+
+    private static int valueBytes(int gridSize) {
+        int cellCount = gridSize * gridSize;
+        return gridSize <= NIBBLE_MAX_GRID_SIZE ? (cellCount + 1) / 2 : cellCount;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int recordSize) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + CHECKED_OFFSET, recordSize - CHECKED_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,113 @@
+package se.kth.rebins.sudoku.Model;
+
+import se.kth.rebins.sudoku.Metrics.Counter;
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs analyses of a game on a background thread, so the thread that plays the game never waits
+ * for them and the board never needs a lock. Each analysis is given a BoardSnapshot taken when it
+ * was submitted, and its result is handed back through a delivery executor, usually the thread
+ * that plays the game, such as Platform::runLater for JavaFX.
+ *
+ * A result is only delivered if the game is still at the version of its snapshot when the result
+ * arrives on the delivery thread; otherwise it is dropped and counted as "analysis.discarded".
+ * An analysis whose snapshot is already stale when the worker reaches it is not run at all.
+ * A caller that must answer the user either way, such as a hint, can pass an onStale action to
+ * submit the analysis again for the new version.
+ */
+public class SnapshotWorker implements Closeable {
+    private static final Counter DISCARDED = MetricsRegistry.getShared().counter("analysis.discarded");
+
+    private final Facade facade;
+    private final Executor delivery;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a worker with its own daemon thread.
+     *
+     * @param facade   The game to analyze.
+     * @param delivery The executor that hands results to the thread playing the game.
+     * @param name     The name of the worker thread.
+     */
+    public SnapshotWorker(Facade facade, Executor delivery, String name) {
+        this.facade = facade;
+        this.delivery = delivery;
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Analyzes a snapshot of the current game in the background. Must be called on the thread
+     * that plays the game.
+     *
+     * @param analysis The analysis, run on the worker thread. It may check Thread.interrupted()
+     *                 to stop early when its Future is cancelled.
+     * @param onResult Receives the result on the delivery thread, if the game has not changed.
+     * @param <T>      The type of the result.
+     * @return A Future that cancels the analysis if it has not finished yet.
+     */
+    public <T> Future<?> submit(Function<? super BoardSnapshot, ? extends T> analysis, Consumer<? super T> onResult) {
+        return submit(analysis, onResult, null);
+    }
+
+    /**
+     * Analyzes a snapshot of the current game in the background, and runs an action instead of
+     * delivering the result if the game changed in the meantime. Must be called on the thread that
+     * plays the game.
+     *
+     * @param analysis The analysis, run on the worker thread. It may check Thread.interrupted()
+     *                 to stop early when its Future is cancelled.
+     * @param onResult Receives the result on the delivery thread, if the game has not changed.
+     * @param onStale  Runs on the delivery thread when the result is dropped because the game has
+     *                 changed, or null. It is not run for a cancelled analysis.
+     * @param <T>      The type of the result.
+     * @return A Future that cancels the analysis if it has not finished yet.
+     */
+    public <T> Future<?> submit(Function<? super BoardSnapshot, ? extends T> analysis, Consumer<? super T> onResult,
+                                Runnable onStale) {
+        BoardSnapshot snapshot = facade.getSnapshot();
+        return executor.submit(() -> {
+            if (!facade.isCurrent(snapshot)) {
+                discard(onStale);
+                return;
+            }
+            T result = analysis.apply(snapshot);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            delivery.execute(() -> {
+                if (facade.isCurrent(snapshot)) {
+                    onResult.accept(result);
+                } else {
+                    discard(onStale);
+                }
+            });
+        });
+    }
+
+    private void discard(Runnable onStale) {
+        DISCARDED.increment();
+        if (onStale != null) {
+            delivery.execute(onStale);
+        }
+    }
+
+    /**
+     * Stops the worker thread. Analyses not yet run are dropped.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,172 @@
+package se.kth.rebins.sudoku.Model;
+
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Checks after every move, on a SnapshotWorker, whether the values on the board can still be
+ * completed, and reports the cells that contradict the rules.
+ *
+ * Moves arriving in a burst, such as clearing all placed cells, are coalesced: the analyzer
+ * schedules one analysis through the delivery executor and takes its snapshot when that runs.
+ * A newer move cancels the analysis in flight, and a report of an older version is never delivered.
+ *
+ * Conflicting values and empty cells without candidates are found in one pass over the board.
+ * Every puzzle has exactly one solution, the one stored with the board, so no search is needed:
+ * the board can be completed exactly when all of its values agree with that solution, and one
+ * wrong value makes it unsolvable even if no rule is broken yet.
+ */
+public final class SolvabilityAnalyzer implements BoardListener, Closeable {
+    private static final Timer ANALYZE_TIMER = MetricsRegistry.getShared().timer("solvability");
+
+    private final Facade facade;
+    private final Executor delivery;
+    private final Consumer<SolvabilityReport> onReport;
+    private final SnapshotWorker worker;
+    private final Runnable analyzeTask = this::analyzeCurrent;
+    private boolean scheduled;
+    private Future<?> running;
+
+    /**
+     * Constructs an analyzer and analyzes the current game. Must be called on the thread that
+     * plays the game.
+     *
+     * @param facade   The game to analyze.
+     * @param delivery The executor of the thread that plays the game, such as Platform::runLater.
+     * @param onReport Receives each report on the delivery thread.
+     */
+    public SolvabilityAnalyzer(Facade facade, Executor delivery, Consumer<SolvabilityReport> onReport) {
+        this.facade = facade;
+        this.delivery = delivery;
+        this.onReport = onReport;
+        worker = new SnapshotWorker(facade, delivery, "solvability");
+        facade.addListener(this);
+        requestAnalysis();
+    }
+
+    @Override
+    public void cellChanged(int row, int col, int oldValue, int newValue) {
+        requestAnalysis();
+    }
+
+    @Override
+    public void boardReplaced() {
+        requestAnalysis();
+    }
+
+    /**
+     * Cancels the analysis in flight, if any, and schedules an analysis of the game as it is once
+     * the current burst of moves is over.
+     */
+    private void requestAnalysis() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+        if (!scheduled) {
+            scheduled = true;
+            delivery.execute(analyzeTask);
+        }
+    }
+
+    private void analyzeCurrent() {
+        scheduled = false;
+        if (running != null) {
+            running.cancel(true);
+        }
+        running = worker.submit(SolvabilityAnalyzer::analyze, onReport);
+    }
+
+    /**
+     * Analyzes a snapshot. It may be called from any thread.
+     *
+     * @param snapshot The board to analyze.
+     * @return The report.
+     */
+    public static SolvabilityReport analyze(BoardSnapshot snapshot) {
+        long start = System.nanoTime();
+        long timerStart = ANALYZE_TIMER.start();
+        try {
+            SudokuGeometry geometry = snapshot.getGeometry();
+            int[] grid = snapshot.toArray();
+            byte[] contradictions = new byte[geometry.cellCount];
+            int contradictionCount = findContradictions(geometry, grid, contradictions);
+
+            SolvabilityReport.Status status = contradictionCount == 0 && snapshot.getWrongCount() == 0
+                    ? SolvabilityReport.Status.SOLVABLE
+                    : SolvabilityReport.Status.UNSOLVABLE;
+            return new SolvabilityReport(snapshot.getVersion(), status, contradictions, contradictionCount,
+                    System.nanoTime() - start);
+        } finally {
+            ANALYZE_TIMER.stop(timerStart);
+        }
+    }
+
+    /**
+     * Marks every filled cell whose value is repeated in one of its units as CONFLICT, and every
+     * empty cell whose peers use all digits as NO_CANDIDATES.
+     *
+     * @return The number of marked cells.
+     */
+    private static int findContradictions(SudokuGeometry geometry, int[] grid, byte[] contradictions) {
+        int gridSize = geometry.gridSize;
+        int[] rowUsed = new int[gridSize];
+        int[] colUsed = new int[gridSize];
+        int[] boxUsed = new int[gridSize];
+        int[] rowRepeated = new int[gridSize];
+        int[] colRepeated = new int[gridSize];
+        int[] boxRepeated = new int[gridSize];
+        for (int i = 0; i < geometry.cellCount; i++) {
+            if (grid[i] != 0) {
+                int bit = 1 << (grid[i] - 1);
+                int row = geometry.row[i];
+                int col = geometry.col[i];
+                int box = geometry.box[i];
+                rowRepeated[row] |= rowUsed[row] & bit;
+                colRepeated[col] |= colUsed[col] & bit;
+                boxRepeated[box] |= boxUsed[box] & bit;
+                rowUsed[row] |= bit;
+                colUsed[col] |= bit;
+                boxUsed[box] |= bit;
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < geometry.cellCount; i++) {
+            int row = geometry.row[i];
+            int col = geometry.col[i];
+            int box = geometry.box[i];
+            SolvabilityReport.Contradiction contradiction = SolvabilityReport.Contradiction.NONE;
+            if (grid[i] != 0) {
+                int bit = 1 << (grid[i] - 1);
+                if (((rowRepeated[row] | colRepeated[col] | boxRepeated[box]) & bit) != 0) {
+                    contradiction = SolvabilityReport.Contradiction.CONFLICT;
+                }
+            } else if ((rowUsed[row] | colUsed[col] | boxUsed[box]) == geometry.allDigits) {
+                contradiction = SolvabilityReport.Contradiction.NO_CANDIDATES;
+            }
+            if (contradiction != SolvabilityReport.Contradiction.NONE) {
+                contradictions[i] = (byte) contradiction.ordinal();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops listening to the game and stops the worker thread.
+     */
+    @Override
+    public void close() {
+        facade.removeListener(this);
+        if (running != null) {
+            running.cancel(true);
+        }
+        worker.close();
+    }
+}
@@ -0,0 +1,103 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * The result of a SolvabilityAnalyzer for one version of a game: whether the values on the board
+ * can still be completed to a solution, and which cells already contradict the rules.
+ */
+public final class SolvabilityReport {
+
+    /**
+     * Whether the board can still be completed.
+     */
+    public enum Status {
+        /** The values on the board are part of a solution. */
+        SOLVABLE,
+        /** No solution contains the values on the board. */
+        UNSOLVABLE
+    }
+
+    /**
+     * Why a cell cannot be part of a solution.
+     */
+    public enum Contradiction {
+        /** The cell is consistent with its peers, as far as the analysis can tell. */
+        NONE,
+        /** The value of the cell is repeated in its row, column or box. */
+        CONFLICT,
+        /** The cell is empty and every digit is already used by one of its peers. */
+        NO_CANDIDATES
+    }
+
+    private static final Contradiction[] CONTRADICTIONS = Contradiction.values();
+
+    private final long version;
+    private final Status status;
+    private final byte[] contradictions;
+    private final int contradictionCount;
+    private final long elapsedNanos;
+
+    /*package private*/
+    SolvabilityReport(long version, Status status, byte[] contradictions, int contradictionCount, long elapsedNanos) {
+        this.version = version;
+        this.status = status;
+        this.contradictions = contradictions;
+        this.contradictionCount = contradictionCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the version of the game that was analyzed.
+     *
+     * @return The version of the BoardSnapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns whether the board can still be completed.
+     *
+     * @return The status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the contradiction found in a cell.
+     *
+     * @param index The index of the cell, row * gridSize + col.
+     * @return The contradiction, NONE for a consistent cell.
+     */
+    public Contradiction getContradiction(int index) {
+        return CONTRADICTIONS[contradictions[index]];
+    }
+
+    /**
+     * Checks whether a cell contradicts the rules.
+     *
+     * @param index The index of the cell.
+     * @return True if the contradiction of the cell is not NONE.
+     */
+    public boolean isContradiction(int index) {
+        return contradictions[index] != 0;
+    }
+
+    /**
+     * Returns the number of cells that contradict the rules.
+     *
+     * @return The number of cells whose contradiction is not NONE.
+     */
+    public int getContradictionCount() {
+        return contradictionCount;
+    }
+
+    /**
+     * Returns the time the analysis took on its worker thread.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
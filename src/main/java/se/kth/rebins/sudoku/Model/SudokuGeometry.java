@@ -0,0 +1,127 @@
+package se.kth.rebins.sudoku.Model;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+
+/**
+ * Precomputed index tables describing the rows, columns and boxes of a board,
+ * shared by the solver and the logic engines. Cells are addressed by their row-major index.
+ *
+ * There is one instance per board size, from 4x4 (boxes of 2x2) to 25x25 (boxes of 5x5),
+ * created on first use. The static tables describe the standard 9x9 board and are the ones
+ * used by code that only handles that size.
+ */
+final class SudokuGeometry {
+    private static final SudokuGeometry[] instances = new SudokuGeometry[MAX_SECTION_SIZE + 1];
+
+    /** The geometry of the standard 9x9 board. */
+    static final SudokuGeometry STANDARD = of(SECTION_SIZE);
+
+    static final int CELL_COUNT = STANDARD.cellCount;
+    static final int ALL_DIGITS = STANDARD.allDigits;
+    static final int UNIT_COUNT = STANDARD.unitCount;
+    static final int PEER_COUNT = STANDARD.peerCount;
+    static final int[] ROW = STANDARD.row;
+    static final int[] COL = STANDARD.col;
+    static final int[] BOX = STANDARD.box;
+    static final int[][] UNITS = STANDARD.units;
+    static final int[][] PEERS = STANDARD.peers;
+
+    /** The side of a box, and the number of boxes along a side of the board. */
+    final int sectionSize;
+    /** The side of the board, which is also the number of digits. */
+    final int gridSize;
+    final int cellCount;
+    /** The mask with one bit set for every digit. */
+    final int allDigits;
+    final int unitCount;
+    final int peerCount;
+
+    /** The row, column and box of every cell. */
+    final int[] row;
+    final int[] col;
+    final int[] box;
+
+    /** The cells of every unit: rows first, then columns, then boxes. */
+    final int[][] units;
+
+    /** The cells sharing a row, column or box with every cell. */
+    final int[][] peers;
+
+    private SudokuGeometry(int sectionSize) {
+        this.sectionSize = sectionSize;
+        gridSize = sectionSize * sectionSize;
+        cellCount = gridSize * gridSize;
+        allDigits = (1 << gridSize) - 1;
+        unitCount = 3 * gridSize;
+        peerCount = 2 * (gridSize - 1) + (sectionSize - 1) * (sectionSize - 1);
+        row = new int[cellCount];
+        col = new int[cellCount];
+        box = new int[cellCount];
+        units = new int[unitCount][gridSize];
+        peers = new int[cellCount][peerCount];
+
+        for (int i = 0; i < cellCount; i++) {
+            int r = i / gridSize;
+            int c = i % gridSize;
+            int b = (r / sectionSize) * sectionSize + c / sectionSize;
+            row[i] = r;
+            col[i] = c;
+            box[i] = b;
+            units[r][c] = i;
+            units[gridSize + c][r] = i;
+            units[2 * gridSize + b][(r % sectionSize) * sectionSize + c % sectionSize] = i;
+        }
+        for (int i = 0; i < cellCount; i++) {
+            int count = 0;
+            for (int j = 0; j < cellCount; j++) {
+                if (j != i && (row[j] == row[i] || col[j] == col[i] || box[j] == box[i])) {
+                    peers[i][count++] = j;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the geometry of a board size.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return The geometry, shared between all callers.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    static SudokuGeometry forGridSize(int gridSize) {
+        return of(sectionSizeOf(gridSize));
+    }
+
+    /**
+     * Returns the geometry of the board with a number of cells.
+     *
+     * @param cellCount The number of cells: 16, 81, 256 or 625.
+     * @return The geometry, shared between all callers.
+     * @throws IllegalArgumentException if no supported board has that many cells.
+     */
+    static SudokuGeometry forCellCount(int cellCount) {
+        int gridSize = (int) Math.round(Math.sqrt(cellCount));
+        if (gridSize * gridSize != cellCount || !isSupportedGridSize(gridSize))
+            throw new IllegalArgumentException("Cell count " + cellCount + " is invalid");
+        return forGridSize(gridSize);
+    }
+
+    /**
+     * Returns the geometry of a box size.
+     *
+     * @param sectionSize The side of a box, from 2 to 5.
+     * @return The geometry, shared between all callers.
+     */
+    static SudokuGeometry of(int sectionSize) {
+        if (sectionSize < MIN_SECTION_SIZE || sectionSize > MAX_SECTION_SIZE)
+            throw new IllegalArgumentException("Box size " + sectionSize + " is not supported");
+        synchronized (instances) {
+            SudokuGeometry geometry = instances[sectionSize];
+            if (geometry == null) {
+                geometry = new SudokuGeometry(sectionSize);
+                instances[sectionSize] = geometry;
+            }
+            return geometry;
+        }
+    }
+}
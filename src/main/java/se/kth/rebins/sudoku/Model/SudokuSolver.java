@@ -0,0 +1,399 @@
+package se.kth.rebins.sudoku.Model;
+
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Solves Sudoku boards using constraint propagation over bitmasks.
+ * Every row, column and box keeps the digits already placed in it as an int bitmask,
+ * where bit (d - 1) represents digit d. The candidates of a cell are then a couple of
+ * bitwise operations away, which lets the solver apply naked singles and hidden singles
+ * and fall back to backtracking on the cell with the fewest candidates (MRV).
+ *
+ * A solver handles one board size, fixed when it is constructed. Boards up to 25x25 have at
+ * most 25 digits, so a single int still holds every candidate set.
+ *
+ * A solver instance reuses its internal buffers between calls and is not thread safe.
+ */
+public class SudokuSolver {
+    private static final Timer SOLVE_TIMER = MetricsRegistry.getShared().timer("solve");
+
+    private final int gridSize;
+    private final int cellCount;
+    private final int allDigits;
+    private final int[] row;
+    private final int[] col;
+    private final int[] box;
+    private final int[][] units;
+
+    private final int[] cells;
+    private final int[] rowUsed;
+    private final int[] colUsed;
+    private final int[] boxUsed;
+    private final int[] trail;
+    private int trailSize;
+
+    private final int[] solution;
+    private int solutionCount;
+    private int solutionLimit;
+    private long guessesLeft;
+    private Random random;
+
+    /**
+     * Constructs a solver for the standard 9x9 board.
+     */
+    public SudokuSolver() {
+        this(SudokuUtilities.GRID_SIZE);
+    }
+
+    /**
+     * Constructs a solver for boards of a size.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public SudokuSolver(int gridSize) {
+        SudokuGeometry geometry = SudokuGeometry.forGridSize(gridSize);
+        this.gridSize = gridSize;
+        cellCount = geometry.cellCount;
+        allDigits = geometry.allDigits;
+        row = geometry.row;
+        col = geometry.col;
+        box = geometry.box;
+        units = geometry.units;
+        cells = new int[cellCount];
+        rowUsed = new int[gridSize];
+        colUsed = new int[gridSize];
+        boxUsed = new int[gridSize];
+        trail = new int[cellCount];
+        solution = new int[cellCount];
+    }
+
+    /**
+     * Returns the size of the boards this solver handles.
+     *
+     * @return The side of the board.
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Counts the solutions of a board, stopping as soon as the limit is reached.
+     *
+     * @param grid  The board as N*N values in row-major order, zero representing an empty cell.
+     * @param limit The number of solutions after which the search stops.
+     * @return The number of solutions found, never more than limit.
+     * @throws IllegalArgumentException if the grid has the wrong length or contains values outside 0-N.
+     */
+    public int countSolutions(int[] grid, int limit) {
+        return countSolutions(grid, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Counts the solutions of a board like countSolutions(grid, limit), but gives up once the
+     * search has made a number of guesses. Generators use this to keep uniqueness checks on
+     * large, sparse boards at interactive speed, treating a board that needs more guesses as
+     * not proven unique.
+     *
+     * @param grid       The board as N*N values in row-major order, zero representing an empty cell.
+     * @param limit      The number of solutions after which the search stops.
+     * @param maxGuesses The number of guessed placements after which the search gives up.
+     * @return The number of solutions found, never more than limit, or -1 if the search gave up.
+     * @throws IllegalArgumentException if the grid has the wrong length or contains values outside 0-N.
+     */
+    public int countSolutions(int[] grid, int limit, long maxGuesses) {
+        solutionCount = 0;
+        solutionLimit = limit;
+        guessesLeft = maxGuesses;
+        if (load(grid)) {
+            search();
+        }
+        return guessesLeft < 0 ? -1 : solutionCount;
+    }
+
+    /**
+     * Solves a board in place. If the board has several solutions the first one found is used.
+     *
+     * @param grid The board as N*N values in row-major order, zero representing an empty cell.
+     * @return True if a solution was found and written to grid, false if the board has no solution.
+     */
+    public boolean solve(int[] grid) {
+        if (countSolutions(grid, 1) == 0) {
+            return false;
+        }
+        System.arraycopy(solution, 0, grid, 0, cellCount);
+        return true;
+    }
+
+    /**
+     * Solves a board in place, trying the candidates of every guess in random order.
+     * Solving an empty board this way produces a random complete grid.
+     *
+     * @param grid   The board as N*N values in row-major order, zero representing an empty cell.
+     * @param random The source of randomness for the guess order.
+     * @return True if a solution was found and written to grid, false if the board has no solution.
+     */
+    public boolean solveRandomly(int[] grid, Random random) {
+        this.random = random;
+        try {
+            return solve(grid);
+        } finally {
+            this.random = null;
+        }
+    }
+
+    /**
+     * Checks whether a board has exactly one solution.
+     *
+     * @param grid The board as N*N values in row-major order, zero representing an empty cell.
+     * @return True if the board has a unique solution, false otherwise.
+     */
+    public boolean hasUniqueSolution(int[] grid) {
+        return countSolutions(grid, 2) == 1;
+    }
+
+    /**
+     * Solves a board in place if it has exactly one solution, in a single search.
+     *
+     * @param grid The board as N*N values in row-major order, zero representing an empty cell.
+     * @return True if the board has a unique solution and it was written to grid, false otherwise.
+     */
+    public boolean solveUnique(int[] grid) {
+        long start = SOLVE_TIMER.start();
+        try {
+            if (countSolutions(grid, 2) != 1) {
+                return false;
+            }
+            System.arraycopy(solution, 0, grid, 0, cellCount);
+            return true;
+        } finally {
+            SOLVE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Solves the initial values of a Sudoku matrix and writes the solution to it.
+     *
+     * @param matrix A matrix in the layout of SudokuUtilities.convertStringToIntMatrix,
+     *               [row][col][0] holds the initial values.
+     * @return True if a solution was found and written to [row][col][1], false otherwise.
+     */
+    public static boolean solve(int[][][] matrix) {
+        SudokuSolver solver = new SudokuSolver(matrix.length);
+        int[] grid = solver.initialValues(matrix);
+        if (!solver.solve(grid)) {
+            return false;
+        }
+        for (int i = 0; i < solver.cellCount; i++) {
+            matrix[solver.row[i]][solver.col[i]][1] = grid[i];
+        }
+        return true;
+    }
+
+    /**
+     * Verifies that the initial values of a Sudoku matrix have exactly one solution
+     * and that it is the solution stored in the matrix.
+     *
+     * @param matrix A matrix in the layout of SudokuUtilities.convertStringToIntMatrix.
+     * @return True if the stored solution is the unique solution of the initial values.
+     */
+    public static boolean verify(int[][][] matrix) {
+        SudokuSolver solver = new SudokuSolver(matrix.length);
+        if (solver.countSolutions(solver.initialValues(matrix), 2) != 1) {
+            return false;
+        }
+        for (int i = 0; i < solver.cellCount; i++) {
+            if (matrix[solver.row[i]][solver.col[i]][1] != solver.solution[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] initialValues(int[][][] matrix) {
+        int[] grid = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            grid[i] = matrix[row[i]][col[i]][0];
+        }
+        return grid;
+    }
+
+    /**
+     * Loads a board into the solver state.
+     *
+     * @return False if two of the given values contradict each other.
+     */
+    private boolean load(int[] grid) {
+        if (grid.length != cellCount)
+            throw new IllegalArgumentException("Grid length " + grid.length + " is invalid");
+
+        Arrays.fill(cells, 0);
+        Arrays.fill(rowUsed, 0);
+        Arrays.fill(colUsed, 0);
+        Arrays.fill(boxUsed, 0);
+        trailSize = 0;
+
+        for (int i = 0; i < cellCount; i++) {
+            int value = grid[i];
+            if (value < 0 || value > gridSize)
+                throw new IllegalArgumentException("Value " + value + " is invalid");
+            if (value == 0) {
+                continue;
+            }
+            if ((candidates(i) & (1 << (value - 1))) == 0) {
+                return false;
+            }
+            place(i, value);
+        }
+        return true;
+    }
+
+    private void search() {
+        int mark = trailSize;
+        if (propagate()) {
+            int best = -1;
+            int bestMask = 0;
+            int bestCount = gridSize + 1;
+            for (int i = 0; i < cellCount && bestCount > 2; i++) {
+                if (cells[i] == 0) {
+                    int mask = candidates(i);
+                    int count = Integer.bitCount(mask);
+                    if (count < bestCount) {
+                        best = i;
+                        bestMask = mask;
+                        bestCount = count;
+                    }
+                }
+            }
+
+            if (best < 0) {
+                if (solutionCount++ == 0) {
+                    System.arraycopy(cells, 0, solution, 0, cellCount);
+                }
+            } else if (random == null) {
+                for (int mask = bestMask; mask != 0 && solutionCount < solutionLimit && --guessesLeft >= 0;
+                     mask &= mask - 1) {
+                    int branch = trailSize;
+                    place(best, Integer.numberOfTrailingZeros(mask) + 1);
+                    search();
+                    undoTo(branch);
+                }
+            } else {
+                int[] digits = shuffledDigits(bestMask);
+                for (int i = 0; i < digits.length && solutionCount < solutionLimit && --guessesLeft >= 0; i++) {
+                    int branch = trailSize;
+                    place(best, digits[i]);
+                    search();
+                    undoTo(branch);
+                }
+            }
+        }
+        undoTo(mark);
+    }
+
+    /**
+     * Returns the digits of a candidate mask in random order.
+     */
+    private int[] shuffledDigits(int mask) {
+        int[] digits = new int[Integer.bitCount(mask)];
+        for (int i = 0; mask != 0; mask &= mask - 1) {
+            digits[i++] = Integer.numberOfTrailingZeros(mask) + 1;
+        }
+        for (int i = digits.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = digits[i];
+            digits[i] = digits[j];
+            digits[j] = temp;
+        }
+        return digits;
+    }
+
+    /**
+     * Places naked and hidden singles until no more can be found.
+     *
+     * @return False if a contradiction was found, true otherwise.
+     */
+    private boolean propagate() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+
+            for (int i = 0; i < cellCount; i++) {
+                if (cells[i] != 0) {
+                    continue;
+                }
+                int mask = candidates(i);
+                if (mask == 0) {
+                    return false;
+                }
+                if ((mask & (mask - 1)) == 0) {
+                    place(i, Integer.numberOfTrailingZeros(mask) + 1);
+                    progress = true;
+                }
+            }
+
+            for (int[] unit : units) {
+                int once = 0;
+                int twice = 0;
+                int placed = 0;
+                for (int i : unit) {
+                    if (cells[i] != 0) {
+                        placed |= 1 << (cells[i] - 1);
+                    } else {
+                        int mask = candidates(i);
+                        twice |= once & mask;
+                        once |= mask;
+                    }
+                }
+                if ((once | placed) != allDigits) {
+                    return false;
+                }
+
+                for (int hidden = once & ~twice; hidden != 0; hidden &= hidden - 1) {
+                    int bit = hidden & -hidden;
+                    int target = -1;
+                    for (int i : unit) {
+                        if (cells[i] == 0 && (candidates(i) & bit) != 0) {
+                            target = i;
+                            break;
+                        }
+                    }
+                    if (target < 0) {
+                        return false;
+                    }
+                    place(target, Integer.numberOfTrailingZeros(bit) + 1);
+                    progress = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int candidates(int i) {
+        return ~(rowUsed[row[i]] | colUsed[col[i]] | boxUsed[box[i]]) & allDigits;
+    }
+
+    private void place(int i, int value) {
+        int bit = 1 << (value - 1);
+        cells[i] = value;
+        rowUsed[row[i]] |= bit;
+        colUsed[col[i]] |= bit;
+        boxUsed[box[i]] |= bit;
+        trail[trailSize++] = i;
+    }
+
+    private void undoTo(int mark) {
+        while (trailSize > mark) {
+            int i = trail[--trailSize];
+            int bit = ~(1 << (cells[i] - 1));
+            cells[i] = 0;
+            rowUsed[row[i]] &= bit;
+            colUsed[col[i]] &= bit;
+            boxUsed[box[i]] &= bit;
+        }
+    }
+}
@@ -8,58 +8,146 @@ public class SudokuUtilities {
     public static final int GRID_SIZE = 9;
     public static final int SECTIONS_PER_ROW = 3;
     public static final int SECTION_SIZE = 3;
-    private static final Random random = new Random();
+
+    /**
+     * The smallest and largest supported box sizes, for boards from 4x4 to 25x25.
+     */
+    public static final int MIN_SECTION_SIZE = 2;
+    public static final int MAX_SECTION_SIZE = 5;
+    public static final int MAX_GRID_SIZE = MAX_SECTION_SIZE * MAX_SECTION_SIZE;
+    private static final PuzzleGenerator generator = new PuzzleGenerator();
+    private static final ThreadLocal<SymmetryTransformer> transformers =
+            ThreadLocal.withInitial(() -> new SymmetryTransformer(new Random()));
 
 
     /**
      * Create a 3-dimensional matrix with initial values and solution in Sudoku.
      *
+     * Every call generates a new random puzzle with a unique solution, see PuzzleGenerator.
+     *
      * @param level The level, i.e. the difficulty, of the initial standing.
      * @return A 3-dimensional int matrix.
      * [row][col][0] represents the initial values, zero representing an empty cell.
      * [row][col][1] represents the solution.
-     * @throws IllegalArgumentException if the length of stringRepresentation is not 2*81 characters and
-     *                                  for characters other than '0'-'9'.
      */
     public static int[][][] generateSudokuMatrix(SudokuLevel level) {
-        String representationString;
-        switch (level) {
-            case EASY:
-                representationString = easy;
-                break;
-            case MEDIUM:
-                representationString = medium;
-                break;
-            case HARD:
-                representationString = hard;
-                break;
-            default:
-                representationString = medium;
+        return generator.generate(level);
+    }
+
+    /**
+     * Create a 3-dimensional matrix with initial values and solution for a board of any supported size.
+     *
+     * @param level    The level, i.e. the difficulty, of the initial standing.
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return A 3-dimensional int matrix of gridSize rows and columns.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public static int[][][] generateSudokuMatrix(SudokuLevel level, int gridSize) {
+        return generator.generate(level, gridSize);
+    }
+
+    /**
+     * Determines if boards of a size are supported, that is if the size is the square of a box size
+     * from MIN_SECTION_SIZE to MAX_SECTION_SIZE.
+     *
+     * @param gridSize The side of the board.
+     * @return True if the size is supported, otherwise false.
+     */
+    public static boolean isSupportedGridSize(int gridSize) {
+        for (int sectionSize = MIN_SECTION_SIZE; sectionSize <= MAX_SECTION_SIZE; sectionSize++) {
+            if (sectionSize * sectionSize == gridSize) {
+                return true;
+            }
         }
-        int[][][] matrix = convertStringToIntMatrix(representationString);
+        return false;
+    }
 
-        mirrorHorizontally(matrix);
-        mirrorVertically(matrix);
-        swapNumbers(matrix);
+    /**
+     * Returns the box size of a board size.
+     *
+     * @param gridSize The side of the board: 4, 9, 16 or 25.
+     * @return The side of a box, which is also the number of boxes along a side of the board.
+     * @throws IllegalArgumentException if the size is not supported.
+     */
+    public static int sectionSizeOf(int gridSize) {
+        if (!isSupportedGridSize(gridSize))
+            throw new IllegalArgumentException("Grid size " + gridSize + " is not supported");
+        return (int) Math.round(Math.sqrt(gridSize));
+    }
 
-        return matrix;
+    /**
+     * Create a random variant of a 9x9 Sudoku matrix by applying a random element of the
+     * Sudoku symmetry group, see SymmetryTransformer.
+     *
+     * @param matrix The 3-dimensional matrix to transform. It is left unchanged.
+     * @return A new 3-dimensional matrix with an equivalent puzzle and its solution.
+     */
+    public static int[][][] randomVariant(int[][][] matrix) {
+        int[] buffer = toFlatArray(matrix);
+        transformers.get().transform(buffer);
+        return fromFlatArray(buffer);
     }
 
+    /**
+     * Flattens a Sudoku matrix into 2*N*N values for a board of side N. The first N*N values are
+     * the initial values in row-major order, the following N*N values are the solution.
+     *
+     * @param matrix The 3-dimensional matrix.
+     * @return The flat representation.
+     */
+    public static int[] toFlatArray(int[][][] matrix) {
+        int gridSize = matrix.length;
+        int cellCount = gridSize * gridSize;
+        int[] flat = new int[2 * cellCount];
+        for (int row = 0; row < gridSize; row++) {
+            for (int col = 0; col < gridSize; col++) {
+                flat[row * gridSize + col] = matrix[row][col][0];
+                flat[cellCount + row * gridSize + col] = matrix[row][col][1];
+            }
+        }
+        return flat;
+    }
+
+    /**
+     * Creates a Sudoku matrix from the flat representation produced by toFlatArray.
+     *
+     * @param flat 2*N*N values, initial values followed by the solution.
+     * @return A 3-dimensional int matrix.
+     * [row][col][0] represents the initial values, zero representing an empty cell.
+     * [row][col][1] represents the solution.
+     * @throws IllegalArgumentException if the length does not belong to a supported board size.
+     */
+    public static int[][][] fromFlatArray(int[] flat) {
+        int cellCount = flat.length / 2;
+        int gridSize = SudokuGeometry.forCellCount(cellCount).gridSize;
+        int[][][] matrix = new int[gridSize][gridSize][2];
+        for (int row = 0; row < gridSize; row++) {
+            for (int col = 0; col < gridSize; col++) {
+                matrix[row][col][0] = flat[row * gridSize + col];
+                matrix[row][col][1] = flat[cellCount + row * gridSize + col];
+            }
+        }
+        return matrix;
+    }
 
     /**
      * Create a 3-dimensional matrix with initial values and solution in Sudoku.
      *
-     * @param stringRepresentation A string of 2*81 characters, 0-9. The first 81 characters represents
+     * @param stringRepresentation A string of 81 or 2*81 characters, 0-9. The first 81 characters represents
      *                             the initial values, '0' representing an empty cell.
-     *                             The following 81 characters represents the solution.
+     *                             The following 81 characters, if present, represents the solution.
+     *                             Otherwise the solution is computed by SudokuSolver.
      * @return A 3-dimensional int matrix.
      * [row][col][0] represents the initial values, zero representing an empty cell.
      * [row][col][1] represents the solution.
-     * @throws IllegalArgumentException if the length of stringRepresentation is not 2*81 characters and
-     *                                  for characters other than '0'-'9'.
+     * @throws IllegalArgumentException if the length of stringRepresentation is not 81 or 2*81 characters,
+     *                                  for characters other than '0'-'9' and for initial values
+     *                                  without a solution.
      */
     /*package private*/
     static int[][][] convertStringToIntMatrix(String stringRepresentation) {
+        if (stringRepresentation.length() == GRID_SIZE * GRID_SIZE)
+            return convertPuzzleStringToIntMatrix(stringRepresentation);
         if (stringRepresentation.length() != GRID_SIZE * GRID_SIZE * 2)
             throw new IllegalArgumentException("Representation length " +
                     stringRepresentation.length() + " is invalid");
@@ -84,121 +172,29 @@ public class SudokuUtilities {
         return values;
     }
 
-    private static int convertCharToSudokuInt(char ch) {
-        if (ch < '0' || ch > '9') throw new IllegalArgumentException("Character " + ch + " is invalid");
-        return ch - '0';
-    }
-
-    /**
-     * Mirrors the Sudoku matrix horisontally.
-     *
-     * @param matrix The 3-dimensional matrix to mirror.
-     */
-    private static void mirrorHorizontally(int[][][] matrix) {
-        for (int row = 0; row < GRID_SIZE / 2; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                int[] temp = matrix[row][col];
-                matrix[row][col] = matrix[GRID_SIZE - row - 1][col];
-                matrix[GRID_SIZE - row - 1][col] = temp;
-            }
-        }
-    }
-
     /**
-     * Mirrors the Sudoku matrix vertically.
+     * Create a 3-dimensional matrix from initial values only, solving them for the solution.
      *
-     * @param matrix The 3-dimensional matrix to mirror.
+     * @param puzzleRepresentation A string of 81 characters, 0-9, '0' representing an empty cell.
+     * @return A 3-dimensional int matrix in the same layout as convertStringToIntMatrix.
+     * @throws IllegalArgumentException for characters other than '0'-'9' and for initial values
+     *                                  without a solution.
      */
-    private static void mirrorVertically(int[][][] matrix) {
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE / 2; col++) {
-                int[] temp = matrix[row][col];
-                matrix[row][col] = matrix[row][GRID_SIZE - col - 1];
-                matrix[row][GRID_SIZE - col - 1] = temp;
-            }
-        }
-    }
-
-    /**
-     * Swaps two randomly selected numbers (from 1 to 9) in the Sudoku matrix.
-     *
-     * @param matrix The 3-dimensional matrix.
-     */
-    private static void swapNumbers(int[][][] matrix) {
-        int num1 = random.nextInt(9) + 1;
-        int num2;
-        do {
-            num2 = random.nextInt(9) + 1;
-        } while (num2 == num1);
-
+    private static int[][][] convertPuzzleStringToIntMatrix(String puzzleRepresentation) {
+        int[][][] values = new int[GRID_SIZE][GRID_SIZE][2];
+        int charIndex = 0;
         for (int row = 0; row < GRID_SIZE; row++) {
             for (int col = 0; col < GRID_SIZE; col++) {
-                if (matrix[row][col][0] == num1) matrix[row][col][0] = num2;
-                else if (matrix[row][col][0] == num2) matrix[row][col][0] = num1;
-
-                if (matrix[row][col][1] == num1) matrix[row][col][1] = num2;
-                else if (matrix[row][col][1] == num2) matrix[row][col][1] = num1;
+                values[row][col][0] = convertCharToSudokuInt(puzzleRepresentation.charAt(charIndex++));
             }
         }
+        if (!SudokuSolver.solve(values))
+            throw new IllegalArgumentException("Representation has no solution");
+        return values;
     }
 
-    private static final String easy =
-            "000914070" +
-                    "010000054" +
-                    "040002000" +
-                    "007569001" +
-                    "401000500" +
-                    "300100000" +
-                    "039000408" +
-                    "650800030" +
-                    "000403260" +  // solution values after this substring
-                    "583914672" +
-                    "712386954" +
-                    "946752183" +
-                    "827569341" +
-                    "461238597" +
-                    "395147826" +
-                    "239675418" +
-                    "654821739" +
-                    "178493265";
-
-    private static final String medium =
-            "300000010" +
-                    "000050906" +
-                    "050401200" +
-                    "030000080" +
-                    "002069400" +
-                    "000000002" +
-                    "900610000" +
-                    "200300058" +
-                    "100800090" +
-                    "324976815" +
-                    "718253946" +
-                    "659481273" +
-                    "536142789" +
-                    "872569431" +
-                    "491738562" +
-                    "985617324" +
-                    "267394158" +
-                    "143825697";
-
-    private static final String hard =
-            "030600000" +
-                    "000010070" +
-                    "080000000" +
-                    "000020000" +
-                    "340000800" +
-                    "500030094" +
-                    "000400000" +
-                    "150800200" +
-                    "700006050" +
-                    "931687542" +
-                    "465219378" +
-                    "287345916" +
-                    "876924135" +
-                    "349561827" +
-                    "512738694" +
-                    "693452781" +
-                    "154873269" +
-                    "728196453";
+    private static int convertCharToSudokuInt(char ch) {
+        if (ch < '0' || ch > '9') throw new IllegalArgumentException("Character " + ch + " is invalid");
+        return ch - '0';
+    }
 }
\ No newline at end of file
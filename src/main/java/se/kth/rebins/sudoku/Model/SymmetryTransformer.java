@@ -0,0 +1,146 @@
+package se.kth.rebins.sudoku.Model;
+
+import java.util.Random;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+
+/**
+ * Applies elements of the validity-preserving symmetry group of Sudoku to a board.
+ * An element is a combination of a band permutation, row permutations within every band,
+ * a stack permutation, column permutations within every stack, an optional transposition
+ * and a relabelling of the digits 1-9. Together they turn any valid board into another valid
+ * board, with the same number of solutions.
+ *
+ * The cell part of an element is precomputed into an index permutation table, so applying it
+ * to a board is a single pass over a flat buffer of 81 or 2*81 values laid out in row-major order,
+ * the second 81 values typically holding the solution. Besides that pass the transformer only
+ * touches its own preallocated arrays and does not allocate.
+ *
+ * A transformer is not thread safe.
+ */
+public final class SymmetryTransformer {
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+
+    /**
+     * The length of a buffer holding both initial values and solution.
+     */
+    public static final int BUFFER_LENGTH = 2 * CELL_COUNT;
+
+    private final Random random;
+    private final int[] sourceIndex = new int[CELL_COUNT];
+    private final int[] digitMap = new int[GRID_SIZE + 1];
+    private final int[] rowOrder = new int[GRID_SIZE];
+    private final int[] colOrder = new int[GRID_SIZE];
+    private final int[] blockOrder = new int[SECTIONS_PER_ROW];
+    private final int[] scratch = new int[BUFFER_LENGTH];
+
+    /**
+     * Constructs a transformer set to the identity element.
+     *
+     * @param random The source of randomness for randomize.
+     */
+    public SymmetryTransformer(Random random) {
+        this.random = random;
+        setIdentity();
+    }
+
+    /**
+     * Selects the identity element, which leaves every board unchanged.
+     */
+    public void setIdentity() {
+        for (int i = 0; i < GRID_SIZE; i++) {
+            rowOrder[i] = i;
+            colOrder[i] = i;
+            digitMap[i + 1] = i + 1;
+        }
+        digitMap[0] = 0;
+        buildTable(false);
+    }
+
+    /**
+     * Selects a uniformly random element of the symmetry group.
+     */
+    public void randomize() {
+        randomLineOrder(rowOrder);
+        randomLineOrder(colOrder);
+        digitMap[0] = 0;
+        for (int digit = 1; digit <= GRID_SIZE; digit++) {
+            digitMap[digit] = digit;
+        }
+        for (int i = GRID_SIZE; i > 1; i--) {
+            swap(digitMap, i, random.nextInt(i) + 1);
+        }
+        buildTable(random.nextBoolean());
+    }
+
+    /**
+     * Applies the selected element to a board in place.
+     *
+     * @param buffer 81 or 2*81 values in row-major order, zero representing an empty cell.
+     * @throws IllegalArgumentException if the buffer length is not 81 or 2*81.
+     */
+    public void apply(int[] buffer) {
+        if (buffer.length != CELL_COUNT && buffer.length != BUFFER_LENGTH)
+            throw new IllegalArgumentException("Buffer length " + buffer.length + " is invalid");
+
+        System.arraycopy(buffer, 0, scratch, 0, buffer.length);
+        for (int offset = 0; offset < buffer.length; offset += CELL_COUNT) {
+            for (int i = 0; i < CELL_COUNT; i++) {
+                buffer[offset + i] = digitMap[scratch[offset + sourceIndex[i]]];
+            }
+        }
+    }
+
+    /**
+     * Applies a new random element of the symmetry group to a board in place.
+     *
+     * @param buffer 81 or 2*81 values in row-major order, zero representing an empty cell.
+     */
+    public void transform(int[] buffer) {
+        randomize();
+        apply(buffer);
+    }
+
+    /**
+     * Fills a row or column order with a random band permutation combined with
+     * random line permutations within every band.
+     */
+    private void randomLineOrder(int[] order) {
+        for (int i = 0; i < SECTIONS_PER_ROW; i++) {
+            blockOrder[i] = i;
+        }
+        for (int i = SECTIONS_PER_ROW - 1; i > 0; i--) {
+            swap(blockOrder, i, random.nextInt(i + 1));
+        }
+        for (int block = 0; block < SECTIONS_PER_ROW; block++) {
+            int base = block * SECTION_SIZE;
+            for (int line = 0; line < SECTION_SIZE; line++) {
+                order[base + line] = blockOrder[block] * SECTION_SIZE + line;
+            }
+            for (int line = SECTION_SIZE - 1; line > 0; line--) {
+                swap(order, base + line, base + random.nextInt(line + 1));
+            }
+        }
+    }
+
+    /**
+     * Precomputes for every target cell the index of the cell it is copied from.
+     */
+    private void buildTable(boolean transpose) {
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int col = 0; col < GRID_SIZE; col++) {
+                int sourceRow = rowOrder[row];
+                int sourceCol = colOrder[col];
+                sourceIndex[row * GRID_SIZE + col] = transpose ?
+                        sourceCol * GRID_SIZE + sourceRow :
+                        sourceRow * GRID_SIZE + sourceCol;
+            }
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+}
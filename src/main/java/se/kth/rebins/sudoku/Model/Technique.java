@@ -0,0 +1,43 @@
+package se.kth.rebins.sudoku.Model;
+
+/**
+ * The human solving techniques known to the HintEngine, ordered from easiest to hardest,
+ * followed by trial and error for puzzles that the techniques cannot finish.
+ * Every technique has a weight used by the DifficultyRater.
+ */
+public enum Technique {
+    NAKED_SINGLE("Naked single", 1),
+    HIDDEN_SINGLE("Hidden single", 2),
+    POINTING("Pointing pair", 6),
+    CLAIMING("Box/line reduction", 6),
+    NAKED_PAIR("Naked pair", 8),
+    HIDDEN_PAIR("Hidden pair", 10),
+    X_WING("X-Wing", 16),
+    TRIAL_AND_ERROR("Trial and error", 40);
+
+    private final String displayName;
+    private final int weight;
+
+    Technique(String displayName, int weight) {
+        this.displayName = displayName;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the name of the technique as shown to the user.
+     *
+     * @return The display name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns how much a placement that needs this technique adds to a difficulty score.
+     *
+     * @return The weight of the technique.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
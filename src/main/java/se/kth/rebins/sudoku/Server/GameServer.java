@@ -0,0 +1,389 @@
+package se.kth.rebins.sudoku.Server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import se.kth.rebins.sudoku.Metrics.LatencyHistogram;
+import se.kth.rebins.sudoku.Model.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+
+/**
+ * Serves many independent games over HTTP on the loopback interface, using the JDK's built-in
+ * HTTP server with one virtual thread per request. Every game is a session backed by its own
+ * Facade. All endpoints take their arguments as query parameters and answer with JSON:
+ * <pre>
+ *   /new?level=EASY               start a game, or a new game in an existing session with &amp;session=;
+ *                                 level is required, EASY, MEDIUM or HARD
+ *   /move?session=&amp;row=&amp;col=&amp;value=  set a cell, value 0 clears it
+ *   /hint?session=                fill in the next logical, or else a random, cell
+ *   /check?session=               whether all values so far are correct
+ *   /save?session=                the game as a base64url SaveFormat record
+ *   /load?session=&amp;record=        replace the game with a saved one
+ *   /stats                        sessions and request latency percentiles
+ * </pre>
+ * Games are played on standard 9x9 boards. A board is sent as 81 digits in row-major order,
+ * zero for an empty cell, together with 81 flags marking the given cells.
+ */
+public class GameServer {
+    /**
+     * The default port.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The default highest number of sessions held at once.
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+    /**
+     * The default number of seconds after which an unused session is evicted.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_SEC = 30 * 60;
+
+    private static final int POOL_CAPACITY = 64;
+    private static final int CELL_COUNT = GRID_SIZE * GRID_SIZE;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final PuzzlePool pool;
+    private final SessionStore sessions;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructs a server bound to the loopback interface. It does not accept requests until started.
+     *
+     * @param port           The port to listen on, 0 for any free port.
+     * @param maxSessions    The highest number of sessions held at once.
+     * @param idleTimeoutSec The number of seconds after which an unused session is evicted.
+     * @throws IOException If the port cannot be bound.
+     */
+    public GameServer(int port, int maxSessions, long idleTimeoutSec) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        pool = new PuzzlePool(new PuzzleGenerator(), POOL_CAPACITY);
+        sessions = new SessionStore(pool, maxSessions, idleTimeoutSec);
+
+        handle("/new", this::newGame);
+        handle("/move", this::move);
+        handle("/hint", this::hint);
+        handle("/check", this::check);
+        handle("/save", this::save);
+        handle("/load", this::load);
+        handle("/stats", this::stats);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+        long idleTimeoutSec = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_IDLE_TIMEOUT_SEC;
+        GameServer server = new GameServer(port, maxSessions, idleTimeoutSec);
+        server.start();
+        System.err.println("Sudoku server listening on http://localhost:" + server.getPort() + "/");
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for running ones and releases all resources.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        sessions.shutdown();
+        pool.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private String newGame(Map<String, String> query) throws RequestException {
+        String levelName = parameter(query, "level");
+        SudokuUtilities.SudokuLevel level;
+        try {
+            level = SudokuUtilities.SudokuLevel.valueOf(levelName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Unknown level " + levelName);
+        }
+        if (query.containsKey("session")) {
+            Session session = session(query);
+            session.getLock().lock();
+            try {
+                session.getFacade().newGame(level);
+                return board(session);
+            } finally {
+                session.getLock().unlock();
+            }
+        }
+        Session session = sessions.create(level);
+        if (session == null)
+            throw new RequestException(503, "Too many sessions");
+        return board(session);
+    }
+
+    private String move(Map<String, String> query) throws RequestException {
+        Session session = session(query);
+        int row = intParameter(query, "row", 0, GRID_SIZE - 1);
+        int col = intParameter(query, "col", 0, GRID_SIZE - 1);
+        int value = intParameter(query, "value", 0, GRID_SIZE);
+        session.getLock().lock();
+        try {
+            Facade facade = session.getFacade();
+            if (!facade.isCellEditable(row, col))
+                throw new RequestException(409, "Cell (" + row + ", " + col + ") is given");
+            facade.setUserValue(row, col, value);
+            return "{\"conflict\":" + facade.hasConflict(row, col) + ",\"solved\":" + facade.isSolved() + "}";
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private String hint(Map<String, String> query) throws RequestException {
+        Session session = session(query);
+        session.getLock().lock();
+        try {
+            Facade facade = session.getFacade();
+            Hint logicalHint = facade.getLogicalHint();
+            int row, col, value;
+            String technique = null;
+            if (logicalHint != null) {
+                row = logicalHint.getRow();
+                col = logicalHint.getCol();
+                value = logicalHint.getValue();
+                technique = logicalHint.getTechnique().getDisplayName();
+            } else {
+                int[] hint = facade.getRandomHint();
+                if (hint == null)
+                    throw new RequestException(409, "There are no empty cells left");
+                row = hint[0];
+                col = hint[1];
+                value = hint[2];
+            }
+            facade.setUserValue(row, col, value);
+            return "{\"row\":" + row + ",\"col\":" + col + ",\"value\":" + value + ",\"technique\":"
+                    + (technique == null ? "null" : "\"" + technique + "\"") + ",\"solved\":" + facade.isSolved() + "}";
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private String check(Map<String, String> query) throws RequestException {
+        Session session = session(query);
+        session.getLock().lock();
+        try {
+            Facade facade = session.getFacade();
+            return "{\"correct\":" + facade.isCurrentlySolved() + ",\"solved\":" + facade.isSolved() + "}";
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private String save(Map<String, String> query) throws RequestException {
+        Session session = session(query);
+        ByteBuffer buffer = ByteBuffer.allocate(SaveFormat.RECORD_SIZE);
+        session.getLock().lock();
+        try {
+            session.getFacade().saveGame(buffer, 0);
+        } finally {
+            session.getLock().unlock();
+        }
+        return "{\"record\":\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array()) + "\"}";
+    }
+
+    private String load(Map<String, String> query) throws RequestException {
+        Session session = session(query);
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(parameter(query, "record")));
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(400, "Record is not base64url");
+        }
+        if (!SaveFormat.isRecord(buffer, 0))
+            throw new RequestException(400, "Not a saved Sudoku game");
+        if (SaveFormat.gridSizeOf(buffer, 0) != GRID_SIZE)
+            throw new RequestException(400, "Only 9x9 games are served");
+        session.getLock().lock();
+        try {
+            session.getFacade().loadGame(buffer, 0);
+            return board(session);
+        } catch (IOException e) {
+            throw new RequestException(400, e.getMessage());
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    private String stats(Map<String, String> query) {
+        return "{\"sessions\":" + sessions.size() + ",\"evicted\":" + sessions.getEvicted()
+                + ",\"requests\":" + latencies.getCount()
+                + ",\"latencyMicros\":{\"p50\":" + latencies.getPercentile(50)
+                + ",\"p90\":" + latencies.getPercentile(90)
+                + ",\"p99\":" + latencies.getPercentile(99)
+                + ",\"p999\":" + latencies.getPercentile(99.9)
+                + ",\"max\":" + latencies.getMax() + "}}";
+    }
+
+    /**
+     * Describes the game of a session. The caller must hold the session lock, or own the session alone.
+     */
+    private static String board(Session session) {
+        Facade facade = session.getFacade();
+        StringBuilder json = new StringBuilder(2 * CELL_COUNT + 96);
+        json.append("{\"session\":\"").append(session.getId())
+                .append("\",\"level\":\"").append(facade.getDifficulty())
+                .append("\",\"board\":\"");
+        for (int i = 0; i < CELL_COUNT; i++) {
+            json.append((char) ('0' + facade.getUserValue(i / GRID_SIZE, i % GRID_SIZE)));
+        }
+        json.append("\",\"given\":\"");
+        for (int i = 0; i < CELL_COUNT; i++) {
+            json.append(facade.isCellVisible(i / GRID_SIZE, i % GRID_SIZE) ? '1' : '0');
+        }
+        return json.append("\"}").toString();
+    }
+
+    private Session session(Map<String, String> query) throws RequestException {
+        Session session = sessions.get(parameter(query, "session"));
+        if (session == null)
+            throw new RequestException(404, "Unknown or expired session");
+        return session;
+    }
+
+    private static String parameter(Map<String, String> query, String name) throws RequestException {
+        String value = query.get(name);
+        if (value == null)
+            throw new RequestException(400, "Missing parameter " + name);
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int min, int max) throws RequestException {
+        try {
+            int value = Integer.parseInt(parameter(query, name));
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new RequestException(400, "Parameter " + name + " must be between " + min + " and " + max);
+    }
+
+    /**
+     * Quotes a string for JSON. Error messages may echo request parameters, so quotes,
+     * backslashes and control characters are escaped.
+     */
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private void handle(String path, Endpoint endpoint) {
+        server.createContext(path, new EndpointHandler(endpoint));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private interface Endpoint {
+        String respond(Map<String, String> query) throws RequestException;
+    }
+
+    private static class RequestException extends Exception {
+        @java.io.Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private class EndpointHandler implements HttpHandler {
+        private final Endpoint endpoint;
+
+        EndpointHandler(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            int status = 200;
+            String body;
+            try {
+                body = endpoint.respond(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (RequestException e) {
+                status = e.status;
+                body = "{\"error\":" + jsonString(e.getMessage()) + "}";
+            } catch (RuntimeException e) {
+                status = 500;
+                body = "{\"error\":\"Internal error\"}";
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+}
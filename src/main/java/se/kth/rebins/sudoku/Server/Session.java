@@ -0,0 +1,43 @@
+package se.kth.rebins.sudoku.Server;
+
+import se.kth.rebins.sudoku.Model.Facade;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One player's game. A Facade is not thread safe, so requests of a session take its lock.
+ * A ReentrantLock is used rather than synchronized, so a virtual thread waiting for it
+ * does not pin its carrier thread.
+ */
+class Session {
+    private final String id;
+    private final Facade facade;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long lastAccessNanos;
+
+    Session(String id, Facade facade) {
+        this.id = id;
+        this.facade = facade;
+        touch();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Facade getFacade() {
+        return facade;
+    }
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,130 @@
+package se.kth.rebins.sudoku.Server;
+
+import se.kth.rebins.sudoku.Model.Facade;
+import se.kth.rebins.sudoku.Model.PuzzlePool;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The game sessions of a GameServer, with a cap on their number and eviction of idle sessions.
+ * Sessions are looked up by a random id that is hard to guess. A sweeper thread removes sessions
+ * that have not been used for the idle timeout.
+ */
+class SessionStore {
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong evicted = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private final PuzzlePool pool;
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Constructs a store and starts its sweeper.
+     *
+     * @param pool           The pool the games of all sessions take their puzzles from.
+     * @param maxSessions    The highest number of sessions held at once.
+     * @param idleTimeoutSec The number of seconds after which an unused session is evicted.
+     */
+    SessionStore(PuzzlePool pool, int maxSessions, long idleTimeoutSec) {
+        this.pool = pool;
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSec);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutSec / 4);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a session with a new game.
+     *
+     * @param level The difficulty level of the game.
+     * @return The session, or null if the store is full.
+     */
+    Session create(SudokuUtilities.SudokuLevel level) {
+        if (size.incrementAndGet() > maxSessions) {
+            size.decrementAndGet();
+            return null;
+        }
+        boolean created = false;
+        try {
+            Session session = new Session(newId(), new Facade(level, pool));
+            sessions.put(session.getId(), session);
+            created = true;
+            return session;
+        } finally {
+            if (!created) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Looks up a session and marks it as used.
+     *
+     * @param id The session id.
+     * @return The session, or null if there is no session with the id.
+     */
+    Session get(String id) {
+        Session session = sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * Returns the number of sessions held.
+     *
+     * @return The session count.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of sessions evicted for being idle.
+     *
+     * @return The eviction count.
+     */
+    long getEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * Stops the sweeper.
+     */
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.getLastAccessNanos() > idleTimeoutNanos
+                    && sessions.remove(session.getId(), session)) {
+                size.decrementAndGet();
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    private String newId() {
+        byte[] bytes = new byte[12];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,339 @@
+package se.kth.rebins.sudoku;
+
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Model.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless entry point for batch jobs. It only uses the Model classes that do not depend on JavaFX,
+ * so it runs from the class path without the JavaFX modules:
+ * <pre>
+ *   java -cp Sudoku.jar se.kth.rebins.sudoku.SudokuCli solve puzzles.txt
+ *   java -cp Sudoku.jar se.kth.rebins.sudoku.SudokuCli generate 1000 HARD
+ *   java -cp Sudoku.jar se.kth.rebins.sudoku.SudokuCli verify game1.sudoku game2.sudoku
+ *   java -cp Sudoku.jar se.kth.rebins.sudoku.SudokuCli library puzzles.txt puzzles.sdl
+ * </pre>
+ * Work is spread over all available processors, or over the number given with -t. Results are
+ * written to standard output, one tab-separated line per item as soon as it is done, so they
+ * are not in input order. Timings of each phase are written to standard error, followed by a
+ * snapshot of the MetricsRegistry when --metrics is given.
+ */
+public class SudokuCli {
+    private static final int CELL_COUNT = SudokuUtilities.GRID_SIZE * SudokuUtilities.GRID_SIZE;
+    private static final int TASKS_PER_THREAD = 4;
+    private static final ThreadLocal<SudokuSolver> solvers = ThreadLocal.withInitial(SudokuSolver::new);
+
+    private final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+    private final int threads;
+
+    private SudokuCli(int threads) {
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean metrics = false;
+        int first = 0;
+        while (first < args.length && args[first].startsWith("-")) {
+            if (args[first].equals("-t") && first + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[first + 1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Error: thread count " + args[first + 1] + " is not a number");
+                    usage();
+                    System.exit(2);
+                }
+                first += 2;
+            } else if (args[first].equals("--metrics")) {
+                metrics = true;
+                first++;
+            } else {
+                usage();
+                System.exit(2);
+            }
+        }
+        if (metrics) {
+            MetricsRegistry.getShared().setEnabled(true);
+        }
+        if (args.length - first < 2 || threads < 1) {
+            usage();
+            System.exit(2);
+        }
+
+        String command = args[first];
+        List<String> operands = List.of(args).subList(first + 1, args.length);
+        SudokuCli cli = new SudokuCli(threads);
+        try {
+            boolean ok;
+            switch (command) {
+                case "solve":
+                    ok = cli.solve(Path.of(operands.get(0)));
+                    break;
+                case "generate":
+                    ok = cli.generate(Integer.parseInt(operands.get(0)), operands.subList(1, operands.size()));
+                    break;
+                case "verify":
+                    ok = cli.verify(operands);
+                    break;
+                case "library":
+                    if (operands.size() != 2) {
+                        usage();
+                        System.exit(2);
+                    }
+                    ok = cli.library(Path.of(operands.get(0)), Path.of(operands.get(1)));
+                    break;
+                default:
+                    usage();
+                    System.exit(2);
+                    return;
+            }
+            cli.out.flush();
+            if (metrics) {
+                System.err.print(MetricsRegistry.getShared().snapshot());
+            }
+            System.exit(ok ? 0 : 1);
+        } catch (IOException | ExecutionException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: SudokuCli [-t threads] [--metrics] solve <puzzle file>");
+        System.err.println("       SudokuCli [-t threads] [--metrics] generate <count> [EASY|MEDIUM|HARD ...]");
+        System.err.println("       SudokuCli [-t threads] [--metrics] verify <save file> ...");
+        System.err.println("       SudokuCli [-t threads] [--metrics] library <puzzle file> <library file>");
+    }
+
+    /**
+     * Solves every puzzle of a file in the format read by PuzzleImporter. Each puzzle is written
+     * with its line number and its solution, or with "unsolvable" if it has no unique solution.
+     *
+     * @return True if every puzzle had a unique solution.
+     */
+    private boolean solve(Path input) throws IOException, InterruptedException {
+        ImportStage write = puzzle -> {
+            int[][][] matrix = puzzle.getMatrix();
+            int[] grid = new int[CELL_COUNT];
+            for (int i = 0; i < CELL_COUNT; i++) {
+                grid[i] = matrix[i / SudokuUtilities.GRID_SIZE][i % SudokuUtilities.GRID_SIZE][0];
+            }
+            StringBuilder line = new StringBuilder(2 * CELL_COUNT + 24);
+            line.append(puzzle.getLineNumber()).append('\t');
+            appendDigits(line, grid);
+            line.append('\t');
+            boolean solved = solvers.get().solveUnique(grid);
+            if (solved) {
+                appendDigits(line, grid);
+            } else {
+                line.append("unsolvable");
+            }
+            writeLine(line);
+            return solved;
+        };
+
+        PuzzleImporter importer = new PuzzleImporter(List.of(write), threads, threads * 64);
+        ImportStats stats = importer.importFile(input);
+        long flushStart = System.nanoTime();
+        out.flush();
+        phase("solve", stats.getAccepted() + stats.getDropped(), stats.getElapsedNanos());
+        phase("flush", 0, System.nanoTime() - flushStart);
+        System.err.println(stats);
+        return stats.getRejected() == 0 && stats.getDropped() == 0;
+    }
+
+    /**
+     * Generates puzzles for each of the levels, or for all levels if none are given. Each puzzle
+     * is written as its initial values, its solution and its level, a line PuzzleImporter reads back.
+     */
+    private boolean generate(int count, List<String> levelNames) throws IOException, InterruptedException, ExecutionException {
+        SudokuUtilities.SudokuLevel[] levels = SudokuUtilities.SudokuLevel.values();
+        if (!levelNames.isEmpty()) {
+            levels = new SudokuUtilities.SudokuLevel[levelNames.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = SudokuUtilities.SudokuLevel.valueOf(levelNames.get(i).toUpperCase());
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            PuzzleGenerator generator = new PuzzleGenerator(new Random(), pool);
+            CompletionService<int[][][]> completion = new ExecutorCompletionService<>(pool);
+            for (SudokuUtilities.SudokuLevel level : levels) {
+                long start = System.nanoTime();
+                int submitted = 0;
+                for (int done = 0; done < count; done++) {
+                    while (submitted < count && submitted - done < threads * TASKS_PER_THREAD) {
+                        completion.submit(() -> generator.generate(level));
+                        submitted++;
+                    }
+                    int[] flat = SudokuUtilities.toFlatArray(completion.take().get());
+                    StringBuilder line = new StringBuilder(2 * CELL_COUNT + 16);
+                    appendDigits(line, flat, 0);
+                    line.append('\t');
+                    appendDigits(line, flat, CELL_COUNT);
+                    line.append('\t').append(level);
+                    writeLine(line);
+                }
+                out.flush();
+                phase("generate " + level, count, System.nanoTime() - start);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return true;
+    }
+
+    /**
+     * Verifies saved games: the givens must agree with the stored solution, and the solution must
+     * be the unique solution of the givens. Each file is written with OK and its progress, or with
+     * INVALID and the reason.
+     *
+     * @return True if every file is a valid saved game.
+     */
+    private boolean verify(List<String> files) throws IOException, InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        boolean allValid = true;
+        try {
+            long start = System.nanoTime();
+            CompletionService<String> completion = new ExecutorCompletionService<>(pool);
+            for (String file : files) {
+                completion.submit(() -> verifyFile(file));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                String line = completion.take().get();
+                allValid &= line.contains("\tOK\t");
+                writeLine(new StringBuilder(line));
+            }
+            out.flush();
+            phase("verify", files.size(), System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+        return allValid;
+    }
+
+    /**
+     * Builds a PuzzleLibrary from a file in the format read by PuzzleImporter. Puzzles without a
+     * unique solution and symmetries of earlier puzzles are dropped, the rest are rated and stored
+     * by level. The number of puzzles of each level is written as one line per level.
+     *
+     * @return True if no line of the input was rejected.
+     */
+    private boolean library(Path input, Path output) throws IOException, InterruptedException {
+        ImportStats stats;
+        try (PuzzleLibraryWriter writer = new PuzzleLibraryWriter(output)) {
+            ImportStage write = puzzle -> {
+                int[] flat = SudokuUtilities.toFlatArray(puzzle.getMatrix());
+                try {
+                    writer.add(Arrays.copyOf(flat, CELL_COUNT), Arrays.copyOfRange(flat, CELL_COUNT, 2 * CELL_COUNT),
+                            puzzle.getRating());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            };
+            PuzzleImporter importer = new PuzzleImporter(List.of(PuzzleImporter.solveStage(),
+                    PuzzleImporter.canonicalDedupeStage(new FingerprintIndex(1 << 20)), PuzzleImporter.rateStage(),
+                    write), threads, threads * 64);
+            stats = importer.importFile(input);
+            long finishStart = System.nanoTime();
+            writer.finish();
+            phase("import", stats.getAccepted() + stats.getDropped(), stats.getElapsedNanos());
+            phase("write", 0, System.nanoTime() - finishStart);
+        }
+        System.err.println(stats);
+
+        try (PuzzleLibrary library = new PuzzleLibrary(output, null)) {
+            for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+                writeLine(new StringBuilder().append(level).append('\t').append(library.count(level)));
+            }
+        }
+        out.flush();
+        return stats.getRejected() == 0;
+    }
+
+    private static String verifyFile(String file) {
+        Board board = new Board();
+        SudokuUtilities.SudokuLevel level;
+        try {
+            level = FileLogic.loadGame(new File(file), board);
+        } catch (NoSuchFileException e) {
+            return file + "\tINVALID\tfile not found";
+        } catch (IOException e) {
+            return file + "\tINVALID\t" + e.getMessage();
+        }
+
+        int cellCount = board.getCellCount();
+        int[] givens = new int[cellCount];
+        int[] solution = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            solution[i] = board.getSolution(i);
+            if (solution[i] == 0)
+                return file + "\tINVALID\tsolution is incomplete";
+            if (board.isGiven(i)) {
+                givens[i] = board.getValue(i);
+                if (givens[i] != solution[i])
+                    return file + "\tINVALID\tgiven at cell " + i + " disagrees with the solution";
+            }
+        }
+        SudokuSolver solver = board.getGridSize() == SudokuUtilities.GRID_SIZE ?
+                solvers.get() : new SudokuSolver(board.getGridSize());
+        if (!solver.solveUnique(givens))
+            return file + "\tINVALID\tgivens do not have a unique solution";
+        for (int i = 0; i < cellCount; i++) {
+            if (givens[i] != solution[i])
+                return file + "\tINVALID\tstored solution is not the solution of the givens";
+        }
+        return file + "\tOK\t" + (level == null ? "text" : level) + "\t" + board.getFilledCount() + "/"
+                + cellCount + " filled\t" + board.getWrongCount() + " wrong";
+    }
+
+    private void writeLine(StringBuilder line) {
+        line.append('\n');
+        try {
+            synchronized (out) {
+                out.append(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void appendDigits(StringBuilder line, int[] values) {
+        appendDigits(line, values, 0);
+    }
+
+    private static void appendDigits(StringBuilder line, int[] values, int from) {
+        for (int i = from; i < from + CELL_COUNT; i++) {
+            line.append((char) ('0' + values[i]));
+        }
+    }
+
+    private static void phase(String name, long items, long nanos) {
+        double seconds = nanos / 1e9;
+        if (items > 0) {
+            System.err.printf("%s: %d in %.3f s (%.1f/s)%n", name, items, seconds, items / seconds);
+        } else {
+            System.err.printf("%s: %.3f s%n", name, seconds);
+        }
+    }
+}
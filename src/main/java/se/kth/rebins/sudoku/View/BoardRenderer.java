@@ -0,0 +1,76 @@
+package se.kth.rebins.sudoku.View;
+
+import javafx.scene.Node;
+
+/**
+ * Draws the cells of the board for GridView. GridView tracks which cells changed and calls
+ * showValue or showMarks only for cells whose displayed content differs, on the JavaFX
+ * Application Thread. Pencil marks are drawn by the node of the cell itself, never by extra
+ * nodes per mark.
+ */
+public interface BoardRenderer {
+
+    /**
+     * Returns the node that displays the board.
+     *
+     * @return The node to put into the scene.
+     */
+    Node getNode();
+
+    /**
+     * Returns the size of the board the renderer draws.
+     *
+     * @return The side of the board.
+     */
+    int getGridSize();
+
+    /**
+     * Displays a value in a cell.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value The value to display, zero for an empty cell.
+     */
+    void showValue(int row, int col, int value);
+
+    /**
+     * Displays the pencil marks of an empty cell, replacing what the cell showed.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param marks The marks, bit (d - 1) representing digit d; never zero.
+     */
+    void showMarks(int row, int col, int marks);
+
+    /**
+     * Highlights a cell that contradicts the rules, or removes the highlight. The highlight is
+     * drawn behind the content of the cell, so GridView shows the cell again after changing it.
+     *
+     * @param row           The row index of the cell.
+     * @param col           The column index of the cell.
+     * @param contradiction True to highlight the cell.
+     */
+    void showContradiction(int row, int col, boolean contradiction);
+
+    /**
+     * Sets the handler called when the user clicks a cell.
+     *
+     * @param handler The handler.
+     */
+    void setOnCellClicked(CellClickHandler handler);
+
+    /**
+     * Receives clicks on cells.
+     */
+    @FunctionalInterface
+    interface CellClickHandler {
+
+        /**
+         * Called when the user clicks a cell.
+         *
+         * @param row The row index of the cell.
+         * @param col The column index of the cell.
+         */
+        void cellClicked(int row, int col);
+    }
+}
@@ -0,0 +1,158 @@
+package se.kth.rebins.sudoku.View;
+
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.SECTION_SIZE;
+
+/**
+ * Draws the whole board on a single Canvas. The grid lines are drawn once and kept as an image;
+ * changing a cell copies its square back from that image and draws the new digit on top, so a
+ * change costs the same whatever else is on the board. Clicks are mapped to cells by arithmetic
+ * on the mouse coordinates instead of by per-cell nodes and handlers. Pencil marks are drawn in
+ * a smaller font, each digit in its own slot of a box-shaped grid inside the cell.
+ */
+public class CanvasBoardRenderer implements BoardRenderer {
+    private static final double CELL_SIZE = 32;
+    private static final double BORDER = 2;
+    private static final double INSET = 1;
+    private static final Color CONTRADICTION = Color.web("#ffc8c8");
+
+    private final int gridSize;
+    private final int sectionSize;
+    private final double boardSize;
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+    private final WritableImage background;
+    private final Font digitFont = Font.font("Monospaced", FontWeight.NORMAL, 20);
+    private final Font markFont;
+    private final boolean[] contradictions;
+    private CellClickHandler handler;
+
+    public CanvasBoardRenderer() {
+        this(GRID_SIZE, SECTION_SIZE);
+    }
+
+    /**
+     * Constructs a renderer for a board size.
+     *
+     * @param gridSize    The side of the board.
+     * @param sectionSize The side of a box.
+     */
+    public CanvasBoardRenderer(int gridSize, int sectionSize) {
+        this.gridSize = gridSize;
+        this.sectionSize = sectionSize;
+        boardSize = gridSize * CELL_SIZE + 2 * BORDER;
+        contradictions = new boolean[gridSize * gridSize];
+        canvas = new Canvas(boardSize, boardSize);
+        graphics = canvas.getGraphicsContext2D();
+        drawGrid();
+        background = canvas.snapshot(null, null);
+
+        markFont = Font.font("Monospaced", FontWeight.NORMAL, 0.75 * (CELL_SIZE - 2 * INSET) / sectionSize);
+        graphics.setFont(digitFont);
+        graphics.setFill(Color.BLACK);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+
+        canvas.setOnMouseClicked(event -> {
+            int row = cellAt(event.getY());
+            int col = cellAt(event.getX());
+            if (handler != null && row >= 0 && col >= 0) {
+                handler.cellClicked(row, col);
+            }
+        });
+    }
+
+    @Override
+    public Node getNode() {
+        return canvas;
+    }
+
+    @Override
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    @Override
+    public void showValue(int row, int col, int value) {
+        double x = BORDER + col * CELL_SIZE + INSET;
+        double y = BORDER + row * CELL_SIZE + INSET;
+        double size = CELL_SIZE - 2 * INSET;
+        clearCell(row, col, x, y, size);
+        if (value != 0) {
+            graphics.fillText(GridView.digitText(value), x + size / 2, y + size / 2);
+        }
+    }
+
+    @Override
+    public void showMarks(int row, int col, int marks) {
+        double x = BORDER + col * CELL_SIZE + INSET;
+        double y = BORDER + row * CELL_SIZE + INSET;
+        double size = CELL_SIZE - 2 * INSET;
+        double slot = size / sectionSize;
+        clearCell(row, col, x, y, size);
+        graphics.setFont(markFont);
+        for (int remaining = marks; remaining != 0; remaining &= remaining - 1) {
+            int position = Integer.numberOfTrailingZeros(remaining);
+            graphics.fillText(GridView.digitText(position + 1),
+                    x + (position % sectionSize + 0.5) * slot, y + (position / sectionSize + 0.5) * slot);
+        }
+        graphics.setFont(digitFont);
+    }
+
+    @Override
+    public void showContradiction(int row, int col, boolean contradiction) {
+        contradictions[row * gridSize + col] = contradiction;
+    }
+
+    @Override
+    public void setOnCellClicked(CellClickHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Copies the square of a cell back from the background, tinted if the cell is a contradiction.
+     */
+    private void clearCell(int row, int col, double x, double y, double size) {
+        graphics.drawImage(background, x, y, size, size, x, y, size, size);
+        if (contradictions[row * gridSize + col]) {
+            graphics.setFill(CONTRADICTION);
+            graphics.fillRect(x, y, size, size);
+            graphics.setFill(Color.BLACK);
+        }
+    }
+
+    /**
+     * Maps a mouse coordinate to a row or column.
+     *
+     * @return The row or column index, or -1 outside the cells.
+     */
+    private int cellAt(double coordinate) {
+        double offset = coordinate - BORDER;
+        if (offset < 0 || offset >= gridSize * CELL_SIZE) {
+            return -1;
+        }
+        return (int) (offset / CELL_SIZE);
+    }
+
+    private void drawGrid() {
+        graphics.setFill(Color.WHITE);
+        graphics.fillRect(0, 0, boardSize, boardSize);
+        graphics.setStroke(Color.BLACK);
+        for (int line = 0; line <= gridSize; line++) {
+            double at = BORDER + line * CELL_SIZE;
+            graphics.setLineWidth(line % sectionSize == 0 ? BORDER : 0.5);
+            graphics.strokeLine(at, BORDER, at, boardSize - BORDER);
+            graphics.strokeLine(BORDER, at, boardSize - BORDER, at);
+        }
+    }
+}
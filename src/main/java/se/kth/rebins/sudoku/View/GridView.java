@@ -1,39 +1,159 @@
 package se.kth.rebins.sudoku.View;
 
+import javafx.application.Platform;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.geometry.Pos;
 
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
+import se.kth.rebins.sudoku.Metrics.Counter;
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
+import se.kth.rebins.sudoku.Metrics.Timer;
 import se.kth.rebins.sudoku.Model.*;
 
-import static se.kth.rebins.sudoku.Model.SudokuUtilities.*;
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.MAX_GRID_SIZE;
+
+/**
+ * The board and its controls. The board is drawn by a BoardRenderer, the Label renderer by default
+ * or the Canvas renderer when the system property sudoku.renderer is "canvas"; the View menu
+ * switches between them at runtime.
+ *
+ * Cells are updated incrementally: the view listens to the Facade, marks changed cells dirty and
+ * renders all of them in a single task on the JavaFX Application Thread, passing only the cells
+ * whose displayed value or pencil marks differ to the renderer. Digit texts come from a constant
+ * table, so rendering values allocates no strings. Listener callbacks are expected on the JavaFX
+ * Application Thread.
+ *
+ * Reports of a SolvabilityAnalyzer highlight the cells that contradict the rules, and a label below
+ * the buttons tells whether the board can still be completed.
+ *
+ * The Edit menu selects how pencil marks are kept. In manual mode the Notes button makes clicks
+ * toggle the selected digit as a mark instead of placing it.
+ *
+ * When a game of another board size replaces the current one, the view creates a renderer of the
+ * same kind for the new size and rebuilds the number buttons, one per digit.
+ */
+public final class GridView {
+    /**
+     * The system property selecting the renderer, "label" or "canvas".
+     */
+    public static final String RENDERER_PROPERTY = "sudoku.renderer";
+
+    private static final String[] DIGITS = new String[MAX_GRID_SIZE + 1];
+    private static final int BUTTONS_PER_COLUMN = 9;
+    private static final Timer RENDER_TIMER = MetricsRegistry.getShared().timer("render");
+    private static final Counter RENDERED_CELLS = MetricsRegistry.getShared().counter("render.cells");
+
+    static {
+        DIGITS[0] = "";
+        for (int digit = 1; digit <= MAX_GRID_SIZE; digit++) {
+            DIGITS[digit] = String.valueOf(digit);
+        }
+    }
 
-public class GridView {
-    private final Label[][] numberTiles;
-    private final GridPane numberPane;
+    private BoardRenderer renderer;
+    private BorderPane root;
     private final Facade facade;
     private SudokuController controller;
+    private int gridSize;
+    private int[] shownValues;
+    private int[] shownMarks;
+    private boolean[] shownContradictions;
+    private boolean[] dirty;
+    private int dirtyCount;
+    private boolean renderScheduled;
+    private final Runnable renderTask = this::render;
+    private ToggleButton notesButton;
+    private final Label solvabilityLabel = new Label();
 
     public GridView(Facade facade) {
         this.facade = facade;
-        numberTiles = new Label[GRID_SIZE][GRID_SIZE];
-        initNumberTiles();
-        numberPane = makeNumberPane();
+        resize();
+        setRenderer(createRenderer("canvas".equals(System.getProperty(RENDERER_PROPERTY))));
+        facade.addListener(new BoardListener() {
+            @Override
+            public void cellChanged(int row, int col, int oldValue, int newValue) {
+                markDirty(row * gridSize + col);
+                scheduleRender();
+            }
+
+            @Override
+            public void marksChanged(int row, int col, int marks) {
+                markDirty(row * gridSize + col);
+                scheduleRender();
+            }
+
+            @Override
+            public void boardReplaced() {
+                if (facade.getGridSize() != gridSize) {
+                    resize();
+                    setRenderer(createRenderer(renderer instanceof CanvasBoardRenderer));
+                    if (root != null) {
+                        root.setRight(createNumberButtons());
+                    }
+                } else {
+                    updateBoard();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the text displayed for a value.
+     *
+     * @param value The value, zero for an empty cell.
+     * @return The number, or the empty string for zero.
+     */
+    static String digitText(int value) {
+        return DIGITS[value];
+    }
+
+    /**
+     * Sizes the cell state for the board of the Facade, dropping any pending render of the old board.
+     */
+    private void resize() {
+        gridSize = facade.getGridSize();
+        shownValues = new int[gridSize * gridSize];
+        shownMarks = new int[gridSize * gridSize];
+        shownContradictions = new boolean[gridSize * gridSize];
+        dirty = new boolean[gridSize * gridSize];
+        dirtyCount = 0;
+    }
+
+    private BoardRenderer createRenderer(boolean canvas) {
+        return canvas ? new CanvasBoardRenderer(gridSize, facade.getSectionSize())
+                : new LabelBoardRenderer(gridSize, facade.getSectionSize());
+    }
+
+    /**
+     * Replaces the renderer of the board and shows the current values and marks with it.
+     *
+     * @param renderer The new renderer.
+     */
+    public void setRenderer(BoardRenderer renderer) {
+        this.renderer = renderer;
+        renderer.setOnCellClicked(this::handleTileClick);
+        for (int i = 0; i < shownValues.length; i++) {
+            shownValues[i] = facade.getUserValue(i / gridSize, i % gridSize);
+            shownMarks[i] = shownValues[i] == 0 ? facade.getMarks(i / gridSize, i % gridSize) : 0;
+            renderer.showContradiction(i / gridSize, i % gridSize, shownContradictions[i]);
+            show(i);
+        }
+        if (root != null) {
+            root.setCenter(renderer.getNode());
+        }
     }
 
     public BorderPane createMainLayout() {
-        BorderPane root = new BorderPane();
+        root = new BorderPane();
         root.setTop(createMenuBar());
 
-        VBox numberButtons = createNumberButtons();
-        root.setRight(numberButtons);
+        root.setRight(createNumberButtons());
         VBox actionButtons = createActionButtons();
         root.setLeft(actionButtons);
-        root.setCenter(numberPane);
+        root.setCenter(renderer.getNode());
         return root;
     }
 
@@ -47,28 +167,36 @@ public class GridView {
         Button hintButton = new Button("Hint");
         hintButton.setOnAction(e -> controller.provideHint());
 
-        vbox.getChildren().addAll(checkButton, hintButton);
+        notesButton = new ToggleButton("Notes");
+        notesButton.setDisable(facade.getMarksMode() != PencilMarks.Mode.MANUAL);
+
+        vbox.getChildren().addAll(checkButton, hintButton, notesButton, solvabilityLabel);
         return vbox;
     }
 
-    private VBox createNumberButtons() {
-        VBox vbox = new VBox(5);
-        vbox.setAlignment(Pos.CENTER);
-
-        for (int i = 1; i <= 9; i++) {
-            Button numberButton = new Button(String.valueOf(i));
+    /**
+     * Creates one button per digit of the current board, in columns of up to nine, and the clear button.
+     */
+    private GridPane createNumberButtons() {
+        GridPane buttons = new GridPane();
+        buttons.setHgap(5);
+        buttons.setVgap(5);
+        buttons.setAlignment(Pos.CENTER);
+
+        for (int i = 1; i <= gridSize; i++) {
+            Button numberButton = new Button(digitText(i));
             int number = i;
             numberButton.setOnAction(e -> controller.numberSelected(number));
-            vbox.getChildren().add(numberButton);
+            buttons.add(numberButton, (i - 1) / BUTTONS_PER_COLUMN, (i - 1) % BUTTONS_PER_COLUMN);
         }
 
         Button clearButton = new Button("C");
         clearButton.setOnAction(e -> {
             controller.setClearSelection();
         });
-        vbox.getChildren().add(clearButton);
+        buttons.add(clearButton, 0, Math.min(gridSize, BUTTONS_PER_COLUMN));
 
-        return vbox;
+        return buttons;
     }
 
     public BorderPane getNumberPane() {
@@ -85,14 +213,44 @@ public class GridView {
         saveGame.setOnAction(e -> controller.saveGame());
         MenuItem exit = new MenuItem("Exit");
         exit.setOnAction(e -> System.exit(0));
-        fileMenu.getItems().addAll(loadGame, saveGame, new SeparatorMenuItem(), exit);
+        MenuItem loadFromSlot = new MenuItem("Load from Slot...");
+        loadFromSlot.setOnAction(e -> controller.loadFromSlot());
+        MenuItem saveToSlot = new MenuItem("Save to Slot...");
+        saveToSlot.setOnAction(e -> controller.saveToSlot());
+        fileMenu.getItems().addAll(loadGame, saveGame, new SeparatorMenuItem(), loadFromSlot, saveToSlot,
+                new SeparatorMenuItem(), exit);
 
         Menu gameMenu = new Menu("Game");
         MenuItem resetGame = new MenuItem("Reset Game");
         resetGame.setOnAction(e -> controller.resetGame());
         MenuItem changeDifficulty = new MenuItem("Change Difficulty");
         changeDifficulty.setOnAction(e -> controller.changeDifficulty());
-        gameMenu.getItems().addAll(resetGame, changeDifficulty);
+        MenuItem changeGridSize = new MenuItem("Change Board Size");
+        changeGridSize.setOnAction(e -> controller.changeGridSize());
+        gameMenu.getItems().addAll(resetGame, changeDifficulty, changeGridSize);
+
+        Menu editMenu = new Menu("Edit");
+        MenuItem undo = new MenuItem("Undo");
+        undo.setOnAction(e -> controller.undo());
+        undo.setAccelerator(KeyCombination.keyCombination("Shortcut+Z"));
+        MenuItem redo = new MenuItem("Redo");
+        redo.setOnAction(e -> controller.redo());
+        redo.setAccelerator(KeyCombination.keyCombination("Shortcut+Y"));
+        editMenu.getItems().addAll(undo, redo, new SeparatorMenuItem());
+        ToggleGroup marksModes = new ToggleGroup();
+        for (PencilMarks.Mode mode : PencilMarks.Mode.values()) {
+            RadioMenuItem item = new RadioMenuItem(marksModeText(mode));
+            item.setToggleGroup(marksModes);
+            item.setSelected(facade.getMarksMode() == mode);
+            item.setOnAction(e -> {
+                controller.setMarksMode(mode);
+                notesButton.setDisable(mode != PencilMarks.Mode.MANUAL);
+                if (mode != PencilMarks.Mode.MANUAL) {
+                    notesButton.setSelected(false);
+                }
+            });
+            editMenu.getItems().add(item);
+        }
 
         Menu helpMenu = new Menu("Help");
         MenuItem viewRules = new MenuItem("View Rules");
@@ -103,10 +261,32 @@ public class GridView {
         clearPlacedCells.setOnAction(e -> controller.clearPlacedCells());
         helpMenu.getItems().add(clearPlacedCells);
 
-        menuBar.getMenus().addAll(fileMenu, gameMenu, helpMenu);
+        Menu viewMenu = new Menu("View");
+        CheckMenuItem canvasRenderer = new CheckMenuItem("Canvas Renderer");
+        canvasRenderer.setSelected(renderer instanceof CanvasBoardRenderer);
+        canvasRenderer.setOnAction(e -> setRenderer(createRenderer(canvasRenderer.isSelected())));
+        CheckMenuItem collectMetrics = new CheckMenuItem("Collect Metrics");
+        collectMetrics.setSelected(MetricsRegistry.getShared().isEnabled());
+        collectMetrics.setOnAction(e -> MetricsRegistry.getShared().setEnabled(collectMetrics.isSelected()));
+        MenuItem showMetrics = new MenuItem("Metrics Snapshot");
+        showMetrics.setOnAction(e -> controller.showMetrics());
+        viewMenu.getItems().addAll(canvasRenderer, new SeparatorMenuItem(), collectMetrics, showMetrics);
+
+        menuBar.getMenus().addAll(fileMenu, editMenu, viewMenu, gameMenu, helpMenu);
         return menuBar;
     }
 
+    private static String marksModeText(PencilMarks.Mode mode) {
+        switch (mode) {
+            case AUTO:
+                return "Automatic Notes";
+            case MANUAL:
+                return "Manual Notes";
+            default:
+                return "No Notes";
+        }
+    }
+
     private void displayRules() {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Sudoku Rules");
@@ -115,28 +295,6 @@ public class GridView {
         alert.showAndWait();
     }
 
-    private final void initNumberTiles() {
-        Font font = Font.font("Monospaced", FontWeight.NORMAL, 20);
-
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                String value = facade.isCellVisible(row, col) ?
-                        String.valueOf(facade.getUserValue(row, col)) :
-                        "";
-                Label tile = new Label(value);
-                tile.setPrefWidth(32);
-                tile.setPrefHeight(32);
-                tile.setFont(font);
-                tile.setAlignment(Pos.CENTER);
-                tile.setStyle("-fx-border-color: black; -fx-border-width: 0.5px;");
-                int finalRow = row;
-                int finalCol = col;
-                tile.setOnMouseClicked(event -> handleTileClick(finalRow, finalCol));
-                numberTiles[row][col] = tile;
-            }
-        }
-    }
-
     private void handleTileClick(int row, int col) {
         if (facade.isCellVisible(row, col)) {
             return;
@@ -146,62 +304,104 @@ public class GridView {
         int userValue = controller.getSelectedNumber();
 
         if (userValue == -1) {
-            facade.setUserValue(row, col, 0);
-            numberTiles[row][col].setText("");
+            controller.clearSelection(row, col);
             return;
         }
         if (userValue == 0) {
             return;
         }
-        if (userValue == 'C') {
-            controller.clearSelection(row, col);
+        if (notesButton != null && notesButton.isSelected()) {
+            facade.toggleMark(row, col, userValue);
+            return;
         }
         facade.setUserValue(row, col, userValue);
-
-        numberTiles[row][col].setText(String.valueOf(userValue));
     }
 
+    /**
+     * Marks every cell dirty and renders the whole board in one pass, for example after the board was replaced.
+     */
     public void updateBoard() {
-        for (int row = 0; row < SudokuUtilities.GRID_SIZE; row++) {
-            for (int col = 0; col < SudokuUtilities.GRID_SIZE; col++) {
-                String value = facade.isCellVisible(row, col) ? String.valueOf(facade.getUserValue(row, col)) : "";
-                numberTiles[row][col].setText(value);
-            }
+        for (int i = 0; i < dirty.length; i++) {
+            markDirty(i);
         }
+        scheduleRender();
     }
 
-    private final GridPane makeNumberPane() {
-        GridPane root = new GridPane();
-        root.setStyle(
-                "-fx-border-color: black; -fx-border-width: 1.0px; -fx-background-color: white;");
+    private void markDirty(int index) {
+        if (!dirty[index]) {
+            dirty[index] = true;
+            dirtyCount++;
+        }
+    }
 
-        for (int srow = 0; srow < SECTIONS_PER_ROW; srow++) {
-            for (int scol = 0; scol < SECTIONS_PER_ROW; scol++) {
-                GridPane section = new GridPane();
-                section.setStyle("-fx-border-color: black; -fx-border-width: 0.5px;");
-                for (int row = 0; row < SECTION_SIZE; row++) {
-                    for (int col = 0; col < SECTION_SIZE; col++) {
+    private void scheduleRender() {
+        if (!renderScheduled) {
+            renderScheduled = true;
+            Platform.runLater(renderTask);
+        }
+    }
 
-                        section.add(
-                                numberTiles[srow * SECTION_SIZE + row][scol * SECTION_SIZE + col],
-                                col, row);
-                    }
+    /**
+     * Updates the dirty cells whose value or marks differ from the ones shown.
+     */
+    private void render() {
+        renderScheduled = false;
+        long start = RENDER_TIMER.start();
+        int rendered = 0;
+        for (int i = 0; i < dirty.length && dirtyCount > 0; i++) {
+            if (dirty[i]) {
+                dirty[i] = false;
+                dirtyCount--;
+                int value = facade.getUserValue(i / gridSize, i % gridSize);
+                int marks = value == 0 ? facade.getMarks(i / gridSize, i % gridSize) : 0;
+                if (shownValues[i] != value || shownMarks[i] != marks) {
+                    shownValues[i] = value;
+                    shownMarks[i] = marks;
+                    show(i);
+                    rendered++;
                 }
-                root.add(section, scol, srow);
             }
         }
-
-        return root;
+        RENDERED_CELLS.add(rendered);
+        RENDER_TIMER.stop(start);
     }
 
-    public void updateSudokuGrid(int row, int col, int value) {
-        String displayValue;
-        if (value == 0) {
-            displayValue = "";
+    /**
+     * Passes the shown value of a cell to the renderer, or its marks if the cell is empty and has any.
+     */
+    private void show(int index) {
+        if (shownMarks[index] != 0) {
+            renderer.showMarks(index / gridSize, index % gridSize, shownMarks[index]);
         } else {
-            displayValue = String.valueOf(value);
+            renderer.showValue(index / gridSize, index % gridSize, shownValues[index]);
+        }
+    }
+
+    /**
+     * Shows a report of the current board: highlights the cells whose contradiction changed and
+     * tells whether the board can still be completed.
+     *
+     * @param report A report of the current version of the game.
+     */
+    public void showReport(SolvabilityReport report) {
+        for (int i = 0; i < shownContradictions.length; i++) {
+            boolean contradiction = report.isContradiction(i);
+            if (shownContradictions[i] != contradiction) {
+                shownContradictions[i] = contradiction;
+                renderer.showContradiction(i / gridSize, i % gridSize, contradiction);
+                show(i);
+            }
+        }
+        switch (report.getStatus()) {
+            case SOLVABLE:
+                solvabilityLabel.setText("Solvable");
+                break;
+            case UNSOLVABLE:
+                solvabilityLabel.setText("No solution");
+                break;
+            default:
+                solvabilityLabel.setText("");
         }
-        numberTiles[row][col].setText(displayValue);
     }
 
     public void setController(SudokuController controller) {
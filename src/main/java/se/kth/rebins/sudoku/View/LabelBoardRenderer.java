@@ -0,0 +1,139 @@
+package se.kth.rebins.sudoku.View;
+
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
+import static se.kth.rebins.sudoku.Model.SudokuUtilities.SECTION_SIZE;
+
+/**
+ * Displays the board as one Label per cell in section GridPanes, one per box. Pencil marks are
+ * shown by the same Label as a few lines of small text, one line per row of a box.
+ */
+public class LabelBoardRenderer implements BoardRenderer {
+    private static final String TILE_STYLE = "-fx-border-color: black; -fx-border-width: 0.5px;";
+    private static final String CONTRADICTION_STYLE = TILE_STYLE + " -fx-background-color: #ffc8c8;";
+
+    private final int gridSize;
+    private final int sectionSize;
+    private final Label[][] numberTiles;
+    private final GridPane numberPane;
+    private final Font digitFont = Font.font("Monospaced", FontWeight.NORMAL, 20);
+    private final Font markFont;
+    private final StringBuilder markText = new StringBuilder();
+    private CellClickHandler handler;
+
+    public LabelBoardRenderer() {
+        this(GRID_SIZE, SECTION_SIZE);
+    }
+
+    /**
+     * Constructs a renderer for a board size.
+     *
+     * @param gridSize    The side of the board.
+     * @param sectionSize The side of a box.
+     */
+    public LabelBoardRenderer(int gridSize, int sectionSize) {
+        this.gridSize = gridSize;
+        this.sectionSize = sectionSize;
+        numberTiles = new Label[gridSize][gridSize];
+        markFont = Font.font("Monospaced", FontWeight.NORMAL, 24.0 / sectionSize);
+        initNumberTiles();
+        numberPane = makeNumberPane();
+    }
+
+    @Override
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    @Override
+    public Node getNode() {
+        return numberPane;
+    }
+
+    @Override
+    public void showValue(int row, int col, int value) {
+        numberTiles[row][col].setFont(digitFont);
+        numberTiles[row][col].setText(GridView.digitText(value));
+    }
+
+    @Override
+    public void showMarks(int row, int col, int marks) {
+        int width = GridView.digitText(gridSize).length();
+        markText.setLength(0);
+        for (int digit = 1; digit <= gridSize; digit++) {
+            String text = (marks & 1 << (digit - 1)) != 0 ? GridView.digitText(digit) : "";
+            for (int pad = text.length(); pad < width; pad++) {
+                markText.append(' ');
+            }
+            markText.append(text);
+            if (digit % sectionSize != 0) {
+                markText.append(' ');
+            } else if (digit < gridSize) {
+                markText.append('\n');
+            }
+        }
+        numberTiles[row][col].setFont(markFont);
+        numberTiles[row][col].setText(markText.toString());
+    }
+
+    @Override
+    public void showContradiction(int row, int col, boolean contradiction) {
+        numberTiles[row][col].setStyle(contradiction ? CONTRADICTION_STYLE : TILE_STYLE);
+    }
+
+    @Override
+    public void setOnCellClicked(CellClickHandler handler) {
+        this.handler = handler;
+    }
+
+    private void initNumberTiles() {
+        for (int row = 0; row < gridSize; row++) {
+            for (int col = 0; col < gridSize; col++) {
+                Label tile = new Label();
+                tile.setPrefWidth(32);
+                tile.setPrefHeight(32);
+                tile.setFont(digitFont);
+                tile.setAlignment(Pos.CENTER);
+                tile.setStyle(TILE_STYLE);
+                int finalRow = row;
+                int finalCol = col;
+                tile.setOnMouseClicked(event -> {
+                    if (handler != null) {
+                        handler.cellClicked(finalRow, finalCol);
+                    }
+                });
+                numberTiles[row][col] = tile;
+            }
+        }
+    }
+
+    private GridPane makeNumberPane() {
+        GridPane root = new GridPane();
+        root.setStyle(
+                "-fx-border-color: black; -fx-border-width: 1.0px; -fx-background-color: white;");
+
+        for (int srow = 0; srow < sectionSize; srow++) {
+            for (int scol = 0; scol < sectionSize; scol++) {
+                GridPane section = new GridPane();
+                section.setStyle("-fx-border-color: black; -fx-border-width: 0.5px;");
+                for (int row = 0; row < sectionSize; row++) {
+                    for (int col = 0; col < sectionSize; col++) {
+
+                        section.add(
+                                numberTiles[srow * sectionSize + row][scol * sectionSize + col],
+                                col, row);
+                    }
+                }
+                root.add(section, scol, srow);
+            }
+        }
+
+        return root;
+    }
+}
@@ -1,30 +1,62 @@
 package se.kth.rebins.sudoku.View;
 
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.TextArea;
+import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
+import se.kth.rebins.sudoku.Metrics.MetricsRegistry;
 import se.kth.rebins.sudoku.Model.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Optional;
 
-import static se.kth.rebins.sudoku.Model.SudokuUtilities.GRID_SIZE;
-
 public class SudokuController {
+    private static final int SLOT_COUNT = 8;
 
     private final GridView gridView;
     private SudokuLevel currentLevel;
     private final Facade facade;
     private int selectedNumber;
+    private SaveArchive archive;
+    private final SnapshotWorker analysis;
+    private final SolvabilityAnalyzer solvability;
 
     public SudokuController(Facade facade, GridView gridView, SudokuLevel currentDifficulty) {
         this.facade = facade;
         this.gridView = gridView;
         this.selectedNumber = 0;
+        this.analysis = new SnapshotWorker(facade, Platform::runLater, "analysis");
+        this.solvability = new SolvabilityAnalyzer(facade, Platform::runLater, gridView::showReport);
+        facade.addListener(new BoardListener() {
+            @Override
+            public void puzzleSolved() {
+                Platform.runLater(() -> showCompleted(Alert.AlertType.INFORMATION, "Puzzle Solved",
+                        "Congratulations! You've correctly solved the puzzle."));
+            }
 
+            @Override
+            public void filledIncorrectly() {
+                Platform.runLater(() -> showCompleted(Alert.AlertType.ERROR, "Incorrect Solution",
+                        "The puzzle is not solved correctly. Try again!"));
+            }
+        });
+    }
+
+    private void showCompleted(Alert.AlertType type, String title, String message) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
     }
 
     public void saveGame() {
@@ -36,7 +68,7 @@ public class SudokuController {
             try {
                 facade.saveGame(file);
             } catch (IOException e) {
-                e.printStackTrace();
+                showError("Save Failed", e);
             }
         }
     }
@@ -49,25 +81,119 @@ public class SudokuController {
         if (file != null) {
             try {
                 facade.loadGame(file);
-                updateView();
             } catch (IOException e) {
-                e.printStackTrace();
+                showError("Load Failed", e);
+            }
+        }
+    }
+
+    public void saveToSlot() {
+        Optional<Integer> slot = chooseSlot("Save to Slot");
+        if (slot.isPresent()) {
+            try {
+                facade.saveGame(getArchive(), slot.get());
+                getArchive().force();
+            } catch (IOException | IllegalArgumentException e) {
+                showError("Save Failed", e);
+            }
+        }
+    }
+
+    public void loadFromSlot() {
+        Optional<Integer> slot = chooseSlot("Load from Slot");
+        if (slot.isPresent()) {
+            try {
+                facade.loadGame(getArchive(), slot.get());
+            } catch (IOException e) {
+                showError("Load Failed", e);
             }
         }
     }
 
+    private Optional<Integer> chooseSlot(String title) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 1; slot <= SLOT_COUNT; slot++) {
+            slots.add(slot);
+        }
+        ChoiceDialog<Integer> dialog = new ChoiceDialog<>(1, slots);
+        dialog.setTitle(title);
+        dialog.setHeaderText(title);
+        dialog.setContentText("Choose a slot:");
+        return dialog.showAndWait().map(slot -> slot - 1);
+    }
+
+    private SaveArchive getArchive() throws IOException {
+        if (archive == null) {
+            Path directory = Paths.get(System.getProperty("user.home"), ".sudoku");
+            Files.createDirectories(directory);
+            archive = new SaveArchive(directory.resolve("slots.sda"), SLOT_COUNT);
+        }
+        return archive;
+    }
+
+    public void showAutosaveFailure(IOException e) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Autosave Failed");
+        alert.setHeaderText("Your progress is not being saved");
+        alert.setContentText(e.getMessage() + "\nSaving is retried in the background.");
+        alert.show();
+    }
+
+    private void showError(String title, Exception e) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
+    }
+
     public void provideHint() {
-        int[] hint = facade.getRandomHint();
-        int row = hint[0];
-        int col = hint[1];
-        int value = hint[2];
+        // A hint for a board that changed in the meantime is looked up again for the new board.
+        analysis.submit(Facade::getLogicalHint, this::useHint, this::provideHint);
+    }
+
+    private void useHint(Hint logicalHint) {
+        int row, col, value;
+        String technique;
+        if (logicalHint != null) {
+            row = logicalHint.getRow();
+            col = logicalHint.getCol();
+            value = logicalHint.getValue();
+            technique = logicalHint.getTechnique().getDisplayName();
+        } else {
+            int[] hint = facade.getRandomHint();
+            if (hint == null) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("No Hint");
+                alert.setHeaderText("There are no empty cells left!");
+                alert.showAndWait();
+                return;
+            }
+            row = hint[0];
+            col = hint[1];
+            value = hint[2];
+            technique = null;
+        }
 
         facade.setUserValue(row, col, value);
-        gridView.updateSudokuGrid(row, col, value);
 
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Hint Used!");
         alert.setHeaderText("Hint: Cell (" + row + ", " + col + ")  is " + value);
+        if (technique != null) {
+            alert.setContentText("Found with: " + technique);
+        }
+        alert.showAndWait();
+    }
+
+    public void showMetrics() {
+        TextArea text = new TextArea(MetricsRegistry.getShared().snapshot());
+        text.setEditable(false);
+        text.setFont(Font.font("Monospaced", 12));
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Metrics");
+        alert.setHeaderText("Latencies in microseconds");
+        alert.getDialogPane().setContent(text);
         alert.showAndWait();
     }
 
@@ -97,7 +223,6 @@ public class SudokuController {
 
     public void resetGame() {
         facade.resetGame();
-        updateView();
     }
 
     public void changeDifficulty() {
@@ -111,38 +236,51 @@ public class SudokuController {
         result.ifPresent(level -> {
             SudokuUtilities.SudokuLevel newLevel = SudokuUtilities.SudokuLevel.valueOf(level);
             facade.newGame(newLevel);
-            gridView.updateBoard();
+        });
+    }
+
+    public void changeGridSize() {
+        List<String> choices = Arrays.asList("4x4", "9x9", "16x16", "25x25");
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(facade.getGridSize() + "x" + facade.getGridSize(), choices);
+        dialog.setTitle("Change Board Size");
+        dialog.setHeaderText("Select Sudoku Board Size");
+        dialog.setContentText("Choose your board:");
+
+        Optional<String> result = dialog.showAndWait();
+        result.ifPresent(size -> {
+            int gridSize = Integer.parseInt(size.substring(0, size.indexOf('x')));
+            this.selectedNumber = 0;
+            facade.newGame(facade.getDifficulty(), gridSize);
         });
     }
 
 
     public void clearSelection(int row, int col) {
         facade.setUserValue(row, col, 0);
-        gridView.updateSudokuGrid(row, col, 0);
+    }
 
+    public void clearPlacedCells() {
+        facade.clearPlacedCells();
     }
 
-    private void updateView() {
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                int value = facade.getUserValue(row, col);
-                gridView.updateSudokuGrid(row, col, value);
-            }
-        }
+    public void setMarksMode(PencilMarks.Mode mode) {
+        facade.setMarksMode(mode);
     }
 
-    public void clearPlacedCells() {
-        for (int row = 0; row < GRID_SIZE; row++) {
-            for (int col = 0; col < GRID_SIZE; col++) {
-                if (facade.isCellEditable(row, col)) {
-                    facade.setUserValue(row, col, 0);
-                    gridView.updateSudokuGrid(row, col, 0);
-                }
-            }
-        }
+    public void undo() {
+        facade.undo();
+    }
+
+    public void redo() {
+        facade.redo();
     }
 
     public void setClearSelection() {
         this.selectedNumber = -1;
     }
+
+    public void close() {
+        solvability.close();
+        analysis.close();
+    }
 }
\ No newline at end of file
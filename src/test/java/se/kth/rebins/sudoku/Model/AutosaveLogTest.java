@@ -0,0 +1,155 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutosaveLogTest {
+    private static final PuzzleSource PUZZLE = (level, gridSize) ->
+            SudokuUtilities.convertStringToIntMatrix(SudokuSolverTest.EASY + SudokuSolverTest.EASY_SOLUTION);
+
+    @TempDir
+    Path directory;
+
+    private static Facade newGame() {
+        return new Facade(SudokuUtilities.SudokuLevel.EASY, PUZZLE);
+    }
+
+    /**
+     * Starts logging a game and waits until its first snapshot is on disk, so the moves made
+     * afterwards go to the log instead of into that snapshot.
+     */
+    private AutosaveLog startLogging(Facade facade) throws IOException, InterruptedException {
+        AutosaveLog log = new AutosaveLog(directory, facade);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!Files.exists(directory.resolve("snapshot.sav"))) {
+            assertTrue(System.nanoTime() < deadline, "no snapshot written");
+            Thread.sleep(10);
+        }
+        return log;
+    }
+
+    /**
+     * Fills the first empty cells of the game, three with their solution and the last with a wrong value.
+     *
+     * @return The indexes of the filled cells.
+     */
+    private static int[] play(Facade facade) {
+        int[] cells = new int[4];
+        int count = 0;
+        for (int i = 0; i < 81 && count < cells.length; i++) {
+            int row = i / 9;
+            int col = i % 9;
+            if (facade.getUserValue(row, col) == 0) {
+                int solution = SudokuSolverTest.EASY_SOLUTION.charAt(i) - '0';
+                facade.setUserValue(row, col, count < 3 ? solution : solution % 9 + 1);
+                cells[count++] = i;
+            }
+        }
+        return cells;
+    }
+
+    private static void assertSameValues(Facade expected, Facade actual) {
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                assertEquals(expected.getUserValue(row, col), actual.getUserValue(row, col),
+                        "cell (" + row + ", " + col + ")");
+            }
+        }
+    }
+
+    private long logSize() throws IOException {
+        return Files.size(directory.resolve("moves.wal"));
+    }
+
+    @Test
+    void recoversNothingFromAnEmptyDirectory() throws IOException {
+        assertFalse(AutosaveLog.recover(directory, newGame()));
+    }
+
+    @Test
+    void recoversTheLoggedMoves() throws Exception {
+        Facade game = newGame();
+        AutosaveLog log = startLogging(game);
+        play(game);
+        log.close();
+        assertEquals(16, logSize());
+
+        Facade recovered = newGame();
+        assertTrue(AutosaveLog.recover(directory, recovered));
+        assertSameValues(game, recovered);
+    }
+
+    @Test
+    void ignoresATornLastRecord() throws Exception {
+        Facade game = newGame();
+        AutosaveLog log = startLogging(game);
+        play(game);
+        log.close();
+        Files.write(directory.resolve("moves.wal"), new byte[]{0x12, 0x34, 0x56}, StandardOpenOption.APPEND);
+
+        Facade recovered = newGame();
+        assertTrue(AutosaveLog.recover(directory, recovered));
+        assertSameValues(game, recovered);
+    }
+
+    @Test
+    void stopsAtARecordWithAWrongCheckByte() throws Exception {
+        Facade game = newGame();
+        AutosaveLog log = startLogging(game);
+        int[] cells = play(game);
+        log.close();
+        Path logFile = directory.resolve("moves.wal");
+        byte[] records = Files.readAllBytes(logFile);
+        records[2 * 4 + 3] ^= 0x5A;
+        Files.write(logFile, records);
+
+        Facade recovered = newGame();
+        assertTrue(AutosaveLog.recover(directory, recovered));
+        for (int k = 0; k < cells.length; k++) {
+            int row = cells[k] / 9;
+            int col = cells[k] % 9;
+            assertEquals(k < 2 ? game.getUserValue(row, col) : 0, recovered.getUserValue(row, col));
+        }
+    }
+
+    @Test
+    void ignoresRecordsOfAnotherEpoch() throws Exception {
+        Facade game = newGame();
+        AutosaveLog log = startLogging(game);
+        int[] cells = play(game);
+        log.close();
+
+        // As after a crash between replacing the snapshot and truncating the log.
+        Path snapshotFile = directory.resolve("snapshot.sav");
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        snapshot.putInt(0, snapshot.getInt(0) + 1);
+        Files.write(snapshotFile, snapshot.array());
+
+        Facade recovered = newGame();
+        assertTrue(AutosaveLog.recover(directory, recovered));
+        assertSameValues(newGame(), recovered);
+        for (int cell : cells) {
+            assertEquals(0, recovered.getUserValue(cell / 9, cell % 9));
+        }
+    }
+
+    @Test
+    void rejectsADamagedSnapshot() throws Exception {
+        Facade game = newGame();
+        startLogging(game).close();
+        Path snapshotFile = directory.resolve("snapshot.sav");
+        byte[] snapshot = Files.readAllBytes(snapshotFile);
+        snapshot[4 + 20] ^= 1;
+        Files.write(snapshotFile, snapshot);
+
+        assertThrows(IOException.class, () -> AutosaveLog.recover(directory, newGame()));
+    }
+}
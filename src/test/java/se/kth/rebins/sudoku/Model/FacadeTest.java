@@ -0,0 +1,185 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacadeTest {
+    private static final PuzzleSource PUZZLE = (level, gridSize) ->
+            SudokuUtilities.convertStringToIntMatrix(SudokuSolverTest.EASY + SudokuSolverTest.EASY_SOLUTION);
+
+    /**
+     * Records the events of a game, except pencil marks, as short strings.
+     */
+    private static class Recorder implements BoardListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void cellChanged(int row, int col, int oldValue, int newValue) {
+            events.add("cell " + row + "," + col + " " + oldValue + "->" + newValue);
+        }
+
+        @Override
+        public void boardReplaced() {
+            events.add("replaced");
+        }
+
+        @Override
+        public void puzzleSolved() {
+            events.add("solved");
+        }
+
+        @Override
+        public void filledIncorrectly() {
+            events.add("incorrect");
+        }
+
+        long count(String event) {
+            return events.stream().filter(event::equals).count();
+        }
+    }
+
+    private static Facade newGame() {
+        return new Facade(SudokuUtilities.SudokuLevel.EASY, PUZZLE);
+    }
+
+    private static int solution(int index) {
+        return SudokuSolverTest.EASY_SOLUTION.charAt(index) - '0';
+    }
+
+    /**
+     * Fills every empty cell but the last with its solution.
+     *
+     * @return The index of the cell left empty.
+     */
+    private static int fillAllButOne(Facade facade) {
+        int last = SudokuSolverTest.EASY.lastIndexOf('0');
+        for (int i = 0; i < last; i++) {
+            if (facade.getUserValue(i / 9, i % 9) == 0) {
+                facade.setUserValue(i / 9, i % 9, solution(i));
+            }
+        }
+        return last;
+    }
+
+    @Test
+    void reportsMovesToEveryListener() {
+        Facade facade = newGame();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        facade.addListener(first);
+        facade.addListener(second);
+        long version = facade.getVersion();
+
+        facade.setUserValue(0, 2, 4);
+        facade.setUserValue(0, 2, 4);
+        facade.setUserValue(0, 2, 0);
+        assertEquals(List.of("cell 0,2 0->4", "cell 0,2 4->0"), first.events);
+        assertEquals(first.events, second.events);
+        assertEquals(version + 2, facade.getVersion());
+
+        facade.removeListener(first);
+        facade.setUserValue(0, 2, 1);
+        assertEquals(2, first.events.size());
+        assertEquals("cell 0,2 0->1", second.events.get(2));
+    }
+
+    @Test
+    void ignoresGivenCells() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        facade.setUserValue(0, 0, 9);
+        assertEquals(5, facade.getUserValue(0, 0));
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    void rejectsCellsAndValuesOffTheBoard() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> facade.setUserValue(0, 9, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> facade.setUserValue(-1, 2, 5));
+        assertThrows(IllegalArgumentException.class, () -> facade.setUserValue(0, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> facade.setUserValue(0, 2, -1));
+        for (int i = 0; i < 81; i++) {
+            assertEquals(SudokuSolverTest.EASY.charAt(i) - '0', facade.getUserValue(i / 9, i % 9));
+        }
+        assertTrue(recorder.events.isEmpty());
+        assertFalse(facade.canUndo());
+    }
+
+    @Test
+    void reportsUndoAndRedoAsMoves() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        facade.setUserValue(0, 2, 4);
+        assertTrue(facade.undo());
+        assertTrue(facade.redo());
+        assertEquals(List.of("cell 0,2 0->4", "cell 0,2 4->0", "cell 0,2 0->4"), recorder.events);
+    }
+
+    @Test
+    void reportsSolvedOnceOnTheCompletingMove() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        int last = fillAllButOne(facade);
+        assertEquals(0, recorder.count("solved"));
+        facade.setUserValue(last / 9, last % 9, solution(last));
+        assertEquals("solved", recorder.events.get(recorder.events.size() - 1));
+        assertTrue(facade.isSolved());
+
+        facade.setUserValue(last / 9, last % 9, solution(last));
+        assertEquals(1, recorder.count("solved"));
+        assertEquals(0, recorder.count("incorrect"));
+    }
+
+    @Test
+    void reportsEachChangeOfCompletion() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        int last = fillAllButOne(facade);
+        int wrong = solution(last) % 9 + 1;
+        facade.setUserValue(last / 9, last % 9, wrong);
+        assertEquals(1, recorder.count("incorrect"));
+        assertFalse(facade.isSolved());
+
+        facade.setUserValue(last / 9, last % 9, solution(last));
+        assertEquals(1, recorder.count("solved"));
+
+        facade.setUserValue(last / 9, last % 9, 0);
+        facade.setUserValue(last / 9, last % 9, wrong);
+        assertEquals(2, recorder.count("incorrect"));
+        assertEquals(1, recorder.count("solved"));
+    }
+
+    @Test
+    void replacingTheBoardResetsCompletion() {
+        Facade facade = newGame();
+        Recorder recorder = new Recorder();
+        facade.addListener(recorder);
+
+        int last = fillAllButOne(facade);
+        facade.setUserValue(last / 9, last % 9, solution(last));
+        facade.resetGame();
+        assertEquals("replaced", recorder.events.get(recorder.events.size() - 1));
+        assertEquals(0, facade.getUserValue(last / 9, last % 9));
+        assertFalse(facade.canUndo());
+
+        fillAllButOne(facade);
+        facade.setUserValue(last / 9, last % 9, solution(last));
+        assertEquals(2, recorder.count("solved"));
+    }
+}
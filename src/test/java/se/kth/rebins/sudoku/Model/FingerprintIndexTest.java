@@ -0,0 +1,80 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintIndexTest {
+
+    @Test
+    void addsEachFingerprintOnce() {
+        FingerprintIndex index = new FingerprintIndex(16);
+        PuzzleFingerprint easy = PuzzleFingerprint.of(SudokuSolverTest.grid(SudokuSolverTest.EASY));
+        PuzzleFingerprint hard = PuzzleFingerprint.of(SudokuSolverTest.grid(SudokuSolverTest.HARD));
+        assertNotEquals(easy, hard);
+
+        assertTrue(index.add(easy));
+        assertFalse(index.add(PuzzleFingerprint.of(SudokuSolverTest.grid(SudokuSolverTest.EASY))));
+        assertTrue(index.contains(easy));
+        assertFalse(index.contains(hard));
+        assertTrue(index.add(hard));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void keepsFingerprintsWhoseSlotsCollide() {
+        FingerprintIndex index = new FingerprintIndex(0);
+        long high = 0x1234_5678_0000_0000L;
+        // The same upper half puts every fingerprint in the same slot, the same lower half must not match either.
+        for (long low = 1; low <= 500; low++) {
+            assertTrue(index.add(high, low));
+            assertTrue(index.add(high + low, 7));
+        }
+        assertEquals(1000, index.size());
+        for (long low = 1; low <= 500; low++) {
+            assertTrue(index.contains(new PuzzleFingerprint(high, low)));
+            assertTrue(index.contains(new PuzzleFingerprint(high + low, 7)));
+            assertFalse(index.add(high, low));
+        }
+        assertFalse(index.contains(new PuzzleFingerprint(high, 501)));
+        assertFalse(index.contains(new PuzzleFingerprint(high + 501, 7)));
+    }
+
+    @Test
+    void keepsProbeChainsThatWrapAroundTheTable() {
+        FingerprintIndex index = new FingerprintIndex(0);
+        long capacity = index.getMemoryBytes() / 16;
+        long lastSlot = capacity - 1;
+        for (long low = 1; low <= 100; low++) {
+            assertTrue(index.add(lastSlot, low));
+        }
+        for (long low = 1; low <= 100; low++) {
+            assertTrue(index.contains(new PuzzleFingerprint(lastSlot, low)));
+        }
+    }
+
+    @Test
+    void growsWithoutLosingFingerprints() {
+        FingerprintIndex index = new FingerprintIndex(0);
+        long before = index.getMemoryBytes();
+        for (long i = 1; i <= 10_000; i++) {
+            assertTrue(index.add(i * 0x9E37_79B9_7F4A_7C15L, i));
+        }
+        assertTrue(index.getMemoryBytes() > before);
+        assertEquals(10_000, index.size());
+        for (long i = 1; i <= 10_000; i++) {
+            assertTrue(index.contains(new PuzzleFingerprint(i * 0x9E37_79B9_7F4A_7C15L, i)));
+        }
+    }
+
+    @Test
+    void storesTheZeroFingerprint() {
+        FingerprintIndex index = new FingerprintIndex(0);
+        PuzzleFingerprint zero = new PuzzleFingerprint(0, 0);
+        assertFalse(index.contains(zero));
+        assertTrue(index.add(zero));
+        assertTrue(index.contains(zero));
+        assertFalse(index.add(zero));
+        assertEquals(1, index.size());
+    }
+}
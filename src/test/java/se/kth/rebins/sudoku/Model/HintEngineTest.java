@@ -0,0 +1,159 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HintEngineTest {
+    // Generated puzzles that logic alone solves, each needing the named technique for at least one step.
+    private static final String HIDDEN_SINGLE =
+            "009008015000000000500000408300000500000034200780500390000370020002001040010000000";
+    private static final String HIDDEN_SINGLE_SOLUTION =
+            "239748615847165932561293478326917584195834267784526391458379126972651843613482759";
+    private static final String POINTING =
+            "060207500000006201003009670002000068930008000700003100000300000209000000008900750";
+    private static final String POINTING_SOLUTION =
+            "164237589597846231823159674452791368931568427786423195675384912219675843348912756";
+    private static final String CLAIMING =
+            "007000010100208006080010500000986000700300000090000004040003900020000070900005130";
+    private static final String CLAIMING_SOLUTION =
+            "267534819135298746489617523314986257758342691692751384541873962823169475976425138";
+    private static final String NAKED_PAIR =
+            "900070400030009000027000000002006000490007063010520000000805002700000045000000091";
+    private static final String NAKED_PAIR_SOLUTION =
+            "981372456534619728627458139872936514495187263316524987149865372763291845258743691";
+    private static final String HIDDEN_PAIR =
+            "080000000007920008000000640760030004203800070000200009030702000008010050002003900";
+    private static final String HIDDEN_PAIR_SOLUTION =
+            "384651792657924318129378645765139824293845176841267539536792481978416253412583967";
+    private static final String X_WING =
+            "050002407000600050000007000060070934007160000004000700070000009000009008105800000";
+    private static final String X_WING_SOLUTION =
+            "653912487749683152812457396561278934937164825284395761378521649426739518195846273";
+
+    /**
+     * Walks the engine through a puzzle, checking every placed value against the solution and that
+     * no technique ever removes the candidate of the solution from a cell.
+     *
+     * @return The techniques reported by the hints.
+     */
+    private static Set<Technique> walk(HintEngine engine, int[] puzzle, int[] solution) {
+        engine.load(puzzle);
+        Set<Technique> techniques = EnumSet.noneOf(Technique.class);
+        while (engine.getEmptyCount() > 0) {
+            Hint hint = engine.nextStep();
+            assertNotNull(hint, "stuck with " + engine.getEmptyCount() + " empty cells");
+            int size = (int) Math.sqrt(solution.length);
+            int index = hint.getRow() * size + hint.getCol();
+            assertEquals(solution[index], hint.getValue(), "value of cell " + index);
+            assertEquals(hint.getValue(), engine.getValue(index));
+            techniques.add(hint.getTechnique());
+            for (int i = 0; i < solution.length; i++) {
+                if (engine.getValue(i) == 0) {
+                    assertNotEquals(0, engine.getCandidates(i) & 1 << (solution[i] - 1),
+                            "candidate of the solution removed from cell " + i);
+                }
+            }
+        }
+        assertArrayEquals(solution, values(engine, solution.length));
+        return techniques;
+    }
+
+    private static Set<Technique> walk(String puzzle, String solution) {
+        return walk(new HintEngine(), SudokuSolverTest.grid(puzzle), SudokuSolverTest.grid(solution));
+    }
+
+    private static int[] values(HintEngine engine, int cellCount) {
+        int[] values = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            values[i] = engine.getValue(i);
+        }
+        return values;
+    }
+
+    @Test
+    void solvesEasyPuzzleWithNakedSingles() {
+        assertEquals(EnumSet.of(Technique.NAKED_SINGLE),
+                walk(SudokuSolverTest.EASY, SudokuSolverTest.EASY_SOLUTION));
+    }
+
+    @Test
+    void findsNakedSingle() {
+        int[] grid = SudokuSolverTest.grid(SudokuSolverTest.EASY_SOLUTION);
+        grid[40] = 0;
+        HintEngine engine = new HintEngine();
+        engine.load(grid);
+        Hint hint = engine.nextStep();
+        assertEquals(Technique.NAKED_SINGLE, hint.getTechnique());
+        assertEquals(4, hint.getRow());
+        assertEquals(4, hint.getCol());
+        assertEquals(SudokuSolverTest.EASY_SOLUTION.charAt(40) - '0', hint.getValue());
+        assertNull(engine.nextStep());
+    }
+
+    @Test
+    void findsHiddenSingle() {
+        assertTrue(walk(HIDDEN_SINGLE, HIDDEN_SINGLE_SOLUTION).contains(Technique.HIDDEN_SINGLE));
+    }
+
+    @Test
+    void findsPointing() {
+        assertTrue(walk(POINTING, POINTING_SOLUTION).contains(Technique.POINTING));
+    }
+
+    @Test
+    void findsClaiming() {
+        assertTrue(walk(CLAIMING, CLAIMING_SOLUTION).contains(Technique.CLAIMING));
+    }
+
+    @Test
+    void findsNakedPair() {
+        assertTrue(walk(NAKED_PAIR, NAKED_PAIR_SOLUTION).contains(Technique.NAKED_PAIR));
+    }
+
+    @Test
+    void findsHiddenPair() {
+        assertTrue(walk(HIDDEN_PAIR, HIDDEN_PAIR_SOLUTION).contains(Technique.HIDDEN_PAIR));
+    }
+
+    @Test
+    void findsXWing() {
+        assertTrue(walk(X_WING, X_WING_SOLUTION).contains(Technique.X_WING));
+    }
+
+    @Test
+    void reportsContradictionAsNoHint() {
+        // Cell 40 is empty and its neighbour holds the value of cell 40, so every digit is used by a peer.
+        int[] grid = SudokuSolverTest.grid(SudokuSolverTest.EASY_SOLUTION);
+        grid[41] = grid[40];
+        grid[40] = 0;
+        HintEngine engine = new HintEngine();
+        engine.load(grid);
+        assertNull(engine.nextStep());
+    }
+
+    @Test
+    void handlesOtherBoardSizes() {
+        PuzzleGenerator generator = new PuzzleGenerator();
+        for (int size : new int[]{4, 16}) {
+            int[][][] matrix = generator.generate(SudokuUtilities.SudokuLevel.EASY, size);
+            int[] puzzle = new int[size * size];
+            int[] solution = new int[size * size];
+            for (int i = 0; i < puzzle.length; i++) {
+                puzzle[i] = matrix[i / size][i % size][0];
+                solution[i] = matrix[i / size][i % size][1];
+            }
+            HintEngine engine = new HintEngine(size);
+            engine.load(puzzle);
+            // Easy puzzles of these sizes are not guaranteed to be solvable by logic, so
+            // only the hints found before the engine gets stuck are checked.
+            Hint hint;
+            while ((hint = engine.nextStep()) != null) {
+                assertEquals(solution[hint.getRow() * size + hint.getCol()], hint.getValue());
+            }
+        }
+    }
+}
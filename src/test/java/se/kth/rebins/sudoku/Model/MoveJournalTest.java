@@ -0,0 +1,108 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+
+    @Test
+    void packsMoves() {
+        MoveJournal journal = new MoveJournal();
+        journal.record(624, 25, 17);
+        int move = journal.undo();
+        assertEquals(624, MoveJournal.indexOf(move));
+        assertEquals(25, MoveJournal.oldValueOf(move));
+        assertEquals(17, MoveJournal.newValueOf(move));
+        assertFalse(MoveJournal.isLinked(move));
+    }
+
+    @Test
+    void undoesAndRedoesInOrder() {
+        MoveJournal journal = new MoveJournal();
+        assertFalse(journal.canUndo());
+        journal.record(0, 0, 1);
+        journal.record(1, 0, 2);
+        journal.record(2, 0, 3);
+
+        assertEquals(2, MoveJournal.indexOf(journal.undo()));
+        assertEquals(1, MoveJournal.indexOf(journal.undo()));
+        assertTrue(journal.canRedo());
+        assertEquals(1, MoveJournal.indexOf(journal.redo()));
+        assertEquals(2, MoveJournal.indexOf(journal.redo()));
+        assertFalse(journal.canRedo());
+        assertThrows(IllegalStateException.class, journal::redo);
+
+        assertEquals(2, MoveJournal.indexOf(journal.undo()));
+        assertEquals(1, MoveJournal.indexOf(journal.undo()));
+        assertEquals(0, MoveJournal.indexOf(journal.undo()));
+        assertFalse(journal.canUndo());
+        assertThrows(IllegalStateException.class, journal::undo);
+    }
+
+    @Test
+    void recordingDiscardsUndoneMoves() {
+        MoveJournal journal = new MoveJournal();
+        journal.record(0, 0, 1);
+        journal.record(1, 0, 2);
+        journal.undo();
+        journal.record(5, 0, 9);
+        assertFalse(journal.canRedo());
+        assertEquals(5, MoveJournal.indexOf(journal.undo()));
+        assertEquals(0, MoveJournal.indexOf(journal.undo()));
+        assertFalse(journal.canUndo());
+    }
+
+    @Test
+    void linksTheMovesOfABatch() {
+        MoveJournal journal = new MoveJournal();
+        journal.record(0, 0, 1);
+        journal.beginBatch();
+        journal.record(1, 2, 0);
+        journal.record(2, 3, 0);
+        journal.record(3, 4, 0);
+        journal.endBatch();
+
+        int undone = 0;
+        int move;
+        do {
+            move = journal.undo();
+            undone++;
+        } while (MoveJournal.isLinked(move));
+        assertEquals(3, undone);
+        assertEquals(1, MoveJournal.indexOf(move));
+
+        int redone = 1;
+        assertEquals(1, MoveJournal.indexOf(journal.redo()));
+        while (journal.isNextLinked()) {
+            journal.redo();
+            redone++;
+        }
+        assertEquals(3, redone);
+        assertFalse(journal.canRedo());
+    }
+
+    @Test
+    void emptyBatchLinksNothing() {
+        MoveJournal journal = new MoveJournal();
+        journal.beginBatch();
+        journal.endBatch();
+        journal.record(7, 0, 4);
+        assertFalse(MoveJournal.isLinked(journal.undo()));
+    }
+
+    @Test
+    void growsAndClears() {
+        MoveJournal journal = new MoveJournal();
+        for (int i = 0; i < 1000; i++) {
+            journal.record(i % 81, 0, i % 9 + 1);
+        }
+        for (int i = 999; i >= 0; i--) {
+            assertEquals(i % 81, MoveJournal.indexOf(journal.undo()));
+        }
+        journal.redo();
+        journal.clear();
+        assertFalse(journal.canUndo());
+        assertFalse(journal.canRedo());
+    }
+}
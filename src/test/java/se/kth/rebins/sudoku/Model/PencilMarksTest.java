@@ -0,0 +1,154 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PencilMarksTest {
+    private static final PuzzleSource PUZZLE = (level, gridSize) ->
+            SudokuUtilities.convertStringToIntMatrix(SudokuSolverTest.EASY + SudokuSolverTest.EASY_SOLUTION);
+
+    /**
+     * Mirrors the marks of a game from its marksChanged events alone.
+     */
+    private static class Mirror implements BoardListener {
+        final int[] marks = new int[81];
+        int events;
+
+        @Override
+        public void marksChanged(int row, int col, int cellMarks) {
+            marks[row * 9 + col] = cellMarks;
+            events++;
+        }
+    }
+
+    private static Facade newGame() {
+        return new Facade(SudokuUtilities.SudokuLevel.EASY, PUZZLE);
+    }
+
+    /**
+     * Computes the candidates of a cell by scanning its row, column and box.
+     */
+    private static int candidates(Facade facade, int row, int col) {
+        if (facade.getUserValue(row, col) != 0) {
+            return 0;
+        }
+        int used = 0;
+        for (int i = 0; i < 9; i++) {
+            int boxRow = row / 3 * 3 + i / 3;
+            int boxCol = col / 3 * 3 + i % 3;
+            for (int value : new int[]{facade.getUserValue(row, i), facade.getUserValue(i, col),
+                    facade.getUserValue(boxRow, boxCol)}) {
+                if (value != 0) {
+                    used |= 1 << (value - 1);
+                }
+            }
+        }
+        return ~used & 0x1FF;
+    }
+
+    private static int bit(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    @Test
+    void autoMarksAreTheCandidatesAfterEveryMove() {
+        Facade facade = newGame();
+        Mirror mirror = new Mirror();
+        facade.addListener(mirror);
+        facade.setMarksMode(PencilMarks.Mode.AUTO);
+
+        Random random = new Random(7);
+        for (int move = 0; move < 2000; move++) {
+            int index = random.nextInt(81);
+            if (facade.isCellEditable(index / 9, index % 9)) {
+                // Values that conflict with the peers are allowed and must be handled too.
+                facade.setUserValue(index / 9, index % 9, random.nextInt(10));
+            }
+            for (int i = 0; i < 81; i++) {
+                int expected = candidates(facade, i / 9, i % 9);
+                assertEquals(expected, facade.getMarks(i / 9, i % 9), "marks of cell " + i + " after move " + move);
+                assertEquals(expected, mirror.marks[i], "reported marks of cell " + i + " after move " + move);
+            }
+        }
+    }
+
+    @Test
+    void placingADigitReportsOnlyTheChangedPeers() {
+        Facade facade = newGame();
+        facade.setMarksMode(PencilMarks.Mode.AUTO);
+        Mirror mirror = new Mirror();
+        facade.addListener(mirror);
+
+        // Count the peers of (0, 2) that have 1 as a candidate: its row, its column, and the rest of its box.
+        int expectedEvents = 0;
+        for (int col = 0; col < 9; col++) {
+            if (col != 2 && (facade.getMarks(0, col) & bit(1)) != 0) {
+                expectedEvents++;
+            }
+        }
+        for (int row = 1; row < 9; row++) {
+            if ((facade.getMarks(row, 2) & bit(1)) != 0) {
+                expectedEvents++;
+            }
+        }
+        for (int i = 0; i < 9; i++) {
+            int row = i / 3;
+            int col = i % 3;
+            if (row != 0 && col != 2 && (facade.getMarks(row, col) & bit(1)) != 0) {
+                expectedEvents++;
+            }
+        }
+        facade.setUserValue(0, 2, 1);
+        assertEquals(expectedEvents + 1, mirror.events);
+    }
+
+    @Test
+    void manualMarksAreClearedByPeersButNotRestored() {
+        Facade facade = newGame();
+        Mirror mirror = new Mirror();
+        facade.addListener(mirror);
+        facade.setMarksMode(PencilMarks.Mode.MANUAL);
+        for (int i = 0; i < 81; i++) {
+            assertEquals(0, facade.getMarks(i / 9, i % 9));
+        }
+
+        assertTrue(facade.toggleMark(0, 2, 4));
+        assertTrue(facade.toggleMark(0, 2, 1));
+        assertTrue(facade.toggleMark(2, 3, 4));
+        assertEquals(bit(1) | bit(4), mirror.marks[2]);
+
+        facade.setUserValue(0, 3, 4);
+        assertEquals(bit(1), facade.getMarks(0, 2));
+        assertEquals(0, facade.getMarks(2, 3), "a box peer loses the placed digit");
+        assertEquals(bit(1), mirror.marks[2]);
+
+        facade.setUserValue(0, 3, 0);
+        assertEquals(bit(1), facade.getMarks(0, 2));
+
+        assertFalse(facade.toggleMark(0, 0, 3), "a given cell takes no marks");
+        assertTrue(facade.toggleMark(0, 2, 1));
+        assertEquals(0, facade.getMarks(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> facade.toggleMark(0, 2, 10));
+    }
+
+    @Test
+    void offModeKeepsNoMarks() {
+        Facade facade = newGame();
+        facade.setMarksMode(PencilMarks.Mode.AUTO);
+        Mirror mirror = new Mirror();
+        facade.addListener(mirror);
+
+        facade.setMarksMode(PencilMarks.Mode.OFF);
+        int cleared = mirror.events;
+        assertTrue(cleared > 0);
+        facade.setUserValue(0, 2, 4);
+        assertFalse(facade.toggleMark(0, 5, 1));
+        assertEquals(cleared, mirror.events);
+        for (int i = 0; i < 81; i++) {
+            assertEquals(0, facade.getMarks(i / 9, i % 9));
+        }
+    }
+}
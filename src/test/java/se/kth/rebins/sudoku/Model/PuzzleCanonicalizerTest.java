@@ -0,0 +1,95 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzleCanonicalizerTest {
+    private final PuzzleCanonicalizer canonicalizer = new PuzzleCanonicalizer();
+    private final SymmetryTransformer transformer = new SymmetryTransformer(new Random(42));
+
+    @Test
+    void isInvariantUnderTheSymmetryGroup() {
+        for (String puzzle : new String[]{SudokuSolverTest.EASY, SudokuSolverTest.HARD}) {
+            int[] grid = SudokuSolverTest.grid(puzzle);
+            int[] canonical = canonicalizer.canonicalize(grid);
+            for (int i = 0; i < 200; i++) {
+                int[] variant = grid.clone();
+                transformer.transform(variant);
+                assertArrayEquals(canonical, canonicalizer.canonicalize(variant));
+            }
+        }
+    }
+
+    @Test
+    void isTheSmallestSymmetricBoard() {
+        int[] grid = SudokuSolverTest.grid(SudokuSolverTest.HARD);
+        int[] canonical = canonicalizer.canonicalize(grid);
+        assertArrayEquals(canonical, canonicalizer.canonicalize(canonical));
+        assertEquals(givens(grid), givens(canonical));
+        for (int i = 0; i < 200; i++) {
+            int[] variant = grid.clone();
+            transformer.transform(variant);
+            assertTrue(Arrays.compare(canonical, variant) <= 0);
+        }
+    }
+
+    @Test
+    void separatesPuzzlesThatAreNotSymmetric() {
+        int[] easy = canonicalizer.canonicalize(SudokuSolverTest.grid(SudokuSolverTest.EASY));
+        int[] hard = canonicalizer.canonicalize(SudokuSolverTest.grid(SudokuSolverTest.HARD));
+        assertFalse(Arrays.equals(easy, hard));
+
+        int[] solved = canonicalizer.canonicalize(SudokuSolverTest.grid(SudokuSolverTest.EASY_SOLUTION));
+        int[] solvedVariant = SudokuSolverTest.grid(SudokuSolverTest.EASY_SOLUTION);
+        transformer.transform(solvedVariant);
+        assertArrayEquals(solved, canonicalizer.canonicalize(solvedVariant));
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, Arrays.copyOf(solved, 9));
+    }
+
+    @Test
+    void canonicalizesInPlace() {
+        int[] grid = SudokuSolverTest.grid(SudokuSolverTest.EASY);
+        int[] expected = canonicalizer.canonicalize(grid);
+        canonicalizer.canonicalize(grid, grid);
+        assertArrayEquals(expected, grid);
+    }
+
+    @Test
+    void leavesTheResultUntouchedWhenItFails() {
+        int[] empty = new int[81];
+        int[] result = SudokuSolverTest.grid(SudokuSolverTest.HARD);
+        int[] before = result.clone();
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(empty, result));
+        assertArrayEquals(before, result);
+
+        int[] invalid = SudokuSolverTest.grid(SudokuSolverTest.EASY);
+        invalid[5] = 10;
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(invalid, result));
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(new int[80]));
+        assertArrayEquals(before, result);
+    }
+
+    @Test
+    void symmetricPuzzlesShareAFingerprint() {
+        int[] grid = SudokuSolverTest.grid(SudokuSolverTest.HARD);
+        int[] variant = grid.clone();
+        transformer.transform(variant);
+        assertNotEquals(PuzzleFingerprint.of(grid), PuzzleFingerprint.of(variant));
+        assertEquals(PuzzleFingerprint.of(canonicalizer.canonicalize(grid)),
+                PuzzleFingerprint.of(canonicalizer.canonicalize(variant)));
+    }
+
+    private static int givens(int[] grid) {
+        int count = 0;
+        for (int value : grid) {
+            if (value != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,142 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzlePoolTest {
+    private static final SudokuUtilities.SudokuLevel EASY = SudokuUtilities.SudokuLevel.EASY;
+
+    /**
+     * Hands out the same solved puzzle without searching, and counts the calls per thread.
+     */
+    private static class FakeGenerator extends PuzzleGenerator {
+        final AtomicInteger producerCalls = new AtomicInteger();
+        final AtomicInteger callerCalls = new AtomicInteger();
+
+        @Override
+        public int[][][] generate(SudokuUtilities.SudokuLevel level, int gridSize) {
+            (Thread.currentThread().getName().equals("puzzle-pool") ? producerCalls : callerCalls).incrementAndGet();
+            return SudokuUtilities.convertStringToIntMatrix(SudokuSolverTest.EASY + SudokuSolverTest.EASY_SOLUTION);
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+
+    private static boolean isFull(PuzzlePool pool, int capacity) {
+        for (SudokuUtilities.SudokuLevel level : SudokuUtilities.SudokuLevel.values()) {
+            if (pool.available(level) != capacity) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void fillsEveryLevelAndRefillsAfterTake() throws InterruptedException {
+        FakeGenerator generator = new FakeGenerator();
+        PuzzlePool pool = new PuzzlePool(generator, 2);
+        try {
+            await(() -> isFull(pool, 2), "pool not filled");
+            assertEquals(6, generator.producerCalls.get());
+
+            assertEquals(9, pool.take(EASY).length);
+            assertEquals(1, pool.getHits());
+            assertEquals(0, pool.getMisses());
+            assertEquals(0, generator.callerCalls.get());
+
+            await(() -> pool.available(EASY) == 2, "pool not refilled");
+            assertEquals(7, generator.producerCalls.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void generatesOnCallerWhenEmpty() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        FakeGenerator generator = new FakeGenerator() {
+            @Override
+            public int[][][] generate(SudokuUtilities.SudokuLevel level, int gridSize) {
+                if (Thread.currentThread().getName().equals("puzzle-pool")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.generate(level, gridSize);
+            }
+        };
+        PuzzlePool pool = new PuzzlePool(generator, 1);
+        try {
+            assertEquals(9, pool.take(EASY).length);
+            assertEquals(0, pool.getHits());
+            assertEquals(1, pool.getMisses());
+            assertEquals(1, generator.callerCalls.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void producerSurvivesFailingGenerator() throws InterruptedException {
+        AtomicInteger failuresLeft = new AtomicInteger(1);
+        FakeGenerator generator = new FakeGenerator() {
+            @Override
+            public int[][][] generate(SudokuUtilities.SudokuLevel level, int gridSize) {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new IllegalStateException("generation failed");
+                }
+                return super.generate(level, gridSize);
+            }
+        };
+        PuzzlePool pool = new PuzzlePool(generator, 1);
+        try {
+            await(() -> isFull(pool, 1), "pool not filled after a failure");
+            assertEquals(1, pool.getFailures());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void otherSizesAreOnlyPooledWhenRequested() throws InterruptedException {
+        FakeGenerator generator = new FakeGenerator();
+        PuzzlePool nineOnly = new PuzzlePool(generator, 1);
+        try {
+            nineOnly.take(EASY, 4);
+            assertEquals(1, generator.callerCalls.get());
+            assertEquals(0, nineOnly.getHits() + nineOnly.getMisses());
+            assertEquals(0, nineOnly.available(EASY, 4));
+        } finally {
+            nineOnly.shutdown();
+        }
+
+        PuzzlePool allSizes = new PuzzlePool(new FakeGenerator(), 1, 1);
+        try {
+            await(() -> allSizes.available(EASY, 4) == 1 && allSizes.available(EASY, 25) == 1,
+                    "other sizes not pooled");
+        } finally {
+            allSizes.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        PuzzleGenerator generator = new FakeGenerator();
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(generator, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(generator, 1, -1));
+    }
+}
@@ -0,0 +1,112 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveFormatTest {
+
+    private static Board game(int gridSize) {
+        Board board = new Board(gridSize);
+        board.load(new PuzzleGenerator().generate(SudokuUtilities.SudokuLevel.MEDIUM, gridSize));
+        for (int i = 0, placed = 0; i < board.getCellCount() && placed < 5; i++) {
+            if (!board.isGiven(i)) {
+                // Some correct and some wrong values, so values and solution differ.
+                board.setValue(i, placed % 2 == 0 ? board.getSolution(i) : board.getSolution(i) % gridSize + 1);
+                placed++;
+            }
+        }
+        return board;
+    }
+
+    private static void assertSameGame(Board expected, Board actual) {
+        assertEquals(expected.getGridSize(), actual.getGridSize());
+        for (int i = 0; i < expected.getCellCount(); i++) {
+            assertEquals(expected.getValue(i), actual.getValue(i), "value of cell " + i);
+            assertEquals(expected.getSolution(i), actual.getSolution(i), "solution of cell " + i);
+            assertEquals(expected.isGiven(i), actual.isGiven(i), "given cell " + i);
+        }
+    }
+
+    @Test
+    void recordSizes() {
+        assertEquals(SaveFormat.RECORD_SIZE, SaveFormat.recordSize(9));
+        assertEquals(64, SaveFormat.recordSize(4));
+        assertEquals(SaveFormat.MAX_RECORD_SIZE, SaveFormat.recordSize(25));
+        assertEquals(0, SaveFormat.MAX_RECORD_SIZE % 64);
+    }
+
+    @Test
+    void roundTripsEveryBoardSize() throws IOException {
+        for (int gridSize : new int[]{4, 9, 16, 25}) {
+            Board board = game(gridSize);
+            ByteBuffer buffer = ByteBuffer.allocate(16 + SaveFormat.recordSize(gridSize));
+            SaveFormat.encode(board, SudokuUtilities.SudokuLevel.HARD, buffer, 16);
+
+            assertTrue(SaveFormat.isRecord(buffer, 16));
+            assertEquals(gridSize, SaveFormat.gridSizeOf(buffer, 16));
+            Board loaded = new Board();
+            assertEquals(SudokuUtilities.SudokuLevel.HARD, SaveFormat.decode(buffer, 16, loaded));
+            assertSameGame(board, loaded);
+        }
+    }
+
+    @Test
+    void readsVersionOneRecords() throws IOException {
+        Board board = game(9);
+        ByteBuffer buffer = ByteBuffer.allocate(SaveFormat.RECORD_SIZE);
+        SaveFormat.encode(board, SudokuUtilities.SudokuLevel.EASY, buffer, 0);
+        buffer.put(4, (byte) 1);
+        buffer.put(6, (byte) 0);
+
+        Board loaded = new Board(16);
+        assertEquals(SudokuUtilities.SudokuLevel.EASY, SaveFormat.decode(buffer, 0, loaded));
+        assertSameGame(board, loaded);
+    }
+
+    @Test
+    void rejectsACorruptRecord() {
+        for (int gridSize : new int[]{9, 25}) {
+            Board board = game(gridSize);
+            int recordSize = SaveFormat.recordSize(gridSize);
+            ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+            SaveFormat.encode(board, SudokuUtilities.SudokuLevel.EASY, buffer, 0);
+            for (int at : new int[]{12, 40, recordSize - 1}) {
+                buffer.put(at, (byte) (buffer.get(at) ^ 0x10));
+                IOException e = assertThrows(IOException.class, () -> SaveFormat.decode(buffer, 0, new Board()));
+                assertEquals("Saved game is corrupt", e.getMessage());
+                buffer.put(at, (byte) (buffer.get(at) ^ 0x10));
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidHeaders() {
+        ByteBuffer buffer = ByteBuffer.allocate(SaveFormat.RECORD_SIZE);
+        SaveFormat.encode(game(9), SudokuUtilities.SudokuLevel.EASY, buffer, 0);
+
+        ByteBuffer wrongMagic = ByteBuffer.wrap(buffer.array().clone());
+        wrongMagic.putInt(0, 0);
+        assertFalse(SaveFormat.isRecord(wrongMagic, 0));
+        assertThrows(IOException.class, () -> SaveFormat.decode(wrongMagic, 0, new Board()));
+
+        ByteBuffer unknownVersion = ByteBuffer.wrap(buffer.array().clone());
+        unknownVersion.put(4, (byte) 3);
+        assertEquals(-1, SaveFormat.gridSizeOf(unknownVersion, 0));
+        assertThrows(IOException.class, () -> SaveFormat.decode(unknownVersion, 0, new Board()));
+
+        ByteBuffer badSize = ByteBuffer.wrap(buffer.array().clone());
+        badSize.put(6, (byte) 10);
+        assertThrows(IOException.class, () -> SaveFormat.decode(badSize, 0, new Board()));
+
+        ByteBuffer truncated = ByteBuffer.wrap(buffer.array(), 0, SaveFormat.RECORD_SIZE - 1).slice();
+        assertThrows(IOException.class, () -> SaveFormat.decode(truncated, 0, new Board()));
+
+        ByteBuffer badLevel = ByteBuffer.wrap(buffer.array().clone());
+        badLevel.put(5, (byte) 7);
+        assertThrows(IOException.class, () -> SaveFormat.decode(badLevel, 0, new Board()));
+    }
+}
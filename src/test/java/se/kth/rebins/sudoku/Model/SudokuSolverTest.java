@@ -0,0 +1,130 @@
+package se.kth.rebins.sudoku.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuSolverTest {
+    static final String EASY =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+    static final String EASY_SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+    static final String HARD =
+            "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+    static final String HARD_SOLUTION =
+            "812753649943682175675491283154237896369845721287169534521974368438526917796318452";
+
+    static int[] grid(String values) {
+        int[] grid = new int[values.length()];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = values.charAt(i) - '0';
+        }
+        return grid;
+    }
+
+    @Test
+    void solvesKnownPuzzles() {
+        SudokuSolver solver = new SudokuSolver();
+        int[] easy = grid(EASY);
+        assertTrue(solver.solve(easy));
+        assertArrayEquals(grid(EASY_SOLUTION), easy);
+
+        int[] hard = grid(HARD);
+        assertTrue(solver.solveUnique(hard));
+        assertArrayEquals(grid(HARD_SOLUTION), hard);
+    }
+
+    @Test
+    void countsSolutionsUpToTheLimit() {
+        SudokuSolver solver = new SudokuSolver();
+        assertEquals(1, solver.countSolutions(grid(HARD), 2));
+        assertTrue(solver.hasUniqueSolution(grid(EASY)));
+
+        int[] open = grid(EASY);
+        for (int i = 0; i < 9; i++) {
+            open[i] = 0;
+        }
+        assertEquals(2, solver.countSolutions(open, 2));
+        assertEquals(1, solver.countSolutions(open, 1));
+        assertFalse(solver.hasUniqueSolution(open));
+        assertFalse(solver.solveUnique(open));
+    }
+
+    @Test
+    void reportsNoSolutionForContradictingValues() {
+        SudokuSolver solver = new SudokuSolver();
+        int[] twice = grid(EASY);
+        twice[2] = 5;
+        assertEquals(0, solver.countSolutions(twice, 2));
+        assertFalse(solver.solve(twice));
+
+        int[] stuck = grid(EASY_SOLUTION);
+        stuck[0] = 0;
+        stuck[1] = 5;
+        assertEquals(0, solver.countSolutions(stuck, 2));
+    }
+
+    @Test
+    void givesUpWhenTheGuessLimitIsReached() {
+        SudokuSolver solver = new SudokuSolver();
+        int[] empty = new int[81];
+        assertEquals(-1, solver.countSolutions(empty, 2, 0));
+        assertEquals(2, solver.countSolutions(empty, 2, Long.MAX_VALUE));
+        assertEquals(1, solver.countSolutions(grid(EASY), 2, 0), "propagation alone needs no guess");
+
+        SudokuSolver large = new SudokuSolver(16);
+        assertEquals(-1, large.countSolutions(new int[256], 2, 1));
+    }
+
+    @Test
+    void solvesEmptyBoardsOfEverySize() {
+        for (int gridSize : new int[]{4, 9, 16, 25}) {
+            SudokuSolver solver = new SudokuSolver(gridSize);
+            int[] board = new int[gridSize * gridSize];
+            if (gridSize <= 16) {
+                assertTrue(solver.solveRandomly(board, new Random(gridSize)));
+            } else {
+                fillPatternGrid(board, 5);
+            }
+            for (int i = 0; i < board.length; i++) {
+                assertTrue(board[i] >= 1 && board[i] <= gridSize);
+            }
+            int[] puzzle = board.clone();
+            puzzle[0] = 0;
+            puzzle[board.length - 1] = 0;
+            assertEquals(1, solver.countSolutions(puzzle, 2), gridSize + "x" + gridSize);
+            assertTrue(solver.solve(puzzle));
+            assertArrayEquals(board, puzzle);
+        }
+    }
+
+    @Test
+    void rejectsInvalidBoards() {
+        SudokuSolver solver = new SudokuSolver();
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(new int[80], 1));
+        int[] invalid = new int[81];
+        invalid[0] = 10;
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(invalid, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SudokuSolver(10));
+    }
+
+    @Test
+    void verifiesTheStoredSolution() {
+        int[][][] matrix = SudokuUtilities.convertStringToIntMatrix(HARD + HARD_SOLUTION);
+        assertTrue(SudokuSolver.verify(matrix));
+        matrix[0][1][1] = matrix[0][2][1];
+        assertFalse(SudokuSolver.verify(matrix));
+    }
+
+    private static void fillPatternGrid(int[] board, int sectionSize) {
+        int gridSize = sectionSize * sectionSize;
+        for (int row = 0; row < gridSize; row++) {
+            int shift = (row % sectionSize) * sectionSize + row / sectionSize;
+            for (int col = 0; col < gridSize; col++) {
+                board[row * gridSize + col] = (shift + col) % gridSize + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package se.kth.rebins.sudoku.Server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+    private static final Pattern SESSION = Pattern.compile("\"session\":\"([0-9a-f]+)\"");
+    private static final Pattern GIVEN = Pattern.compile("\"given\":\"([01]{81})\"");
+
+    private GameServer server;
+
+    private record Response(int status, String body) {
+    }
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new GameServer(0, 2, 60);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private Response get(String pathAndQuery) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery).toURL().openConnection();
+        try {
+            int status = connection.getResponseCode();
+            assertEquals("application/json", connection.getContentType());
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String group(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        assertTrue(matcher.find(), body);
+        return matcher.group(1);
+    }
+
+    @Test
+    void playsAGame() throws IOException {
+        Response created = get("/new?level=easy");
+        assertEquals(200, created.status());
+        String session = group(SESSION, created.body());
+        String given = group(GIVEN, created.body());
+
+        int given0 = given.indexOf('1');
+        int empty = given.indexOf('0');
+        assertEquals(409, get("/move?session=" + session + "&row=" + given0 / 9 + "&col=" + given0 % 9 + "&value=1").status());
+        Response moved = get("/move?session=" + session + "&row=" + empty / 9 + "&col=" + empty % 9 + "&value=0");
+        assertEquals(200, moved.status());
+        assertTrue(moved.body().contains("\"solved\":false"), moved.body());
+        assertEquals(400, get("/move?session=" + session + "&row=0&col=9&value=1").status());
+        assertEquals(400, get("/move?session=" + session + "&row=0&col=0&value=10").status());
+
+        Response hint = get("/hint?session=" + session);
+        assertEquals(200, hint.status());
+        assertEquals(200, get("/check?session=" + session).status());
+        assertEquals(404, get("/check?session=0123").status());
+    }
+
+    @Test
+    void capsTheNumberOfSessions() throws IOException {
+        assertEquals(200, get("/new?level=EASY").status());
+        assertEquals(200, get("/new?level=HARD").status());
+        Response refused = get("/new?level=EASY");
+        assertEquals(503, refused.status());
+        assertEquals("{\"error\":\"Too many sessions\"}", refused.body());
+        assertTrue(get("/stats").body().startsWith("{\"sessions\":2,"));
+    }
+
+    @Test
+    void escapesErrorMessages() throws IOException {
+        Response backslash = get("/new?level=%5C");
+        assertEquals(400, backslash.status());
+        assertEquals("{\"error\":\"Unknown level \\\\\"}", backslash.body());
+
+        Response controls = get("/new?level=a%0Ab%22c%01");
+        assertEquals(400, controls.status());
+        assertEquals("{\"error\":\"Unknown level a\\nb\\\"c\\u0001\"}", controls.body());
+
+        assertEquals("{\"error\":\"Missing parameter level\"}", get("/new").body());
+    }
+}
@@ -0,0 +1,78 @@
+package se.kth.rebins.sudoku.Server;
+
+import org.junit.jupiter.api.Test;
+import se.kth.rebins.sudoku.Model.PuzzleGenerator;
+import se.kth.rebins.sudoku.Model.PuzzlePool;
+import se.kth.rebins.sudoku.Model.SudokuUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+    private static final SudokuUtilities.SudokuLevel EASY = SudokuUtilities.SudokuLevel.EASY;
+
+    @Test
+    void refusesSessionsBeyondTheCap() {
+        PuzzlePool pool = new PuzzlePool(new PuzzleGenerator(), 1);
+        SessionStore store = new SessionStore(pool, 2, 60);
+        try {
+            Session first = store.create(EASY);
+            Session second = store.create(EASY);
+            assertNotNull(first);
+            assertNotNull(second);
+            assertNotEquals(first.getId(), second.getId());
+            assertNull(store.create(EASY));
+            assertEquals(2, store.size());
+            assertSame(first, store.get(first.getId()));
+            assertNull(store.get("unknown"));
+        } finally {
+            store.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void failedCreationFreesItsPlace() {
+        PuzzlePool pool = new PuzzlePool(new PuzzleGenerator() {
+            @Override
+            public int[][][] generate(SudokuUtilities.SudokuLevel level, int gridSize) {
+                throw new IllegalStateException("generation failed");
+            }
+        }, 1);
+        pool.shutdown();
+        SessionStore store = new SessionStore(pool, 1, 60);
+        try {
+            assertThrows(IllegalStateException.class, () -> store.create(EASY));
+            assertThrows(IllegalStateException.class, () -> store.create(EASY));
+            assertEquals(0, store.size());
+        } finally {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void evictsOnlyIdleSessions() throws InterruptedException {
+        PuzzlePool pool = new PuzzlePool(new PuzzleGenerator(), 1);
+        SessionStore store = new SessionStore(pool, 2, 1);
+        try {
+            Session active = store.create(EASY);
+            Session idle = store.create(EASY);
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            // Only the active session is looked up while waiting; a lookup of the idle one would touch it.
+            while (store.size() == 2) {
+                assertTrue(System.nanoTime() < deadline, "idle session not evicted");
+                assertSame(active, store.get(active.getId()));
+                Thread.sleep(100);
+            }
+            assertSame(active, store.get(active.getId()));
+            assertNull(store.get(idle.getId()));
+            assertEquals(1, store.size());
+            assertEquals(1, store.getEvicted());
+
+            // The freed place can be taken again.
+            assertNotNull(store.create(EASY));
+        } finally {
+            store.shutdown();
+            pool.shutdown();
+        }
+    }
+}